@@ -0,0 +1,190 @@
+package insurance_package.benchmark;
+
+import insurance_package.model.CoverageOption;
+import insurance_package.model.Product;
+import insurance_package.model.QuotationRequest;
+import org.bson.types.ObjectId;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Catalog documents and chatbot requests shaped like the production data,
+ * shared by all benchmarks.
+ */
+final class BenchmarkFixtures {
+
+    static final ObjectId MOTOR_PRODUCT_ID = new ObjectId("650000000000000000000001");
+    static final ObjectId LIFE_PRODUCT_ID = new ObjectId("650000000000000000000002");
+
+    private BenchmarkFixtures() {
+    }
+
+    // =========================================================
+    // PRODUCTS
+    // =========================================================
+    static Product motorProduct() {
+        Map<String, Object> usage = new LinkedHashMap<>();
+        usage.put("private", 1.0);
+        usage.put("commercial", 1.35);
+        usage.put("e-hailing", 1.25);
+        usage.put("company", 1.15);
+
+        Map<String, Object> region = new LinkedHashMap<>();
+        region.put("Kuala Lumpur", 1.2);
+        region.put("Selangor", 1.15);
+        region.put("Penang", 1.1);
+        region.put("Johor", 1.1);
+        region.put("Perak", 1.0);
+        region.put("Sabah", 0.95);
+        region.put("Sarawak", 0.95);
+        region.put("Kelantan", 0.9);
+
+        Map<String, Object> rates = new HashMap<>();
+        rates.put("base", 400.0);
+        rates.put("per_year", 20.0);
+        rates.put("currency", "MYR");
+        rates.put("usage_factors", usage);
+        rates.put("region_factors", region);
+
+        return product(MOTOR_PRODUCT_ID, "Motor", "Motor Comprehensive", rates);
+    }
+
+    static Product lifeProduct() {
+        List<Map<String, Object>> bands = new ArrayList<>();
+        bands.add(band(0, 17, 0.6));
+        bands.add(band(18, 25, 0.8));
+        bands.add(band(26, 35, 1.0));
+        bands.add(band(36, 45, 1.3));
+        bands.add(band(46, 55, 1.8));
+        bands.add(band(56, 65, 2.6));
+        bands.add(band(66, 120, 3.5));
+
+        Map<String, Object> rates = new HashMap<>();
+        rates.put("base", 35.0);
+        rates.put("smoker_load", 1.35);
+        rates.put("currency", "MYR");
+        rates.put("life_age_bands", bands);
+
+        return product(LIFE_PRODUCT_ID, "Life", "Term Life Protect", rates);
+    }
+
+    // =========================================================
+    // COVERAGE OPTIONS
+    // =========================================================
+    static List<CoverageOption> motorCoverageOptions() {
+        return List.of(
+                option(MOTOR_PRODUCT_ID, "BASIC_MOTOR", "Basic Motor Cover", true, 0),
+                option(MOTOR_PRODUCT_ID, "windscreen", "Windscreen Cover", false, 0.015),
+                option(MOTOR_PRODUCT_ID, "flood", "Special Perils (Flood)", false, 0.005),
+                option(MOTOR_PRODUCT_ID, "theft", "Theft Protection", true, 0.01),
+                option(MOTOR_PRODUCT_ID, "passenger", "Legal Liability to Passengers", false, 45.0),
+                option(MOTOR_PRODUCT_ID, "towing", "24h Towing", true, 30.0),
+                option(MOTOR_PRODUCT_ID, "strike_riot", "Strike, Riot & Civil Commotion", false, 0.003)
+        );
+    }
+
+    static List<CoverageOption> lifeCoverageOptions() {
+        return List.of(
+                option(LIFE_PRODUCT_ID, "BASIC", "Death & TPD", true, 0),
+                option(LIFE_PRODUCT_ID, "critical_illness", "Critical Illness Rider", false, 25.0),
+                option(LIFE_PRODUCT_ID, "hospital", "Hospital Income Rider", false, 18.0)
+        );
+    }
+
+    // =========================================================
+    // REQUESTS
+    // =========================================================
+    static Map<String, Object> motorSlots() {
+        Map<String, Object> slots = new HashMap<>();
+        slots.put("make", "Perodua");
+        slots.put("model", "Myvi");
+        slots.put("year", "2018");
+        slots.put("plate_no", "WXY 1234");
+        slots.put("usage", "private");
+        slots.put("region", "Selangor");
+        slots.put("ncd_percent", "25");
+        slots.put("sum_insured", "38000");
+        slots.put("windscreen_enabled", true);
+        slots.put("flood_enabled", true);
+        slots.put("customer_name", "Nur Aisyah");
+        slots.put("email", "aisyah@example.com");
+        return slots;
+    }
+
+    static Map<String, Object> lifeSlots() {
+        Map<String, Object> slots = new HashMap<>();
+        slots.put("age", "42");
+        slots.put("gender", "Male");
+        slots.put("smoker_status", "yes");
+        slots.put("income", "96000");
+        slots.put("occupation", "Engineer");
+        slots.put("marital_status", "Married");
+        slots.put("critical_illness_enabled", true);
+        slots.put("customer_name", "Tan Wei Ming");
+        slots.put("email", "weiming@example.com");
+        return slots;
+    }
+
+    static byte[] motorBody() {
+        return ("{\"slots\":{\"make\":\"Perodua\",\"model\":\"Myvi\",\"year\":2018,"
+                + "\"usage\":\"private\",\"region\":\"Selangor\",\"ncd_percent\":25,"
+                + "\"sum_insured\":38000,\"windscreen_enabled\":true,\"flood_enabled\":true,"
+                + "\"customer_name\":\"Nur Aisyah\",\"email\":\"aisyah@example.com\"}}")
+                .getBytes();
+    }
+
+    static byte[] lifeBody() {
+        return ("{\"slots\":{\"age\":42,\"gender\":\"Male\",\"smoker_status\":\"yes\","
+                + "\"income\":96000,\"critical_illness_enabled\":true,"
+                + "\"customer_name\":\"Tan Wei Ming\",\"email\":\"weiming@example.com\"}}")
+                .getBytes();
+    }
+
+    static QuotationRequest request(String line, Map<String, Object> slots) {
+        QuotationRequest req = new QuotationRequest();
+        req.setLine(line);
+        req.setSlots(new HashMap<>(slots));
+        return req;
+    }
+
+    // =========================================================
+    // HELPERS
+    // =========================================================
+    private static Product product(ObjectId id, String line, String name, Map<String, Object> rates) {
+        Product product = new Product();
+        product.setId(id);
+        product.setLine(line);
+        product.setName(name);
+        product.setProvider("Trust Insurance");
+        product.setActive(true);
+        product.setBaseRates(rates);
+        product.setCreatedAt(Instant.parse("2024-01-01T00:00:00Z"));
+        return product;
+    }
+
+    private static CoverageOption option(
+            ObjectId productId, String code, String label, boolean defaultOn, double loadFactor) {
+        CoverageOption option = new CoverageOption();
+        option.setId(new ObjectId());
+        option.setProductId(productId);
+        option.setCode(code);
+        option.setLabel(label);
+        option.setDescription(label);
+        option.setDefaultOn(defaultOn);
+        option.setLoadFactor(loadFactor);
+        return option;
+    }
+
+    private static Map<String, Object> band(int min, int max, double factor) {
+        Map<String, Object> band = new HashMap<>();
+        band.put("min", min);
+        band.put("max", max);
+        band.put("factor", factor);
+        return band;
+    }
+}
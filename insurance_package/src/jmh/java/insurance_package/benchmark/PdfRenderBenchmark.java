@@ -0,0 +1,143 @@
+package insurance_package.benchmark;
+
+import insurance_package.config.PdfProperties;
+import insurance_package.model.Quote;
+import insurance_package.model.QuoteStatus;
+import insurance_package.service.InMemoryPdfStore;
+import insurance_package.service.PdfBufferPool;
+import insurance_package.service.PdfQuotationService;
+import insurance_package.service.PdfRenderResources;
+import insurance_package.service.QuoteMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Quotation PDF rendering (Thymeleaf + openhtmltopdf) for both lines, using
+ * the templates and logo shipped in {@code src/main/resources}.
+ * File renders go to a temporary directory and are removed after each call;
+ * in-memory renders use the pooled buffers.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PdfRenderBenchmark {
+
+    private PdfQuotationService pdfQuotationService;
+    private Path outputDir;
+
+    private Quote motorQuote;
+    private Quote lifeQuote;
+
+    @Param({"true", "false"})
+    public boolean templateCache;
+
+    @Setup
+    public void setup() throws IOException {
+        outputDir = Files.createTempDirectory("pdf-bench");
+
+        PdfProperties properties = new PdfProperties();
+        properties.setOutputDir(outputDir.toString());
+        properties.setCacheTemplates(templateCache);
+
+        String logo;
+        try (InputStream in = getClass().getResourceAsStream("/static/logo.png")) {
+            logo = in != null ? Base64.getEncoder().encodeToString(in.readAllBytes()) : "";
+        }
+
+        pdfQuotationService = new PdfQuotationService(
+                new PdfRenderResources(properties, logo),
+                new PdfBufferPool(properties),
+                new InMemoryPdfStore(properties.getCacheMaxBytes()),
+                properties,
+                new QuoteMetrics(new SimpleMeterRegistry())
+        );
+
+        motorQuote = quote("Q-BENCH-MOTOR", "Motor", BenchmarkFixtures.motorSlots(), 1032.23);
+        lifeQuote = quote("Q-BENCH-LIFE", "Life", BenchmarkFixtures.lifeSlots(), 105.84);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(outputDir);
+    }
+
+    @Benchmark
+    public long renderMotor() {
+        return renderAndDelete(motorQuote);
+    }
+
+    @Benchmark
+    public long renderLife() {
+        return renderAndDelete(lifeQuote);
+    }
+
+    @Benchmark
+    public int renderMotorInMemory() {
+        return pdfQuotationService.renderQuotationPdf(motorQuote).length;
+    }
+
+    @Benchmark
+    public int renderLifeInMemory() {
+        return pdfQuotationService.renderQuotationPdf(lifeQuote).length;
+    }
+
+    private long renderAndDelete(Quote quote) {
+        File pdf = pdfQuotationService.generateQuotationPdf(quote);
+        long size = pdf.length();
+        pdf.delete();
+        return size;
+    }
+
+    private static Quote quote(String quoteId, String line, Map<String, Object> slots, double total) {
+        Map<String, Object> breakdown = new HashMap<>();
+        breakdown.put("basePremium", round(total * 0.8));
+        breakdown.put("totalPremium", total);
+        breakdown.put("currency", "MYR");
+        breakdown.put("items", List.of(
+                item("Base Premium", round(total * 0.8), "Base rate after loadings"),
+                item("Optional Coverage", round(total * 0.15), "Selected riders"),
+                item("SST (6%)", round(total * 0.05), "Sales and service tax")
+        ));
+
+        return Quote.builder()
+                .quoteId(quoteId)
+                .line(line)
+                .currency("MYR")
+                .customerName(String.valueOf(slots.get("customer_name")))
+                .customerEmail(String.valueOf(slots.get("email")))
+                .requestDetails(slots)
+                .premiumBreakdown(breakdown)
+                .totalPremium(total)
+                .riskScore(42)
+                .status(QuoteStatus.CREATED)
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    private static Map<String, Object> item(String label, double amount, String description) {
+        Map<String, Object> item = new HashMap<>();
+        item.put("label", label);
+        item.put("amount", amount);
+        item.put("description", description);
+        return item;
+    }
+
+    private static double round(double v) {
+        return Math.round(v * 100.0) / 100.0;
+    }
+}
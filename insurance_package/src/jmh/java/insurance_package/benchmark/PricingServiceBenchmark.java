@@ -0,0 +1,132 @@
+package insurance_package.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import insurance_package.config.QuoteIdProperties;
+import insurance_package.model.PremiumResult;
+import insurance_package.model.QuotationRequest;
+import insurance_package.model.Quote;
+import insurance_package.mongo.repository.CoverageOptionRepository;
+import insurance_package.mongo.repository.ProductRepository;
+import insurance_package.service.CatalogCache;
+import insurance_package.service.LifeRuleEngine;
+import insurance_package.service.MotorRuleEngine;
+import insurance_package.service.PricingService;
+import insurance_package.service.QuoteDeliveryPipeline;
+import insurance_package.service.QuoteIdGenerator;
+import insurance_package.service.QuoteJournal;
+import insurance_package.service.QuoteMetrics;
+import insurance_package.service.QuoteSlotBinder;
+import insurance_package.service.QuoteWriteBatcher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * {@link PricingService} end to end with stubbed repositories: catalog
+ * lookup, slot binding, rating, quote building (including quote id
+ * generation) and the save / pipeline hand-off.
+ *
+ * Requests are copied per invocation because pricing caches the bound
+ * slots on the request.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PricingServiceBenchmark {
+
+    private PricingService pricingService;
+    private QuoteIdGenerator quoteIdGenerator;
+
+    private Map<String, Object> motorSlots;
+    private Map<String, Object> lifeSlots;
+    private PremiumResult motorResult;
+
+    @Setup
+    public void setup() {
+        ProductRepository productRepository = stub(ProductRepository.class);
+        when(productRepository.findByActiveOnPrimary(true)).thenReturn(List.of(
+                BenchmarkFixtures.motorProduct(), BenchmarkFixtures.lifeProduct()));
+
+        CoverageOptionRepository coverageOptionRepository = stub(CoverageOptionRepository.class);
+        when(coverageOptionRepository.findByProductIdOnPrimary(BenchmarkFixtures.MOTOR_PRODUCT_ID))
+                .thenReturn(BenchmarkFixtures.motorCoverageOptions());
+        when(coverageOptionRepository.findByProductIdOnPrimary(BenchmarkFixtures.LIFE_PRODUCT_ID))
+                .thenReturn(BenchmarkFixtures.lifeCoverageOptions());
+
+        CatalogCache catalogCache = new CatalogCache(productRepository, coverageOptionRepository);
+        catalogCache.refresh();
+
+        // Saves are echoed back (never journaled), deliveries dropped
+        QuoteWriteBatcher quoteWriteBatcher = stub(QuoteWriteBatcher.class);
+        when(quoteWriteBatcher.save(any(Quote.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        QuoteIdProperties quoteIdProperties = new QuoteIdProperties();
+        quoteIdProperties.setNodeId(1);
+        quoteIdGenerator = new QuoteIdGenerator(quoteIdProperties);
+
+        pricingService = new PricingService(
+                catalogCache,
+                quoteWriteBatcher,
+                stub(QuoteJournal.class),
+                new MotorRuleEngine(),
+                new LifeRuleEngine(),
+                stub(QuoteDeliveryPipeline.class),
+                new QuoteSlotBinder(new ObjectMapper()),
+                quoteIdGenerator,
+                new QuoteMetrics(new SimpleMeterRegistry())
+        );
+
+        motorSlots = BenchmarkFixtures.motorSlots();
+        lifeSlots = BenchmarkFixtures.lifeSlots();
+        motorResult = pricingService.price(BenchmarkFixtures.request("Motor", motorSlots));
+    }
+
+    @Benchmark
+    public PremiumResult priceMotor() {
+        return pricingService.price(BenchmarkFixtures.request("Motor", motorSlots));
+    }
+
+    @Benchmark
+    public PremiumResult priceLife() {
+        return pricingService.price(BenchmarkFixtures.request("Life", lifeSlots));
+    }
+
+    @Benchmark
+    public PremiumResult calculatePremiumMotor() {
+        return pricingService.calculatePremium(BenchmarkFixtures.request("Motor", motorSlots));
+    }
+
+    /**
+     * Quote id generation under contention from every benchmark thread.
+     */
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String nextQuoteId() {
+        return quoteIdGenerator.nextId();
+    }
+
+    /**
+     * Quote document assembly, including quote id generation.
+     */
+    @Benchmark
+    public Quote buildQuote() {
+        QuotationRequest req = BenchmarkFixtures.request("Motor", motorSlots);
+        return pricingService.buildQuote(req, motorResult);
+    }
+
+    // Stub-only mocks do not record invocations, so long runs don't accumulate garbage
+    private static <T> T stub(Class<T> type) {
+        return mock(type, withSettings().stubOnly());
+    }
+}
@@ -0,0 +1,91 @@
+package insurance_package.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import insurance_package.model.LifeSlots;
+import insurance_package.model.MotorSlots;
+import insurance_package.model.PremiumResult;
+import insurance_package.rating.LifeRatingPlan;
+import insurance_package.rating.MotorRatingPlan;
+import insurance_package.rating.RatingPlan;
+import insurance_package.service.LifeRuleEngine;
+import insurance_package.service.MotorRuleEngine;
+import insurance_package.service.QuoteSlotBinder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rule engines on compiled rating plans, and the full chatbot path
+ * (bind request body -> rate).
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RatingEngineBenchmark {
+
+    private MotorRuleEngine motorRuleEngine;
+    private LifeRuleEngine lifeRuleEngine;
+    private QuoteSlotBinder quoteSlotBinder;
+
+    private MotorRatingPlan motorPlan;
+    private LifeRatingPlan lifePlan;
+
+    private MotorSlots motorSlots;
+    private LifeSlots lifeSlots;
+
+    private byte[] motorBody;
+    private byte[] lifeBody;
+
+    @Setup
+    public void setup() {
+        motorRuleEngine = new MotorRuleEngine();
+        lifeRuleEngine = new LifeRuleEngine();
+        quoteSlotBinder = new QuoteSlotBinder(new ObjectMapper());
+
+        motorPlan = (MotorRatingPlan) RatingPlan.compile(
+                BenchmarkFixtures.motorProduct(), BenchmarkFixtures.motorCoverageOptions());
+        lifePlan = (LifeRatingPlan) RatingPlan.compile(
+                BenchmarkFixtures.lifeProduct(), BenchmarkFixtures.lifeCoverageOptions());
+
+        motorSlots = (MotorSlots) quoteSlotBinder
+                .bind("Motor", BenchmarkFixtures.motorSlots()).requireValid().slots();
+        lifeSlots = (LifeSlots) quoteSlotBinder
+                .bind("Life", BenchmarkFixtures.lifeSlots()).requireValid().slots();
+
+        motorBody = BenchmarkFixtures.motorBody();
+        lifeBody = BenchmarkFixtures.lifeBody();
+    }
+
+    @Benchmark
+    public PremiumResult motorRules() {
+        return motorRuleEngine.applyBusinessRules(motorSlots, motorPlan);
+    }
+
+    @Benchmark
+    public PremiumResult lifeRules() {
+        return lifeRuleEngine.applyBusinessRules(lifeSlots, lifePlan);
+    }
+
+    @Benchmark
+    public PremiumResult motorBindAndRate() {
+        MotorSlots slots = (MotorSlots) quoteSlotBinder
+                .bindJson("Motor", motorBody).requireValid().slots();
+        return motorRuleEngine.applyBusinessRules(slots, motorPlan);
+    }
+
+    @Benchmark
+    public PremiumResult lifeBindAndRate() {
+        LifeSlots slots = (LifeSlots) quoteSlotBinder
+                .bindJson("Life", lifeBody).requireValid().slots();
+        return lifeRuleEngine.applyBusinessRules(slots, lifePlan);
+    }
+
+    @Benchmark
+    public RatingPlan compileMotorPlan() {
+        return RatingPlan.compile(
+                BenchmarkFixtures.motorProduct(), BenchmarkFixtures.motorCoverageOptions());
+    }
+}
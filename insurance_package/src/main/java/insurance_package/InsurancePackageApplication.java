@@ -13,8 +13,10 @@ import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 @EnableMongoRepositories(basePackages = "insurance_package.mongo.repository")
 @EnableConfigurationProperties(AppProperties.class)
 @ConfigurationPropertiesScan(basePackages = "insurance_package.config")
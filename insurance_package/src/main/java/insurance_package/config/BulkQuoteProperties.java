@@ -0,0 +1,21 @@
+package insurance_package.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "quotation.bulk")
+public class BulkQuoteProperties {
+
+    /**
+     * Requests priced, inserted and written back per round
+     */
+    private int chunkSize = 500;
+
+    /**
+     * Pricing threads (0 = number of available cores)
+     */
+    private int parallelism = 0;
+}
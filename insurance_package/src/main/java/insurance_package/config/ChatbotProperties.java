@@ -6,6 +6,7 @@ import org.springframework.context.annotation.Configuration;
 
 @Data
 @Configuration
+@ConfigurationProperties(prefix = "chatbot")
 public class ChatbotProperties {
 
     /**
@@ -18,4 +19,82 @@ public class ChatbotProperties {
      * Example: http://localhost:5000/chatbot
      */
     private String localUrl;
+
+    /**
+     * Python chatbot engine called for every turn
+     */
+    private String engineUrl;
+
+    private Client client = new Client();
+
+    private Breaker breaker = new Breaker();
+
+    private History history = new History();
+
+    @Data
+    public static class Client {
+        private long connectTimeoutMs = 2_000;
+
+        /**
+         * Whole engine call, from sending the turn to the full reply
+         */
+        private long requestTimeoutMs = 20_000;
+
+        /**
+         * Retries when the turn never reached the engine (connect failure,
+         * HTTP 503), with a backoff growing by retry-backoff-ms
+         */
+        private int maxRetries = 2;
+        private long retryBackoffMs = 250;
+
+        /**
+         * Threads completing engine calls; waiting calls hold none
+         */
+        private int threads = 4;
+    }
+
+    @Data
+    public static class Breaker {
+        /**
+         * Consecutive failed calls that open the circuit
+         */
+        private int failureThreshold = 5;
+
+        /**
+         * How long an open circuit answers with the fallback reply before
+         * letting one trial call through
+         */
+        private long openMs = 30_000;
+    }
+
+    @Data
+    public static class History {
+        /**
+         * Messages kept on the chat_sessions document; older ones move to
+         * chat_session_buckets
+         */
+        private int maxMessages = 200;
+
+        /**
+         * Messages per chat_session_buckets document
+         */
+        private int bucketSize = 500;
+
+        /**
+         * Active sessions cached in memory (least recently used evicted)
+         */
+        private int maxSessions = 2_000;
+
+        /**
+         * Unwritten messages are flushed in one bulk write this often, or
+         * as soon as flush-batch-messages are waiting
+         */
+        private long flushIntervalMs = 250;
+        private int flushBatchMessages = 500;
+
+        /**
+         * Past this many unwritten messages a chat request flushes itself
+         */
+        private int maxPendingMessages = 20_000;
+    }
 }
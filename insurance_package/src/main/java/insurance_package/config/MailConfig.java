@@ -0,0 +1,46 @@
+package insurance_package.config;
+
+import insurance_package.service.PooledJavaMailSender;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.mail.MailProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.util.Properties;
+
+/**
+ * The mail sender built from {@code spring.mail.*}, with pooled SMTP
+ * connections ({@code quotation.mail.pool.*}). Replaces Spring Boot's
+ * connect-per-send {@code JavaMailSenderImpl}.
+ *
+ * Any SMTP server works, e.g. a local GreenMail:
+ * {@code spring.mail.host=localhost}, {@code spring.mail.port=3025},
+ * {@code spring.mail.properties.mail.smtp.auth=false}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "spring.mail", name = "host")
+@EnableConfigurationProperties(MailProperties.class)
+public class MailConfig {
+
+    @Bean
+    public JavaMailSender mailSender(MailProperties mail, QuoteMailProperties properties) {
+        PooledJavaMailSender sender = new PooledJavaMailSender(properties.getPool());
+        sender.setHost(mail.getHost());
+        if (mail.getPort() != null) {
+            sender.setPort(mail.getPort());
+        }
+        sender.setUsername(mail.getUsername());
+        sender.setPassword(mail.getPassword());
+        sender.setProtocol(mail.getProtocol());
+        if (mail.getDefaultEncoding() != null) {
+            sender.setDefaultEncoding(mail.getDefaultEncoding().name());
+        }
+
+        Properties javaMail = new Properties();
+        javaMail.putAll(mail.getProperties());
+        sender.setJavaMailProperties(javaMail);
+        return sender;
+    }
+}
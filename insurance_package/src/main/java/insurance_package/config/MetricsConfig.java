@@ -0,0 +1,23 @@
+package insurance_package.config;
+
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Registry behind the {@code /metrics} scrape endpoint.
+     */
+    @Bean
+    public PrometheusMeterRegistry prometheusMeterRegistry(
+            @Value("${spring.application.name:insurance-package}") String application
+    ) {
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        registry.config().commonTags("application", application);
+        return registry;
+    }
+}
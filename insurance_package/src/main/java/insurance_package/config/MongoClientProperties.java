@@ -0,0 +1,97 @@
+package insurance_package.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mongo client settings (see MongoConfig). The server and database come
+ * from spring.data.mongodb.uri / spring.data.mongodb.database; options
+ * given in the URI win over these.
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "mongo")
+public class MongoClientProperties {
+
+    private Pool pool = new Pool();
+
+    private long connectTimeoutMs = 10_000;
+
+    /**
+     * 0 = no socket read timeout (index builds at startup can take long)
+     */
+    private long socketTimeoutMs = 0;
+
+    private long serverSelectionTimeoutMs = 30_000;
+
+    /**
+     * Wire compressors in order of preference: zstd | snappy | zlib.
+     * zstd / snappy are skipped when their library is not on the classpath.
+     */
+    private List<String> compressors = new ArrayList<>(List.of("zstd", "snappy", "zlib"));
+
+    /**
+     * Read / write settings per workload, applied to its collections
+     */
+    private Map<String, Workload> workloads = new LinkedHashMap<>();
+
+    @Data
+    public static class Pool {
+        private int minSize = 0;
+        private int maxSize = 100;
+
+        /**
+         * Longest an operation waits for a pooled connection before failing
+         */
+        private long maxWaitMs = 2_000;
+
+        /**
+         * Connections being established at once, the rest of the waiters queue
+         */
+        private int maxConnecting = 2;
+
+        /**
+         * 0 = no limit
+         */
+        private long maxIdleMs = 0;
+    }
+
+    @Data
+    public static class Workload {
+
+        /**
+         * Collections of the workload, e.g. quotes,email_outbox
+         */
+        private List<String> collections = new ArrayList<>();
+
+        /**
+         * primary | primaryPreferred | secondary | secondaryPreferred | nearest
+         */
+        private String readPreference;
+
+        /**
+         * For non-primary reads, at least 90 (0 = any)
+         */
+        private long maxStalenessSeconds = 0;
+
+        /**
+         * local | available | majority | linearizable | snapshot
+         */
+        private String readConcern;
+
+        /**
+         * majority or a number of members, e.g. 1
+         */
+        private String writeConcern;
+
+        private Boolean journal;
+
+        private long writeTimeoutMs = 0;
+    }
+}
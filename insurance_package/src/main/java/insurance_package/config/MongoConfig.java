@@ -1,24 +1,172 @@
 package insurance_package.config;
 
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCompressor;
+import com.mongodb.ReadConcern;
+import com.mongodb.ReadConcernLevel;
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
+import insurance_package.service.QuoteMetrics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.mongo.MongoProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.SimpleMongoClientDatabaseFactory;
+import org.springframework.util.ClassUtils;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mongo client and template.
+ *
+ * Server and database come from spring.data.mongodb.uri (and
+ * spring.data.mongodb.database); pool, timeouts and wire compression from
+ * mongo.* (see {@link MongoClientProperties}), unless given in the URI.
+ * Each workload (mongo.workloads.*) has its own read preference, read
+ * concern and write concern, applied to its collections by
+ * {@link WorkloadMongoTemplate}.
+ */
+@Slf4j
 @Configuration
+@EnableConfigurationProperties(MongoProperties.class)
+@RequiredArgsConstructor
 public class MongoConfig {
 
-    private static final String MONGO_URI = "mongodb://localhost:27017";
-    private static final String DATABASE_NAME = "insurance_db";
+    private final MongoProperties mongoProperties;
+    private final MongoClientProperties properties;
 
     @Bean
-    public MongoClient mongoClient() {
-        return MongoClients.create(MONGO_URI);
+    public MongoClient mongoClient(QuoteMetrics quoteMetrics) {
+        MongoClientProperties.Pool pool = properties.getPool();
+        ConnectionString uri = new ConnectionString(mongoProperties.determineUri());
+
+        MongoClientSettings settings = MongoClientSettings.builder()
+                .applyToConnectionPoolSettings(builder -> builder
+                        .minSize(pool.getMinSize())
+                        .maxSize(pool.getMaxSize())
+                        .maxWaitTime(pool.getMaxWaitMs(), TimeUnit.MILLISECONDS)
+                        .maxConnecting(pool.getMaxConnecting())
+                        .maxConnectionIdleTime(pool.getMaxIdleMs(), TimeUnit.MILLISECONDS)
+                        .addConnectionPoolListener(new MongoPoolMetricsListener(quoteMetrics)))
+                .applyToSocketSettings(builder -> builder
+                        .connectTimeout(properties.getConnectTimeoutMs(), TimeUnit.MILLISECONDS)
+                        .readTimeout(properties.getSocketTimeoutMs(), TimeUnit.MILLISECONDS))
+                .applyToClusterSettings(builder -> builder
+                        .serverSelectionTimeout(properties.getServerSelectionTimeoutMs(), TimeUnit.MILLISECONDS))
+                .compressorList(compressors())
+                // Options given in the URI win
+                .applyConnectionString(uri)
+                .build();
+
+        log.info("Mongo client for {}: pool {}-{}, compressors {}",
+                uri.getHosts(), settings.getConnectionPoolSettings().getMinSize(),
+                settings.getConnectionPoolSettings().getMaxSize(),
+                settings.getCompressorList().stream().map(MongoCompressor::getName).toList());
+        return MongoClients.create(settings);
     }
 
     @Bean
-    public MongoTemplate mongoTemplate() {
-        return new MongoTemplate(mongoClient(), DATABASE_NAME);
+    public MongoTemplate mongoTemplate(MongoClient mongoClient) {
+        return new WorkloadMongoTemplate(
+                new SimpleMongoClientDatabaseFactory(mongoClient, mongoProperties.getMongoClientDatabase()),
+                workloads());
+    }
+
+    // =========================================================
+    // HELPERS
+    // =========================================================
+    private List<MongoCompressor> compressors() {
+        List<MongoCompressor> compressors = new ArrayList<>();
+        for (String name : properties.getCompressors()) {
+            MongoCompressor compressor = switch (name.trim().toLowerCase(Locale.ROOT)) {
+                case "zstd" -> present("com.github.luben.zstd.Zstd") ? MongoCompressor.createZstdCompressor() : null;
+                case "snappy" -> present("org.xerial.snappy.Snappy") ? MongoCompressor.createSnappyCompressor() : null;
+                case "zlib" -> MongoCompressor.createZlibCompressor();
+                default -> throw new IllegalArgumentException("Unknown Mongo compressor: " + name);
+            };
+            if (compressor == null) {
+                log.warn("Mongo compressor {} skipped, its library is not on the classpath", name);
+            } else {
+                compressors.add(compressor);
+            }
+        }
+        return compressors;
+    }
+
+    private static boolean present(String className) {
+        return ClassUtils.isPresent(className, MongoConfig.class.getClassLoader());
+    }
+
+    // Collection name -> workload
+    private Map<String, WorkloadMongoTemplate.Workload> workloads() {
+        Map<String, WorkloadMongoTemplate.Workload> byCollection = new HashMap<>();
+        properties.getWorkloads().forEach((name, config) -> {
+            WorkloadMongoTemplate.Workload workload = new WorkloadMongoTemplate.Workload(
+                    name, readPreference(config), readConcern(config), writeConcern(config));
+            for (String collection : config.getCollections()) {
+                WorkloadMongoTemplate.Workload previous = byCollection.put(collection.trim(), workload);
+                if (previous != null) {
+                    throw new IllegalArgumentException("Collection " + collection
+                            + " is in Mongo workloads " + previous.name() + " and " + name);
+                }
+            }
+            log.info("Mongo workload {} {}: read preference {}, read concern {}, write concern {}",
+                    name, config.getCollections(),
+                    workload.readPreference() != null ? workload.readPreference() : "default",
+                    workload.readConcern() != null ? workload.readConcern().asDocument().toJson() : "default",
+                    workload.writeConcern() != null ? workload.writeConcern().asDocument().toJson() : "default");
+        });
+        return byCollection;
+    }
+
+    private static ReadPreference readPreference(MongoClientProperties.Workload config) {
+        if (config.getReadPreference() == null) {
+            return null;
+        }
+        if (config.getMaxStalenessSeconds() > 0) {
+            return ReadPreference.valueOf(config.getReadPreference(), List.of(),
+                    config.getMaxStalenessSeconds(), TimeUnit.SECONDS);
+        }
+        return ReadPreference.valueOf(config.getReadPreference());
+    }
+
+    private static ReadConcern readConcern(MongoClientProperties.Workload config) {
+        return config.getReadConcern() == null
+                ? null
+                : new ReadConcern(ReadConcernLevel.fromString(config.getReadConcern()));
+    }
+
+    private static WriteConcern writeConcern(MongoClientProperties.Workload config) {
+        String w = config.getWriteConcern();
+        if (w == null) {
+            return null;
+        }
+        WriteConcern writeConcern;
+        if ("majority".equalsIgnoreCase(w)) {
+            writeConcern = WriteConcern.MAJORITY;
+        } else if (w.chars().allMatch(Character::isDigit)) {
+            writeConcern = new WriteConcern(Integer.parseInt(w));
+        } else {
+            // Custom write concern (tag set) defined on the replica set
+            writeConcern = new WriteConcern(w);
+        }
+        if (config.getJournal() != null) {
+            writeConcern = writeConcern.withJournal(config.getJournal());
+        }
+        if (config.getWriteTimeoutMs() > 0) {
+            writeConcern = writeConcern.withWTimeout(config.getWriteTimeoutMs(), TimeUnit.MILLISECONDS);
+        }
+        return writeConcern;
     }
 }
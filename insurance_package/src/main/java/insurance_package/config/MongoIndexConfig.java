@@ -0,0 +1,173 @@
+package insurance_package.config;
+
+import insurance_package.model.CoverageOption;
+import insurance_package.model.Product;
+import insurance_package.model.Quote;
+import insurance_package.mongo.model.ChatSession;
+import insurance_package.mongo.model.ChatSessionBucket;
+import insurance_package.mongo.model.OutboxEmail;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Creates the indexes declared with {@code @Indexed} / {@code @CompoundIndex}
+ * on the mapped documents. Spring Data no longer does this automatically,
+ * and the custom {@link MongoConfig} template does not enable it.
+ *
+ * Then explains every query shape the application relies on and logs the
+ * ones whose winning plan is a collection scan.
+ */
+@Slf4j
+@Configuration
+@Profile("mongo")
+@RequiredArgsConstructor
+public class MongoIndexConfig {
+
+    private final MongoTemplate mongoTemplate;
+
+    // Collection, filter, sort - sample values, only the shape matters
+    private record QueryShape(String name, Class<?> type, Document filter, Document sort) {
+    }
+
+    private static final List<QueryShape> QUERY_SHAPES = List.of(
+            new QueryShape("quote by quoteId", Quote.class,
+                    new Document("quoteId", "Q"), null),
+            new QueryShape("quotes by customer", Quote.class,
+                    new Document("customerEmail", "a@b.c"), new Document("createdAt", -1)),
+            new QueryShape("quotes by line and date", Quote.class,
+                    new Document("line", "motor").append("createdAt",
+                            new Document("$gte", new Date(0)).append("$lt", new Date())),
+                    new Document("createdAt", -1)),
+            new QueryShape("quotes listing", Quote.class,
+                    new Document("createdAt", new Document("$lt", new Date())),
+                    new Document("createdAt", -1).append("_id", -1)),
+            new QueryShape("active products", Product.class,
+                    new Document("active", true), null),
+            new QueryShape("active products by line", Product.class,
+                    new Document("line", "motor").append("active", true), null),
+            new QueryShape("coverage options by product", CoverageOption.class,
+                    new Document("product_id", new ObjectId()), null),
+            new QueryShape("chat session", ChatSession.class,
+                    new Document("sessionId", "S"), null),
+            new QueryShape("chat session buckets", ChatSessionBucket.class,
+                    new Document("sessionId", "S"), new Document("bucket", 1)),
+            new QueryShape("outbox claim", OutboxEmail.class,
+                    new Document("status", new Document("$in", List.of("PENDING", "SENDING")))
+                            .append("nextAttemptAt", new Document("$lte", new Date())),
+                    new Document("priority", 1).append("nextAttemptAt", 1)),
+            new QueryShape("outbox by quote", OutboxEmail.class,
+                    new Document("quoteId", "Q"), null)
+    );
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        ensureIndexes(Quote.class);
+        ensureIndexes(Product.class);
+        ensureIndexes(CoverageOption.class);
+        ensureIndexes(OutboxEmail.class);
+        ensureIndexes(ChatSession.class);
+        ensureIndexes(ChatSessionBucket.class);
+
+        checkQueryPlans();
+    }
+
+    private void ensureIndexes(Class<?> type) {
+        MongoPersistentEntityIndexResolver resolver =
+                new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+        IndexOperations indexOps = mongoTemplate.indexOps(type);
+
+        resolver.resolveIndexFor(type).forEach(index -> {
+            try {
+                indexOps.ensureIndex(index);
+            } catch (Exception e) {
+                // e.g. existing duplicate quote ids - keep serving, but make it visible
+                log.error("Could not create index {} on {}: {}",
+                        index.getIndexKeys(), type.getSimpleName(), e.getMessage());
+                if (Boolean.TRUE.equals(index.getIndexOptions().get("unique"))) {
+                    ensureNonUnique(indexOps, index, type);
+                }
+            }
+        });
+    }
+
+    /**
+     * Same keys and name without uniqueness, so lookups (and query hints
+     * naming it) keep working until the duplicates are cleaned up.
+     */
+    private void ensureNonUnique(IndexOperations indexOps, IndexDefinition index, Class<?> type) {
+        Document options = new Document(index.getIndexOptions());
+        options.remove("unique");
+        try {
+            indexOps.ensureIndex(new IndexDefinition() {
+                @Override
+                public Document getIndexKeys() {
+                    return index.getIndexKeys();
+                }
+
+                @Override
+                public Document getIndexOptions() {
+                    return options;
+                }
+            });
+            log.warn("Created non-unique index {} on {} instead", index.getIndexKeys(), type.getSimpleName());
+        } catch (Exception e) {
+            log.error("Could not create non-unique index {} on {}: {}",
+                    index.getIndexKeys(), type.getSimpleName(), e.getMessage());
+        }
+    }
+
+    // =========================================================
+    // QUERY PLANS
+    // =========================================================
+    private void checkQueryPlans() {
+        int scans = 0;
+        for (QueryShape shape : QUERY_SHAPES) {
+            Document find = new Document("find", mongoTemplate.getCollectionName(shape.type()))
+                    .append("filter", shape.filter());
+            if (shape.sort() != null) {
+                find.append("sort", shape.sort());
+            }
+            try {
+                Document explain = mongoTemplate.getDb().runCommand(
+                        new Document("explain", find).append("verbosity", "queryPlanner"));
+                Object plan = explain.get("queryPlanner", Document.class).get("winningPlan");
+                if (hasStage(plan, "COLLSCAN")) {
+                    scans++;
+                    log.warn("Query '{}' on {} is a collection scan: filter {} sort {}",
+                            shape.name(), find.getString("find"), shape.filter().toJson(),
+                            shape.sort() != null ? shape.sort().toJson() : "-");
+                }
+            } catch (Exception e) {
+                log.warn("Could not explain query '{}': {}", shape.name(), e.getMessage());
+            }
+        }
+        log.info("Checked {} query shapes, {} collection scans", QUERY_SHAPES.size(), scans);
+    }
+
+    // Winning plans nest stages (inputStage / inputStages / queryPlan)
+    private static boolean hasStage(Object plan, String stage) {
+        if (plan instanceof Document document) {
+            if (stage.equals(document.get("stage"))) {
+                return true;
+            }
+            return document.values().stream().anyMatch(value -> hasStage(value, stage));
+        }
+        if (plan instanceof List<?> list) {
+            return list.stream().anyMatch(value -> hasStage(value, stage));
+        }
+        return false;
+    }
+}
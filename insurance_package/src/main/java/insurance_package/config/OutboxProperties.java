@@ -0,0 +1,44 @@
+package insurance_package.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "quotation.outbox")
+public class OutboxProperties {
+
+    /**
+     * Worker threads sending outbox emails on this node
+     */
+    private int workers = 2;
+
+    /**
+     * How often an idle worker looks for due emails (it is also woken
+     * when a PDF on this node is ready)
+     */
+    private long pollIntervalMs = 1_000;
+
+    /**
+     * How long a claimed email stays with its worker before another node
+     * may take it over
+     */
+    private Duration lease = Duration.ofMinutes(2);
+
+    /**
+     * New quote emails wait this long for the pipeline's PDF before a
+     * worker renders it itself (e.g. after the rendering node died)
+     */
+    private Duration renderGrace = Duration.ofSeconds(30);
+
+    /**
+     * Retries back off exponentially from initial-backoff up to
+     * max-backoff; after max-attempts the email is dead-lettered
+     */
+    private int maxAttempts = 8;
+    private Duration initialBackoff = Duration.ofSeconds(30);
+    private Duration maxBackoff = Duration.ofHours(1);
+}
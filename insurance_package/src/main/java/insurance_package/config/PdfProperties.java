@@ -4,9 +4,80 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
 @Data
 @Configuration
 @ConfigurationProperties(prefix = "quotation.pdf")
 public class PdfProperties {
-    private String outputDir;
+
+    /**
+     * Where rendered PDFs live:
+     * STORE  - rendered in memory, kept in the pack-file store (store.*)
+     * MEMORY - rendered in memory, recent ones kept in a bounded heap cache
+     * FILE   - written to output-dir, read back for email and deleted
+     */
+    private Storage storage = Storage.STORE;
+
+    private String outputDir = "./generated-pdfs";
+
+    /**
+     * Reusable render buffers kept between renders, and their starting size
+     */
+    private int bufferPoolSize = 8;
+    private int bufferInitialBytes = 256 * 1024;
+
+    /**
+     * Heap cache size for MEMORY / FILE storage (GET /api/quote/{quoteId}/pdf)
+     */
+    private long cacheMaxBytes = 64L * 1024 * 1024;
+
+    private Store store = new Store();
+
+    /**
+     * Keep parsed PDF templates in memory and pre-render them at startup.
+     * Turn off locally to pick up template edits without a restart.
+     */
+    private boolean cacheTemplates = true;
+
+    /**
+     * Extra fonts embedded in quotation PDFs, loaded once at startup
+     */
+    private List<Font> fonts = new ArrayList<>();
+
+    public enum Storage {
+        STORE,
+        MEMORY,
+        FILE
+    }
+
+    @Data
+    public static class Store {
+        private String dir = "./pdf-store";
+
+        /**
+         * A new pack segment is started at this size or age
+         */
+        private long segmentMaxBytes = 64L * 1024 * 1024;
+        private Duration segmentMaxAge = Duration.ofDays(1);
+
+        /**
+         * Whole segments are evicted once older than retention, and oldest
+         * first while the store is above max-total-bytes
+         */
+        private Duration retention = Duration.ofDays(30);
+        private long maxTotalBytes = 2L * 1024 * 1024 * 1024;
+        private long evictIntervalMs = 600_000;
+    }
+
+    @Data
+    public static class Font {
+        private String family;
+        // classpath:fonts/x.ttf or a file system path
+        private String path;
+        private int weight = 400;
+        private boolean italic;
+    }
 }
@@ -0,0 +1,18 @@
+package insurance_package.config;
+
+import insurance_package.service.InMemoryPdfStore;
+import insurance_package.service.PackFilePdfStore;
+import insurance_package.service.PdfStore;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class PdfStoreConfig {
+
+    @Bean
+    public PdfStore pdfStore(PdfProperties properties) {
+        return properties.getStorage() == PdfProperties.Storage.STORE
+                ? new PackFilePdfStore(properties.getStore())
+                : new InMemoryPdfStore(properties.getCacheMaxBytes());
+    }
+}
@@ -0,0 +1,16 @@
+package insurance_package.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "quotation.preview")
+public class PreviewProperties {
+
+    /**
+     * Memoized previews kept (least recently used are dropped first)
+     */
+    private int cacheSize = 10_000;
+}
@@ -0,0 +1,18 @@
+package insurance_package.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "quotation.quote-id")
+public class QuoteIdProperties {
+
+    /**
+     * Id of this instance (0-255), embedded in every quote id.
+     * Must be unique per running instance. A negative value derives it
+     * from the host name, which is only safe for a single instance.
+     */
+    private int nodeId = -1;
+}
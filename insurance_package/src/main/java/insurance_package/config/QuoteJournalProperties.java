@@ -0,0 +1,41 @@
+package insurance_package.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "quotation.journal")
+public class QuoteJournalProperties {
+
+    /**
+     * Journal quotes that cannot be inserted (Mongo down or slow) instead
+     * of failing them
+     */
+    private boolean enabled = true;
+
+    private String dir = "./quote-journal";
+
+    /**
+     * Size of each memory-mapped journal segment (preallocated)
+     */
+    private int segmentBytes = 16 * 1024 * 1024;
+
+    /**
+     * Journal size at which quotes fail again
+     */
+    private long maxBytes = 1024L * 1024 * 1024;
+
+    /**
+     * Flush every record to disk before the quote is answered
+     */
+    private boolean fsync = true;
+
+    private long replayIntervalMs = 1_000;
+
+    /**
+     * Journaled quotes inserted per ordered bulk write
+     */
+    private int replayBatchSize = 200;
+}
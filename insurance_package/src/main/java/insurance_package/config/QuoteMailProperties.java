@@ -0,0 +1,72 @@
+package insurance_package.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "quotation.mail")
+public class QuoteMailProperties {
+
+    /**
+     * Send the HTML quote email and the PDF as one message per quote
+     * instead of two
+     */
+    private boolean mergePdf = false;
+
+    private Pool pool = new Pool();
+
+    private Rate rate = new Rate();
+
+    @Data
+    public static class Pool {
+        /**
+         * Authenticated SMTP connections kept open (and the most sends in
+         * flight at once)
+         */
+        private int maxConnections = 4;
+
+        /**
+         * A connection is closed and replaced after this many messages
+         */
+        private int maxMessagesPerConnection = 100;
+
+        /**
+         * Connections unused this long are closed
+         */
+        private long idleTimeoutMs = 30_000;
+
+        /**
+         * How long a send waits for a free connection
+         */
+        private long borrowTimeoutMs = 30_000;
+    }
+
+    @Data
+    public static class Rate {
+        /**
+         * Send rate allowed by SES for this node, and the burst above it
+         */
+        private double maxPerSecond = 14;
+        private int burst = 14;
+
+        /**
+         * Throttling replies halve the rate down to this floor; it grows
+         * back by a tenth of max-per-second every recovery interval
+         */
+        private double minPerSecond = 1;
+        private long recoveryIntervalMs = 10_000;
+
+        /**
+         * Messages per UTC day for this node (0 = unlimited)
+         */
+        private long dailyQuota = 0;
+
+        /**
+         * How long an outbox worker waits for a send token before putting
+         * the email back
+         */
+        private long maxWaitMs = 10_000;
+    }
+}
@@ -0,0 +1,45 @@
+package insurance_package.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "quotation.pipeline")
+public class QuotePipelineProperties {
+
+    /**
+     * Worker threads rendering quotation PDFs (0 = available cores - 1)
+     */
+    private int renderThreads = 0;
+
+    /**
+     * Renders waiting for a worker before new ones are rejected
+     */
+    private int renderQueueCapacity = 100;
+
+    /**
+     * Queue slots only interactive renders may take; bulk and re-send
+     * renders are rejected once the queue is this close to full
+     */
+    private int renderInteractiveReserve = 20;
+
+    /**
+     * Longest a PDF download waits for its on-demand render before it is
+     * answered 503 with Retry-After
+     */
+    private long renderWaitMs = 10_000;
+
+    /**
+     * What the email outbox does when the render queue is full
+     */
+    private Overload renderOverload = Overload.DEGRADE;
+
+    public enum Overload {
+        // Dead-letter the email, mark the quote FAILED
+        SHED,
+        // Email a summary now ("PDF to follow"), retry the PDF with backoff
+        DEGRADE
+    }
+}
@@ -0,0 +1,38 @@
+package insurance_package.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "quotation.write")
+public class QuoteWriteProperties {
+
+    /**
+     * Longest a quote waits for others to share its insert (0 = only those
+     * already waiting)
+     */
+    private long lingerMs = 2;
+
+    /**
+     * Quotes inserted per bulk write at most
+     */
+    private int batchSize = 200;
+
+    /**
+     * Quotes waiting to be written; when full, callers insert directly
+     */
+    private int queueCapacity = 10_000;
+
+    /**
+     * Writer threads, i.e. bulk writes in flight at once
+     */
+    private int writers = 2;
+
+    /**
+     * How long a caller waits for its insert before giving up (the quote
+     * is then journaled, see quotation.journal)
+     */
+    private long timeoutMs = 3_000;
+}
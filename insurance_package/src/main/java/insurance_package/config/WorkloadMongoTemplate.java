@@ -0,0 +1,60 @@
+package insurance_package.config;
+
+import com.mongodb.ReadConcern;
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
+import com.mongodb.client.MongoCollection;
+import org.bson.Document;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.Map;
+
+/**
+ * MongoTemplate giving every collection the read preference, read concern
+ * and write concern of its workload (mongo.workloads.*). Repositories go
+ * through this template as well, so e.g. QuoteRepository.save uses the
+ * quotes workload. Collections of no workload keep the client defaults.
+ */
+class WorkloadMongoTemplate extends MongoTemplate {
+
+    record Workload(String name, ReadPreference readPreference, ReadConcern readConcern, WriteConcern writeConcern) {
+
+        MongoCollection<Document> apply(MongoCollection<Document> collection) {
+            if (readPreference != null) {
+                collection = collection.withReadPreference(readPreference);
+            }
+            if (readConcern != null) {
+                collection = collection.withReadConcern(readConcern);
+            }
+            if (writeConcern != null) {
+                collection = collection.withWriteConcern(writeConcern);
+            }
+            return collection;
+        }
+    }
+
+    // Collection name -> workload
+    private final Map<String, Workload> workloads;
+
+    WorkloadMongoTemplate(MongoDatabaseFactory factory, Map<String, Workload> workloads) {
+        super(factory);
+        this.workloads = Map.copyOf(workloads);
+    }
+
+    @Override
+    protected MongoCollection<Document> prepareCollection(MongoCollection<Document> collection) {
+        return super.prepareCollection(apply(collection));
+    }
+
+    // Bulk and index operations get their collection here
+    @Override
+    public MongoCollection<Document> getCollection(String collectionName) {
+        return apply(super.getCollection(collectionName));
+    }
+
+    private MongoCollection<Document> apply(MongoCollection<Document> collection) {
+        Workload workload = workloads.get(collection.getNamespace().getCollectionName());
+        return workload == null ? collection : workload.apply(collection);
+    }
+}
@@ -0,0 +1,38 @@
+package insurance_package.controller;
+
+import insurance_package.service.BulkQuotationService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@Profile("mongo")
+@RestController
+@RequestMapping("/api/quote/bulk")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class BulkQuoteController {
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final BulkQuotationService bulkQuotationService;
+
+    // =========================================================
+    // BULK QUOTATION (JSON ARRAY OR NDJSON IN, NDJSON OUT)
+    // =========================================================
+    @PostMapping(consumes = {MediaType.APPLICATION_JSON_VALUE, NDJSON})
+    public ResponseEntity<StreamingResponseBody> bulk(
+            HttpServletRequest request,
+            @RequestParam(defaultValue = "false") boolean skipDelivery
+    ) {
+        StreamingResponseBody body = out ->
+                bulkQuotationService.priceAll(request.getInputStream(), out, skipDelivery);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(body);
+    }
+}
@@ -1,16 +1,18 @@
 package insurance_package.controller;
 
+import insurance_package.exception.ValidationException;
 import insurance_package.model.PremiumResult;
 import insurance_package.model.QuotationRequest;
+import insurance_package.service.PremiumPreviewService;
 import insurance_package.service.PricingService;
+import insurance_package.service.QuoteMetrics;
+import insurance_package.service.QuoteSlotBinder;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
 
 @Profile("mongo")
@@ -21,13 +23,16 @@ import java.util.Map;
 public class ChatQuoteController {
 
     private final PricingService pricingService;
+    private final PremiumPreviewService premiumPreviewService;
+    private final QuoteSlotBinder quoteSlotBinder;
+    private final QuoteMetrics quoteMetrics;
 
     // =========================================================
     // LIFE QUOTATION (FROM CHATBOT)
     // =========================================================
     @PostMapping("/life/from-chat")
     public ResponseEntity<Map<String, Object>> lifeFromChat(
-            @RequestBody Map<String, Object> payload
+            @RequestBody byte[] payload
     ) {
         return processChatQuote("Life", payload);
     }
@@ -37,23 +42,43 @@ public class ChatQuoteController {
     // =========================================================
     @PostMapping("/motor/from-chat")
     public ResponseEntity<Map<String, Object>> motorFromChat(
-            @RequestBody Map<String, Object> payload
+            @RequestBody byte[] payload
     ) {
         return processChatQuote("Motor", payload);
     }
 
+    // =========================================================
+    // INDICATIVE PRICE (NO SAVE / PDF / EMAIL)
+    // =========================================================
+    @PostMapping("/life/preview")
+    public ResponseEntity<Map<String, Object>> lifePreview(
+            @RequestBody byte[] payload
+    ) {
+        return processPreview("Life", payload);
+    }
+
+    @PostMapping("/motor/preview")
+    public ResponseEntity<Map<String, Object>> motorPreview(
+            @RequestBody byte[] payload
+    ) {
+        return processPreview("Motor", payload);
+    }
+
     // =========================================================
     // SHARED LOGIC
     // =========================================================
     private ResponseEntity<Map<String, Object>> processChatQuote(
             String line,
-            Map<String, Object> payload
+            byte[] payload
     ) {
         try {
-            Map<String, Object> slots = extractSlots(payload);
+            QuoteSlotBinder.Binding binding = quoteMetrics.time(QuoteMetrics.BIND, line,
+                    () -> quoteSlotBinder.bindJson(line, payload).requireValid());
+            Map<String, Object> slots = binding.details();
 
             String email = String.valueOf(slots.getOrDefault("email", "")).trim();
             if (email.isEmpty()) {
+                quoteMetrics.outcome(line, QuoteMetrics.INVALID);
                 return error("Email is required");
             }
 
@@ -64,24 +89,47 @@ public class ChatQuoteController {
             );
             req.setEmail(email);
             req.setSlots(slots);
+            req.setBoundSlots(binding.slots());
 
             // 🔥 ONE call does everything
             PremiumResult result = pricingService.calculatePremium(req);
+            quoteMetrics.outcome(line, QuoteMetrics.SUCCESS);
 
             return ResponseEntity.ok(
                     Map.of(
                             "ok", true,
                             "line", line,
+                            "quoteId", result.getQuoteId(),
                             "totalPremium", result.getTotalPremium(),
                             "riskScore", result.getRiskScore()
                     )
             );
 
+        } catch (ValidationException ex) {
+            quoteMetrics.outcome(line, QuoteMetrics.INVALID);
+            return badRequest(ex.getMessage());
         } catch (Exception ex) {
+            quoteMetrics.outcome(line, QuoteMetrics.FAILURE);
             return error(line + " quotation failed: " + ex.getMessage());
         }
     }
 
+    private ResponseEntity<Map<String, Object>> processPreview(
+            String line,
+            byte[] payload
+    ) {
+        try {
+            return ResponseEntity.ok(
+                    premiumPreviewService.preview(line, quoteMetrics.time(QuoteMetrics.BIND, line,
+                            () -> quoteSlotBinder.bindJson(line, payload)))
+            );
+        } catch (ValidationException ex) {
+            return badRequest(ex.getMessage());
+        } catch (Exception ex) {
+            return error(line + " preview failed: " + ex.getMessage());
+        }
+    }
+
     // =========================================================
     // HELPERS
     // =========================================================
@@ -90,18 +138,8 @@ public class ChatQuoteController {
                 .body(Map.of("ok", false, "error", message));
     }
 
-    @SuppressWarnings("unchecked")
-    private Map<String, Object> extractSlots(Map<String, Object> payload) {
-        Object slotsObj = payload.get("slots");
-        if (slotsObj instanceof Map<?, ?> map) {
-            Map<String, Object> out = new HashMap<>();
-            for (Map.Entry<?, ?> e : map.entrySet()) {
-                if (e.getKey() != null) {
-                    out.put(String.valueOf(e.getKey()), e.getValue());
-                }
-            }
-            return out;
-        }
-        return Collections.emptyMap();
+    private ResponseEntity<Map<String, Object>> badRequest(String message) {
+        return ResponseEntity.badRequest()
+                .body(Map.of("ok", false, "error", message));
     }
 }
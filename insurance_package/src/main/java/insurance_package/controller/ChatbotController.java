@@ -2,10 +2,19 @@ package insurance_package.controller;
 
 import insurance_package.service.AwsChatbotService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
+@Slf4j
 @RestController
 @RequestMapping("/chatbot")
 @RequiredArgsConstructor
@@ -14,15 +23,61 @@ public class ChatbotController {
 
     private final AwsChatbotService chatbotService;
 
+    // Async: the servlet thread is released while the engine answers
     @PostMapping
-    public Map<String, Object> chatbot(@RequestBody Map<String, Object> payload) {
+    public CompletableFuture<Map<String, Object>> chatbot(@RequestBody Map<String, Object> payload) {
         return chatbotService.askChatbot(payload);
     }
 
+    /**
+     * Same turn as POST /chatbot as server-sent events: "typing" at once,
+     * one "message" per bot message as soon as the engine has answered,
+     * then "done" with the rest of the engine reply.
+     */
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestBody Map<String, Object> payload) {
+        SseEmitter emitter = new SseEmitter();
+        try {
+            emitter.send(SseEmitter.event().name("typing").data(Map.of()));
+        } catch (IOException e) {
+            // Client already gone; the turn is still answered and recorded
+            log.debug("Chat stream closed before the reply: {}", e.getMessage());
+        }
+
+        chatbotService.askChatbot(payload).whenComplete((response, error) -> {
+            if (error != null) {
+                emitter.completeWithError(error);
+                return;
+            }
+            try {
+                Map<String, Object> rest = new LinkedHashMap<>(response != null ? response : Map.of());
+                if (rest.remove("messages") instanceof List<?> msgs) {
+                    for (Object m : msgs) {
+                        emitter.send(SseEmitter.event().name("message").data(Map.of("text", String.valueOf(m))));
+                    }
+                }
+                emitter.send(SseEmitter.event().name("done").data(rest));
+                emitter.complete();
+            } catch (IOException e) {
+                log.debug("Chat stream closed before the reply: {}", e.getMessage());
+                emitter.completeWithError(e);
+            }
+        });
+        return emitter;
+    }
+
+    @GetMapping("/{sessionId}/history")
+    public ResponseEntity<Map<String, Object>> history(@PathVariable String sessionId) {
+        return ResponseEntity.ok(Map.of(
+                "ok", true,
+                "sessionId", sessionId,
+                "messages", chatbotService.history(sessionId)
+        ));
+    }
+
     // TEMP: catch accidental GET
     @GetMapping
     public Map<String, Object> health() {
         return Map.of("status", "chatbot alive");
     }
 }
-
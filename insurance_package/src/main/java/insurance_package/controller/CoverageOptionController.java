@@ -2,13 +2,19 @@ package insurance_package.controller;
 
 import insurance_package.model.CoverageOption;
 import insurance_package.mongo.repository.CoverageOptionRepository;
+import insurance_package.service.CatalogCache;
+import insurance_package.service.DocumentListingService;
 import lombok.RequiredArgsConstructor;
 import org.bson.types.ObjectId;
 import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.Map;
 
 @Profile("mongo")   // ✅ ONLY load when Mongo is enabled
 @RestController
@@ -17,16 +23,54 @@ import java.util.List;
 @CrossOrigin(origins = "*")
 public class CoverageOptionController {
 
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final Sort BY_ID = Sort.by("id");
+
     private final CoverageOptionRepository coverageRepo;
+    private final CatalogCache catalogCache;
+    private final DocumentListingService documentListingService;
+
+    // =========================================================
+    // LISTING (KEYSET PAGES OR NDJSON, SEE DocumentListingService)
+    // =========================================================
+
+    /**
+     * Coverage options, oldest first, a page at a time: pass the returned
+     * next as after for the following page. fields: comma separated
+     * properties.
+     */
+    @GetMapping("/page")
+    public ResponseEntity<Map<String, Object>> listPage(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) String fields
+    ) {
+        return ResponseEntity.ok(documentListingService.listing(CoverageOption.class, BY_ID, fields)
+                .page(after, limit)
+                .body());
+    }
+
+    /**
+     * All coverage options, oldest first, one JSON object per line.
+     */
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> stream(@RequestParam(required = false) String fields) {
+        DocumentListingService.Listing listing = documentListingService.listing(CoverageOption.class, BY_ID, fields);
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .body(listing::stream);
+    }
 
     @GetMapping("/product/{productId}")
     public List<CoverageOption> byProduct(@PathVariable String productId) {
-        return coverageRepo.findByProductId(new ObjectId(productId));
+        return catalogCache.coverageOptions(new ObjectId(productId));
     }
 
     @PostMapping
     public CoverageOption add(@RequestBody CoverageOption option) {
-        return coverageRepo.save(option);
+        CoverageOption saved = coverageRepo.save(option);
+        catalogCache.refresh();
+        return saved;
     }
 
     @PutMapping("/{id}")
@@ -37,7 +81,9 @@ public class CoverageOptionController {
         return coverageRepo.findById(new ObjectId(id))
                 .map(existing -> {
                     option.setId(existing.getId());
-                    return ResponseEntity.ok(coverageRepo.save(option));
+                    CoverageOption saved = coverageRepo.save(option);
+                    catalogCache.refresh();
+                    return ResponseEntity.ok(saved);
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -46,6 +92,7 @@ public class CoverageOptionController {
     public ResponseEntity<Void> delete(@PathVariable String id) {
         if (coverageRepo.existsById(new ObjectId(id))) {
             coverageRepo.deleteById(new ObjectId(id));
+            catalogCache.refresh();
             return ResponseEntity.noContent().build();
         }
         return ResponseEntity.notFound().build();
@@ -2,14 +2,19 @@ package insurance_package.controller;
 
 import insurance_package.model.Product;
 import insurance_package.mongo.repository.ProductRepository;
+import insurance_package.service.CatalogCache;
+import insurance_package.service.DocumentListingService;
 import lombok.RequiredArgsConstructor;
 import org.bson.types.ObjectId;
 import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.Instant;
-import java.util.List;
+import java.util.Map;
 
 @Profile("mongo")   // ✅ REQUIRED
 @RestController
@@ -18,11 +23,57 @@ import java.util.List;
 @CrossOrigin(origins = "*")
 public class ProductController {
 
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final Sort BY_ID = Sort.by("id");
+
     private final ProductRepository productRepository;
+    private final CatalogCache catalogCache;
+    private final DocumentListingService documentListingService;
+
+    // =========================================================
+    // LISTING (KEYSET PAGES OR NDJSON, SEE DocumentListingService)
+    // =========================================================
 
+    /**
+     * All products, oldest first, as one JSON array written from a cursor.
+     * Prefer /page or /stream for large collections.
+     */
     @GetMapping
-    public List<Product> all() {
-        return productRepository.findAll();
+    public ResponseEntity<StreamingResponseBody> all() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> documentListingService.streamArray(Product.class, BY_ID, out));
+    }
+
+    /**
+     * Products, oldest first, a page at a time: pass the returned next as
+     * after for the following page. fields: comma separated properties.
+     */
+    @GetMapping("/page")
+    public ResponseEntity<Map<String, Object>> listPage(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) String fields
+    ) {
+        return ResponseEntity.ok(documentListingService.listing(Product.class, BY_ID, fields)
+                .page(after, limit)
+                .body());
+    }
+
+    /**
+     * All products, oldest first, one JSON object per line.
+     */
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> stream(@RequestParam(required = false) String fields) {
+        DocumentListingService.Listing listing = documentListingService.listing(Product.class, BY_ID, fields);
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .body(listing::stream);
+    }
+
+    @GetMapping("/catalog-cache")
+    public Map<String, Object> catalogCacheStats() {
+        return catalogCache.stats();
     }
 
     @GetMapping("/{id}")
@@ -35,7 +86,9 @@ public class ProductController {
     @PostMapping
     public Product add(@RequestBody Product p) {
         p.setCreatedAt(Instant.now());
-        return productRepository.save(p);
+        Product saved = productRepository.save(p);
+        catalogCache.refresh();
+        return saved;
     }
 
     @PatchMapping("/{id}/active/{active}")
@@ -46,7 +99,9 @@ public class ProductController {
         return productRepository.findById(new ObjectId(id))
                 .map(p -> {
                     p.setActive(active);
-                    return ResponseEntity.ok(productRepository.save(p));
+                    Product saved = productRepository.save(p);
+                    catalogCache.refresh();
+                    return ResponseEntity.ok(saved);
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -55,6 +110,7 @@ public class ProductController {
     public ResponseEntity<Void> delete(@PathVariable String id) {
         if (productRepository.existsById(new ObjectId(id))) {
             productRepository.deleteById(new ObjectId(id));
+            catalogCache.refresh();
             return ResponseEntity.noContent().build();
         }
         return ResponseEntity.notFound().build();
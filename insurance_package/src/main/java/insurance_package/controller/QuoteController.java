@@ -0,0 +1,298 @@
+package insurance_package.controller;
+
+import insurance_package.config.QuotePipelineProperties;
+import insurance_package.model.Quote;
+import insurance_package.mongo.repository.QuoteRepository;
+import insurance_package.service.DocumentListingService;
+import insurance_package.service.PdfQuotationService;
+import insurance_package.service.PdfRenderExecutor;
+import insurance_package.service.PdfStore;
+import insurance_package.service.QuoteDeliveryPipeline;
+import insurance_package.service.QuoteJournal;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@Slf4j
+@Profile("mongo")
+@RestController
+@RequestMapping("/api/quote")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class QuoteController {
+
+    private static final String RETRY_AFTER_SECONDS = "5";
+    private static final int MAX_LIMIT = 100;
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "createdAt", "id");
+
+    private final QuoteRepository quoteRepository;
+    private final PdfQuotationService pdfQuotationService;
+    private final PdfStore pdfStore;
+    private final QuoteJournal quoteJournal;
+    private final PdfRenderExecutor pdfRenderExecutor;
+    private final QuoteDeliveryPipeline quoteDeliveryPipeline;
+    private final DocumentListingService documentListingService;
+    private final QuotePipelineProperties pipelineProperties;
+
+    // =========================================================
+    // LOOKUPS (index-backed, see QuoteRepository)
+    // =========================================================
+    @GetMapping("/{quoteId}")
+    public ResponseEntity<Map<String, Object>> quote(@PathVariable String quoteId) {
+        return quoteRepository.findByQuoteId(quoteId)
+                .map(q -> ResponseEntity.ok(Map.<String, Object>of("ok", true, "quote", q)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("ok", false, "error", "Quote not found: " + quoteId)));
+    }
+
+    /**
+     * A customer's quotes, newest first.
+     */
+    @GetMapping("/by-customer")
+    public ResponseEntity<Map<String, Object>> byCustomer(
+            @RequestParam String email,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        List<Quote> quotes = quoteRepository.findByCustomerEmailOrderByCreatedAtDesc(email, page(limit));
+        return ResponseEntity.ok(Map.of("ok", true, "count", quotes.size(), "quotes", quotes));
+    }
+
+    /**
+     * Quotes of a line created in [from, to) (ISO-8601 instants), newest first.
+     */
+    @GetMapping("/by-line/{line}")
+    public ResponseEntity<Map<String, Object>> byLine(
+            @PathVariable String line,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        if (!from.isBefore(to)) {
+            return ResponseEntity.badRequest().body(Map.of("ok", false, "error", "from must be before to"));
+        }
+        List<Quote> quotes = quoteRepository.findByLineCreatedBetween(line, from, to, page(limit));
+        return ResponseEntity.ok(Map.of("ok", true, "count", quotes.size(), "quotes", quotes));
+    }
+
+    // =========================================================
+    // LISTING (KEYSET PAGES OR NDJSON, SEE DocumentListingService)
+    // =========================================================
+
+    /**
+     * All quotes, newest first, a page at a time: pass the returned next
+     * as after for the following page. fields: comma separated properties.
+     */
+    @GetMapping("/page")
+    public ResponseEntity<Map<String, Object>> listPage(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) String fields
+    ) {
+        return ResponseEntity.ok(documentListingService.listing(Quote.class, NEWEST_FIRST, fields)
+                .page(after, limit)
+                .body());
+    }
+
+    /**
+     * All quotes, newest first, one JSON object per line.
+     */
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> stream(@RequestParam(required = false) String fields) {
+        DocumentListingService.Listing listing = documentListingService.listing(Quote.class, NEWEST_FIRST, fields);
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .body(listing::stream);
+    }
+
+    // =========================================================
+    // DELIVERY STATUS (PDF / EMAIL PIPELINE)
+    // =========================================================
+    @GetMapping("/{quoteId}/status")
+    public ResponseEntity<Map<String, Object>> status(@PathVariable String quoteId) {
+        return quoteRepository.findByQuoteId(quoteId)
+                .map(q -> ResponseEntity.ok(statusBody(q)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("ok", false, "error", "Quote not found: " + quoteId)));
+    }
+
+    /**
+     * Emails the quotation PDF again through the email outbox, rendered
+     * (if not stored) in the RESEND lane, behind new quotes.
+     */
+    @PostMapping("/{quoteId}/resend")
+    public ResponseEntity<Map<String, Object>> resend(@PathVariable String quoteId) {
+        Optional<Quote> quote = quoteRepository.findByQuoteId(quoteId);
+        if (quote.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("ok", false, "error", "Quote not found: " + quoteId));
+        }
+        String email = quote.get().getCustomerEmail();
+        if (email == null || email.isBlank()) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("ok", false, "error", "Quote has no customer email"));
+        }
+
+        quoteDeliveryPipeline.resend(quote.get());
+        return ResponseEntity.accepted().body(Map.of("ok", true, "quoteId", quoteId));
+    }
+
+    // =========================================================
+    // PDF DOWNLOAD
+    // =========================================================
+
+    /**
+     * Streams the quotation PDF from the {@link PdfStore}, rendering it on
+     * demand (INTERACTIVE lane) if it is not stored yet; a busy renderer
+     * (full queue, or no PDF within quotation.pipeline.render-wait-ms) is
+     * answered 503 with Retry-After. The body is copied straight from the
+     * store with {@link PdfStore.StoredPdf#transferTo} (sendfile for pack
+     * files); a single byte range is answered with 206 Partial Content.
+     */
+    @GetMapping("/{quoteId}/pdf")
+    public void pdf(
+            @PathVariable String quoteId,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            HttpServletResponse response
+    ) throws IOException {
+        Optional<PdfStore.StoredPdf> stored = pdfStore.latest(quoteId);
+        if (stored.isEmpty()) {
+            Optional<Quote> quote = quoteRepository.findByQuoteId(quoteId);
+            if (quote.isEmpty()) {
+                response.sendError(HttpStatus.NOT_FOUND.value(), "Quote not found: " + quoteId);
+                return;
+            }
+            try {
+                stored = Optional.of(pdfRenderExecutor.submit(PdfRenderExecutor.Lane.INTERACTIVE,
+                                () -> pdfQuotationService.quotationPdf(quote.get()))
+                        .get(pipelineProperties.getRenderWaitMs(), TimeUnit.MILLISECONDS));
+            } catch (RejectedExecutionException | TimeoutException e) {
+                // Queue full, or too far back in it: the render (if queued) still stores the PDF
+                response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+                response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "PDF renderer busy, retry shortly");
+                return;
+            } catch (ExecutionException e) {
+                log.error("PDF render for quote {} failed: {}", quoteId, e.getCause().getMessage());
+                response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+                response.sendError(HttpStatus.INTERNAL_SERVER_ERROR.value(), "PDF could not be rendered");
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Shutting down");
+                return;
+            }
+        }
+
+        PdfStore.StoredPdf pdf = stored.get();
+        long length = pdf.length();
+        long start = 0;
+        long count = length;
+
+        response.setContentType(MediaType.APPLICATION_PDF_VALUE);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.inline()
+                .filename("Quotation_" + quoteId + ".pdf")
+                .build()
+                .toString());
+
+        if (range != null) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(range);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of();
+            }
+            // Multipart byteranges are not worth it for PDFs: serve the whole file
+            if (ranges.size() == 1) {
+                HttpRange r = ranges.get(0);
+                start = r.getRangeStart(length);
+                long end = r.getRangeEnd(length);
+                if (start >= length || end < start) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                    return;
+                }
+                count = end - start + 1;
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE,
+                        "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        response.setContentLengthLong(count);
+        pdf.transferTo(start, count, Channels.newChannel(response.getOutputStream()));
+        response.flushBuffer();
+    }
+
+    /**
+     * Size of the PDF store (documents, bytes, segments).
+     */
+    @GetMapping("/pdf-store")
+    public ResponseEntity<Map<String, Object>> pdfStore() {
+        PdfStore.Stats stats = pdfStore.stats();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("ok", true);
+        body.put("type", stats.type());
+        body.put("documents", stats.documents());
+        body.put("bytes", stats.bytes());
+        body.put("segments", stats.segments());
+        return ResponseEntity.ok(body);
+    }
+
+    /**
+     * Quotes journaled locally and not in Mongo yet.
+     */
+    @GetMapping("/journal")
+    public ResponseEntity<Map<String, Object>> journal() {
+        QuoteJournal.Stats stats = quoteJournal.stats();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("ok", true);
+        body.put("enabled", stats.enabled());
+        body.put("depth", stats.depth());
+        body.put("lagMs", stats.lagMs());
+        body.put("bytes", stats.bytes());
+        body.put("segments", stats.segments());
+        body.put("replayed", stats.replayed());
+        return ResponseEntity.ok(body);
+    }
+
+    private static PageRequest page(int limit) {
+        return PageRequest.of(0, Math.max(1, Math.min(limit, MAX_LIMIT)));
+    }
+
+    private Map<String, Object> statusBody(Quote quote) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("ok", true);
+        body.put("quoteId", quote.getQuoteId());
+        body.put("status", quote.getStatus());
+        body.put("detail", quote.getStatusDetail());
+        body.put("updatedAt", quote.getStatusUpdatedAt());
+        return body;
+    }
+}
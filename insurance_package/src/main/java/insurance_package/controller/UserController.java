@@ -2,11 +2,16 @@ package insurance_package.controller;
 
 import insurance_package.model.User;
 import insurance_package.mongo.repository.UserRepository;
+import insurance_package.service.DocumentListingService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.util.Map;
 
 @Profile("mongo")   // ✅ REQUIRED
 @RestController
@@ -15,11 +20,51 @@ import java.util.List;
 @CrossOrigin(origins = "*")
 public class UserController {
 
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final Sort BY_ID = Sort.by("id");
+
     private final UserRepository userRepository;
+    private final DocumentListingService documentListingService;
+
+    // =========================================================
+    // LISTING (KEYSET PAGES OR NDJSON, SEE DocumentListingService)
+    // =========================================================
 
+    /**
+     * All users, oldest first, as one JSON array written from a cursor.
+     * Prefer /page or /stream for large collections.
+     */
     @GetMapping
-    public List<User> all() {
-        return userRepository.findAll();
+    public ResponseEntity<StreamingResponseBody> all() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> documentListingService.streamArray(User.class, BY_ID, out));
+    }
+
+    /**
+     * Users, oldest first, a page at a time: pass the returned next as
+     * after for the following page. fields: comma separated properties.
+     */
+    @GetMapping("/page")
+    public ResponseEntity<Map<String, Object>> listPage(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) String fields
+    ) {
+        return ResponseEntity.ok(documentListingService.listing(User.class, BY_ID, fields)
+                .page(after, limit)
+                .body());
+    }
+
+    /**
+     * All users, oldest first, one JSON object per line.
+     */
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> stream(@RequestParam(required = false) String fields) {
+        DocumentListingService.Listing listing = documentListingService.listing(User.class, BY_ID, fields);
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .body(listing::stream);
     }
 
     @PostMapping
@@ -0,0 +1,11 @@
+package insurance_package.exception;
+
+/**
+ * The chatbot engine refused the turn itself (HTTP 4xx, e.g. a malformed
+ * payload): retrying will not help, unlike {@link ChatbotUnavailableException}.
+ */
+public class ChatbotRequestException extends RuntimeException {
+    public ChatbotRequestException(String msg, Throwable cause) {
+        super(msg, cause);
+    }
+}
@@ -0,0 +1,11 @@
+package insurance_package.exception;
+
+/**
+ * The chatbot engine could not answer (down, timed out, or the circuit
+ * breaker is open).
+ */
+public class ChatbotUnavailableException extends RuntimeException {
+    public ChatbotUnavailableException(String msg, Throwable cause) {
+        super(msg, cause);
+    }
+}
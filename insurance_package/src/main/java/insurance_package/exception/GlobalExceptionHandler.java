@@ -10,7 +10,8 @@ import java.util.Map;
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
-    @ExceptionHandler({insurance_package.exception.ValidationException.class, insurance_package.exception.PricingException.class})
+    @ExceptionHandler({insurance_package.exception.ValidationException.class, insurance_package.exception.PricingException.class,
+            insurance_package.exception.ChatbotRequestException.class})
     public ResponseEntity<Map<String, Object>> handleApp(RuntimeException ex) {
         Map<String, Object> body = new HashMap<>();
         body.put("error", ex.getMessage());
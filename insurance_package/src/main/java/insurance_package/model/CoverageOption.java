@@ -3,6 +3,7 @@ package insurance_package.model;
 import lombok.Data;
 import org.bson.types.ObjectId;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
@@ -13,6 +14,7 @@ public class CoverageOption {
     @Id
     private ObjectId id;
 
+    @Indexed
     @Field("product_id")
     private ObjectId productId;
 
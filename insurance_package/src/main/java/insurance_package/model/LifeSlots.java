@@ -0,0 +1,11 @@
+package insurance_package.model;
+
+import java.util.Set;
+
+public record LifeSlots(
+        int age,
+        boolean smoker,
+        double income,
+        Set<String> enabledCoverages
+) implements QuoteSlots {
+}
@@ -0,0 +1,13 @@
+package insurance_package.model;
+
+import java.util.Set;
+
+public record MotorSlots(
+        int year,
+        String usage,
+        String region,
+        double ncdPercent,
+        double sumInsured,
+        Set<String> enabledCoverages
+) implements QuoteSlots {
+}
@@ -3,6 +3,7 @@ package insurance_package.model;
 import lombok.Data;
 import org.bson.types.ObjectId;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.Instant;
@@ -10,6 +11,8 @@ import java.util.Map;
 
 @Data
 @Document("products")
+// Equality on both fields either way round; active first also serves findByActive
+@CompoundIndex(name = "active_line", def = "{'active': 1, 'line': 1}")
 public class Product {
     @Id
     private ObjectId id;
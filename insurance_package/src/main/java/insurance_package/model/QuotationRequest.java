@@ -1,5 +1,6 @@
 package insurance_package.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import java.util.Map;
 
@@ -9,4 +10,8 @@ public class QuotationRequest {
     private String customerName;
     private String email;
     private Map<String, Object> slots;
+
+    // Typed view of slots when the request was bound by QuoteSlotBinder
+    @JsonIgnore
+    private QuoteSlots boundSlots;
 }
@@ -3,6 +3,8 @@ package insurance_package.model;
 import lombok.Builder;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.Instant;
@@ -11,11 +13,18 @@ import java.util.Map;
 @Builder
 @Data
 @Document("quotes")
+// Index names are used as query hints in QuoteRepository
+@CompoundIndex(name = "customer_created", def = "{'customerEmail': 1, 'createdAt': -1}")
+@CompoundIndex(name = "line_created", def = "{'line': 1, 'createdAt': -1}")
+// Newest-first listing, see DocumentListingService
+@CompoundIndex(name = "created_id", def = "{'createdAt': -1, '_id': -1}")
 public class Quote {
 
     @Id
     private String id;
 
+    // Time-ordered, see QuoteIdGenerator
+    @Indexed(name = "quoteId", unique = true)
     private String quoteId;
     private String line;
     private String currency;
@@ -32,5 +41,10 @@ public class Quote {
     private Integer riskScore;
     private String explanation;
     private QuoteStatus status;
+
+    // Delivery progress (PDF render / email), updated by the quote pipeline
+    private String statusDetail;
+    private Instant statusUpdatedAt;
+
     private Instant createdAt;
 }
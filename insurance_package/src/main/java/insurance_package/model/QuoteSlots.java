@@ -0,0 +1,21 @@
+package insurance_package.model;
+
+import java.util.Set;
+
+/**
+ * Price-relevant slots of a quotation request, bound and validated once
+ * by {@code QuoteSlotBinder}. Customer details (name, email, vehicle make,
+ * ...) stay in the untyped request details that are persisted with the quote.
+ */
+public sealed interface QuoteSlots permits MotorSlots, LifeSlots {
+
+    /**
+     * Coverage / rider codes switched on with a {@code <CODE>_enabled: true} slot.
+     */
+    Set<String> enabledCoverages();
+
+    // Options without a code are never switched on (Set.of() rejects null lookups)
+    default boolean isEnabled(String coverageCode) {
+        return coverageCode != null && enabledCoverages().contains(coverageCode);
+    }
+}
@@ -3,7 +3,8 @@ package insurance_package.model;
 
 public enum QuoteStatus {
     CREATED,
+    PDF_READY,
     EMAILED,
+    FAILED,
     EXPIRED
 }
-
@@ -2,12 +2,18 @@ package insurance_package.mongo.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * A chatbot conversation. Only the latest chatbot.history.max-messages
+ * messages are kept here; older ones are moved to
+ * {@link ChatSessionBucket}s (see ChatHistoryService).
+ */
 @Data
 @Document(collection = "chat_sessions")
 public class ChatSession {
@@ -15,11 +21,16 @@ public class ChatSession {
     @Id
     private String id;
 
+    @Indexed(unique = true)
     private String sessionId;
 
     private List<Message> messages = new ArrayList<>();
 
+    // All messages ever written, including the ones moved to buckets
+    private long messageCount;
+
     private LocalDateTime createdAt = LocalDateTime.now();
+    private LocalDateTime updatedAt;
 
     @Data
     public static class Message {
@@ -0,0 +1,30 @@
+package insurance_package.mongo.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Older messages of a {@link ChatSession}, chatbot.history.bucket-size per
+ * document: bucket n holds messages n * bucket-size onwards.
+ */
+@Data
+@Document(collection = "chat_session_buckets")
+@CompoundIndex(name = "session_bucket", def = "{'sessionId': 1, 'bucket': 1}", unique = true)
+public class ChatSessionBucket {
+
+    @Id
+    private String id;
+
+    private String sessionId;
+    private long bucket;
+
+    private List<ChatSession.Message> messages = new ArrayList<>();
+
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,73 @@
+package insurance_package.mongo.model;
+
+import insurance_package.model.PremiumResult;
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A quote email waiting to be sent (or sent / given up on), see EmailOutbox.
+ *
+ * PENDING and SENDING records are both claimable once nextAttemptAt has
+ * passed: for SENDING it is the end of the worker's lease, so a record
+ * held by a node that died is picked up by another one.
+ */
+@Data
+@Document("email_outbox")
+@CompoundIndex(name = "claim_by_priority", def = "{'status': 1, 'priority': 1, 'nextAttemptAt': 1}")
+public class OutboxEmail {
+
+    @Id
+    private String id;
+
+    @Indexed
+    private String quoteId;
+    private String line;
+    private String toEmail;
+
+    // PdfRenderExecutor lane used if the PDF has to be rendered here;
+    // priority is its ordinal, due emails are claimed lowest first
+    private String lane;
+    private int priority;
+
+    // Null for a PDF-only (re-send) email
+    private PremiumResult result;
+    private boolean quoteEmailSent;
+
+    private Status status;
+    private int attempts;
+    private Instant nextAttemptAt;
+    private String lockedBy;
+    private String lastError;
+
+    // Last attempts, newest last
+    private List<Attempt> attemptLog = new ArrayList<>();
+
+    private Instant createdAt;
+
+    // Sent records expire, dead ones stay for inspection
+    @Indexed(expireAfter = "7d")
+    private Instant sentAt;
+
+    public enum Status {
+        PENDING,
+        SENDING,
+        SENT,
+        DEAD
+    }
+
+    @Data
+    public static class Attempt {
+        private Instant at;
+        private String node;
+        private String outcome;  // sent | retry | deferred | delayed | throttled | quota | dead
+        private String error;
+        private long durationMs;
+    }
+}
@@ -3,9 +3,16 @@ package insurance_package.mongo.repository;
 import insurance_package.model.CoverageOption;
 import org.bson.types.ObjectId;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReadPreference;
 
 import java.util.List;
 
 public interface CoverageOptionRepository extends MongoRepository<CoverageOption, ObjectId> {
     List<CoverageOption> findByProductId(ObjectId productId);
+
+    // findByProductId on the primary: sees a write made just before
+    @ReadPreference("primary")
+    @Query("{ 'productId': ?0 }")
+    List<CoverageOption> findByProductIdOnPrimary(ObjectId productId);
 }
@@ -3,11 +3,19 @@ package insurance_package.mongo.repository;
 import insurance_package.model.Product;
 import org.bson.types.ObjectId;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReadPreference;
 
 import java.util.List;
 import java.util.Optional;
 
 public interface ProductRepository extends MongoRepository<Product, ObjectId> {
+    List<Product> findByActive(boolean active);
     List<Product> findByLineAndActive(String line, boolean active);
     Optional<Product> findFirstByLineAndActive(String line, boolean active);
+
+    // findByActive on the primary: sees a write made just before
+    @ReadPreference("primary")
+    @Query("{ 'active': ?0 }")
+    List<Product> findByActiveOnPrimary(boolean active);
 }
@@ -1,8 +1,35 @@
 package insurance_package.mongo.repository;
 
 import insurance_package.model.Quote;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Hint;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Quote lookups are hinted to the indexes declared on {@link Quote}, so
+ * they never fall back to a collection scan (MongoIndexConfig creates the
+ * indexes at startup and checks the query plans).
+ */
 public interface QuoteRepository extends MongoRepository<Quote, String> {
-    // ✅ remove invalid method
+
+    @Hint("quoteId")
+    Optional<Quote> findByQuoteId(String quoteId);
+
+    /**
+     * Newest first.
+     */
+    @Hint("customer_created")
+    List<Quote> findByCustomerEmailOrderByCreatedAtDesc(String customerEmail, Pageable page);
+
+    /**
+     * Quotes of a line created in [from, to), newest first.
+     */
+    @Hint("line_created")
+    @Query(value = "{ 'line': ?0, 'createdAt': { $gte: ?1, $lt: ?2 } }", sort = "{ 'createdAt': -1 }")
+    List<Quote> findByLineCreatedBetween(String line, Instant from, Instant to, Pageable page);
 }
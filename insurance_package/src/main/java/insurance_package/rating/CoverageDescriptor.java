@@ -0,0 +1,42 @@
+package insurance_package.rating;
+
+import insurance_package.model.CoverageOption;
+
+/**
+ * Pre-resolved coverage option: the slot flag key and the fixed amount
+ * are computed once when the plan is compiled.
+ */
+public record CoverageDescriptor(
+        String code,
+        String label,
+        String flagKey,
+        boolean defaultOn,
+        double loadFactor,
+        boolean percentOfSumInsured,
+        double fixedAmount
+) {
+
+    static CoverageDescriptor of(CoverageOption option) {
+        return new CoverageDescriptor(
+                option.getCode(),
+                option.getLabel(),
+                option.getCode() + "_enabled",
+                option.isDefaultOn(),
+                option.getLoadFactor(),
+                option.getLoadFactor() < 1.0,
+                RateValues.round2(option.getLoadFactor())
+        );
+    }
+
+    static boolean isBasic(CoverageOption option) {
+        return "BASIC".equalsIgnoreCase(option.getCode())
+                || "BASIC_MOTOR".equalsIgnoreCase(option.getCode());
+    }
+
+    public double amountFor(double sumInsured) {
+        if (percentOfSumInsured && sumInsured > 0) {
+            return RateValues.round2(sumInsured * loadFactor);
+        }
+        return fixedAmount;
+    }
+}
@@ -0,0 +1,64 @@
+package insurance_package.rating;
+
+import java.util.Map;
+
+/**
+ * Small keyed factor table (usage / region factors).
+ * Keys are interned and stored next to a primitive array, so a lookup
+ * is a short scan with no boxing or hashing.
+ */
+public final class FactorTable {
+
+    static final FactorTable EMPTY = new FactorTable(new String[0], new double[0]);
+
+    private final String[] keys;
+    private final double[] factors;
+
+    private FactorTable(String[] keys, double[] factors) {
+        this.keys = keys;
+        this.factors = factors;
+    }
+
+    static FactorTable compile(Object source) {
+        if (!(source instanceof Map<?, ?> map) || map.isEmpty()) {
+            return EMPTY;
+        }
+
+        String[] keys = new String[map.size()];
+        double[] factors = new double[map.size()];
+        int n = 0;
+
+        for (Map.Entry<?, ?> e : map.entrySet()) {
+            if (e.getKey() == null || e.getValue() == null) {
+                continue;
+            }
+            keys[n] = String.valueOf(e.getKey()).intern();
+            factors[n] = RateValues.toDouble(e.getValue(), 0.0);
+            n++;
+        }
+
+        if (n < keys.length) {
+            String[] k = new String[n];
+            double[] f = new double[n];
+            System.arraycopy(keys, 0, k, 0, n);
+            System.arraycopy(factors, 0, f, 0, n);
+            return new FactorTable(k, f);
+        }
+        return new FactorTable(keys, factors);
+    }
+
+    public double factorOf(String key, double fallback) {
+        if (key == null) return fallback;
+        for (int i = 0; i < keys.length; i++) {
+            String k = keys[i];
+            if (k == key || k.equals(key)) {
+                return factors[i];
+            }
+        }
+        return fallback;
+    }
+
+    public int size() {
+        return keys.length;
+    }
+}
@@ -0,0 +1,112 @@
+package insurance_package.rating;
+
+import org.bson.types.ObjectId;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled life rates. Age bands are flattened into a direct
+ * age -> factor array; ages outside the array fall back to a scan of
+ * the (already parsed) bands.
+ */
+public final class LifeRatingPlan implements RatingPlan {
+
+    public static final String LINE = "Life";
+
+    static final int MAX_INDEXED_AGE = 120;
+
+    private final ObjectId productId;
+    private final double base;
+    private final double smokerLoad;
+
+    private final double[] factorByAge;
+    private final int[] bandMin;
+    private final int[] bandMax;
+    private final double[] bandFactor;
+
+    private LifeRatingPlan(ObjectId productId, double base, double smokerLoad,
+                           int[] bandMin, int[] bandMax, double[] bandFactor) {
+        this.productId = productId;
+        this.base = base;
+        this.smokerLoad = smokerLoad;
+        this.bandMin = bandMin;
+        this.bandMax = bandMax;
+        this.bandFactor = bandFactor;
+
+        this.factorByAge = new double[MAX_INDEXED_AGE + 1];
+        for (int age = 0; age <= MAX_INDEXED_AGE; age++) {
+            factorByAge[age] = scanBands(age);
+        }
+    }
+
+    public static LifeRatingPlan compile(ObjectId productId, Map<String, Object> rates) {
+        int[] min = new int[0];
+        int[] max = new int[0];
+        double[] factor = new double[0];
+
+        if (rates.get("life_age_bands") instanceof List<?> bands) {
+            int n = bands.size();
+            min = new int[n];
+            max = new int[n];
+            factor = new double[n];
+            int i = 0;
+            for (Object b : bands) {
+                if (!(b instanceof Map<?, ?> band)) {
+                    continue;
+                }
+                min[i] = RateValues.toInt(band.get("min"), 0);
+                max[i] = RateValues.toInt(band.get("max"), 0);
+                factor[i] = RateValues.toDouble(band.get("factor"), 0.0);
+                i++;
+            }
+            if (i < n) {
+                min = Arrays.copyOf(min, i);
+                max = Arrays.copyOf(max, i);
+                factor = Arrays.copyOf(factor, i);
+            }
+        }
+
+        return new LifeRatingPlan(
+                productId,
+                RateValues.toDouble(rates.getOrDefault("base", 35), 0.0),
+                RateValues.toDouble(rates.getOrDefault("smoker_load", 1.35), 0.0),
+                min, max, factor
+        );
+    }
+
+    public double ageFactor(int age) {
+        if (age >= 0 && age <= MAX_INDEXED_AGE) {
+            return factorByAge[age];
+        }
+        return scanBands(age);
+    }
+
+    private double scanBands(int age) {
+        for (int i = 0; i < bandMin.length; i++) {
+            if (age >= bandMin[i] && age <= bandMax[i]) {
+                return bandFactor[i];
+            }
+        }
+        return 1.0;
+    }
+
+    @Override
+    public ObjectId productId() {
+        return productId;
+    }
+
+    @Override
+    public String line() {
+        return LINE;
+    }
+
+    public double base() {
+        return base;
+    }
+
+    public double smokerLoad() {
+        return smokerLoad;
+    }
+}
@@ -0,0 +1,55 @@
+package insurance_package.rating;
+
+import insurance_package.model.CoverageOption;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled motor rates: base/per-year loads, usage and region factor
+ * tables and the non-basic coverage options of the product.
+ */
+public record MotorRatingPlan(
+        ObjectId productId,
+        String currency,
+        double base,
+        double perYear,
+        FactorTable usageFactors,
+        FactorTable regionFactors,
+        List<CoverageDescriptor> coverages
+) implements RatingPlan {
+
+    public static final String LINE = "Motor";
+
+    public static MotorRatingPlan compile(
+            ObjectId productId,
+            Map<String, Object> rates,
+            List<CoverageOption> coverageOptions
+    ) {
+        List<CoverageDescriptor> coverages = new ArrayList<>();
+        if (coverageOptions != null) {
+            for (CoverageOption option : coverageOptions) {
+                if (!CoverageDescriptor.isBasic(option)) {
+                    coverages.add(CoverageDescriptor.of(option));
+                }
+            }
+        }
+
+        return new MotorRatingPlan(
+                productId,
+                String.valueOf(rates.getOrDefault("currency", "MYR")),
+                RateValues.toDouble(rates.getOrDefault("base", 400), 0.0),
+                RateValues.toDouble(rates.getOrDefault("per_year", 20), 0.0),
+                FactorTable.compile(rates.get("usage_factors")),
+                FactorTable.compile(rates.get("region_factors")),
+                List.copyOf(coverages)
+        );
+    }
+
+    @Override
+    public String line() {
+        return LINE;
+    }
+}
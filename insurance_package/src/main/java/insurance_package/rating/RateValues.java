@@ -0,0 +1,29 @@
+package insurance_package.rating;
+
+/**
+ * Number coercion for raw rate documents (values may be stored as
+ * numbers or strings). Only used while compiling a plan.
+ */
+final class RateValues {
+
+    private RateValues() {
+    }
+
+    static double toDouble(Object o, double def) {
+        if (o == null) return def;
+        return (o instanceof Number n)
+                ? n.doubleValue()
+                : Double.parseDouble(o.toString());
+    }
+
+    static int toInt(Object o, int def) {
+        if (o == null) return def;
+        return (o instanceof Number n)
+                ? n.intValue()
+                : Integer.parseInt(o.toString());
+    }
+
+    static double round2(double v) {
+        return Math.round(v * 100.0) / 100.0;
+    }
+}
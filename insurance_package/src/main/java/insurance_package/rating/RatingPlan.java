@@ -0,0 +1,39 @@
+package insurance_package.rating;
+
+import insurance_package.exception.PricingException;
+import insurance_package.model.CoverageOption;
+import insurance_package.model.Product;
+import org.bson.types.ObjectId;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, pre-parsed view of a product's {@code baseRates}.
+ * Built once per product version so the rule engines never walk
+ * the raw rate map on the quote path.
+ */
+public interface RatingPlan {
+
+    ObjectId productId();
+
+    String line();
+
+    static RatingPlan compile(Product product, List<CoverageOption> coverageOptions) {
+        Map<String, Object> rates = product.getBaseRates();
+
+        if (rates == null) {
+            rates = new HashMap<>();
+            rates.put("base", 400.0);
+            rates.put("per_year", 20.0);
+            rates.put("currency", "MYR");
+        }
+
+        return switch (String.valueOf(product.getLine())) {
+            case MotorRatingPlan.LINE -> MotorRatingPlan.compile(product.getId(), rates, coverageOptions);
+            case LifeRatingPlan.LINE  -> LifeRatingPlan.compile(product.getId(), rates);
+            default -> throw new PricingException("Unsupported line: " + product.getLine());
+        };
+    }
+}
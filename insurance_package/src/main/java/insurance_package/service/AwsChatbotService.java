@@ -1,67 +1,79 @@
 package insurance_package.service;
 
+import insurance_package.exception.ChatbotUnavailableException;
 import insurance_package.mongo.model.ChatSession;
-import insurance_package.mongo.repository.ChatSessionRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 @RequiredArgsConstructor
 public class AwsChatbotService {
 
-    private final ChatSessionRepository chatSessionRepository;
+    static final String FALLBACK_REPLY =
+            "Sorry, our assistant is not available right now. Please try again in a moment.";
 
-    @Value("${chatbot.engine-url}")
-    private String chatbotEngineUrl;
+    private final ChatHistoryService chatHistoryService;
+    private final ChatbotEngineClient engineClient;
 
-    private final RestTemplate restTemplate = new RestTemplate();
-
-    public Map<String, Object> askChatbot(Map<String, Object> payload) {
+    /**
+     * Completes when the engine has answered (or the fallback reply is
+     * ready); no request thread waits meanwhile.
+     */
+    public CompletableFuture<Map<String, Object>> askChatbot(Map<String, Object> payload) {
 
         String sessionId = String.valueOf(payload.get("sessionId"));
         String message = String.valueOf(payload.get("message"));
 
-        // Save user message
-        saveMessage(sessionId, "user", message);
+        List<ChatSession.Message> turn = new ArrayList<>();
+        turn.add(message("user", message));
 
         // 🔥 Call Python Lambda server
-        Map<String, Object> response =
-                restTemplate.postForObject(
-                        chatbotEngineUrl,
-                        payload,
-                        Map.class
-                );
+        return engineClient.ask(payload)
+                .exceptionally(error -> {
+                    Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                    if (!(cause instanceof ChatbotUnavailableException)) {
+                        throw error instanceof CompletionException ce ? ce : new CompletionException(error);
+                    }
+                    return fallback(sessionId);
+                })
+                .whenComplete((response, error) -> {
+                    if (response != null && !Boolean.TRUE.equals(response.get("fallback"))
+                            && response.get("messages") instanceof List<?> msgs) {
+                        msgs.forEach(m -> turn.add(message("bot", String.valueOf(m))));
+                    }
+                    // User message and bot replies in one write (just the
+                    // user message if the engine could not answer), off the
+                    // reply path
+                    chatHistoryService.appendTurnAsync(sessionId, turn);
+                });
+    }
 
-        // Save bot messages
-        if (response != null && response.get("messages") instanceof List<?> msgs) {
-            msgs.forEach(m ->
-                    saveMessage(sessionId, "bot", String.valueOf(m))
-            );
-        }
+    /**
+     * Latest messages of the session (from memory while it is active).
+     */
+    public List<ChatSession.Message> history(String sessionId) {
+        return chatHistoryService.recentMessages(sessionId);
+    }
 
+    private Map<String, Object> fallback(String sessionId) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("sessionId", sessionId);
+        response.put("messages", List.of(FALLBACK_REPLY));
+        response.put("fallback", true);
         return response;
     }
 
-    private void saveMessage(String sessionId, String sender, String text) {
-
-        ChatSession session = chatSessionRepository
-                .findBySessionId(sessionId)
-                .orElseGet(() -> {
-                    ChatSession cs = new ChatSession();
-                    cs.setSessionId(sessionId);
-                    return cs;
-                });
-
+    private ChatSession.Message message(String sender, String text) {
         ChatSession.Message msg = new ChatSession.Message();
         msg.setSender(sender);
         msg.setText(text);
-
-        session.getMessages().add(msg);
-        chatSessionRepository.save(session);
+        return msg;
     }
 }
@@ -25,6 +25,7 @@ public class AwsSesEmailService implements EmailService {
 
     private final JavaMailSender mailSender;
     private final EmailTemplateService emailTemplateService;
+    private final QuoteMetrics quoteMetrics;
 
     @Value("${aws.ses.sender-email}")
     private String senderEmail;
@@ -40,7 +41,7 @@ public class AwsSesEmailService implements EmailService {
             helper.setSubject(subject);
             helper.setText(body, false); // Plain text
 
-            mailSender.send(message);
+            send(message, null);
             log.info("Email sent successfully to {}", toEmail);
 
         } catch (MessagingException e) {
@@ -54,12 +55,20 @@ public class AwsSesEmailService implements EmailService {
 
     @Override
     public void sendQuoteEmail(String toEmail, Quote quote, PremiumResult result) {
+        // Generate HTML content based on quote type
+        String htmlContent;
+        try {
+            htmlContent = emailTemplateService.generateQuoteEmail(quote, result);
+        } catch (Exception e) {
+            log.error("Failed to render quote email for {}: {}", quote.getQuoteId(), e.getMessage());
+            // Fallback to plain text
+            sendPlainTextQuoteEmail(toEmail, quote);
+            return;
+        }
+
+        // Send failures propagate: the email outbox retries them
         try {
-            // Generate HTML content based on quote type
-            String htmlContent = emailTemplateService.generateQuoteEmail(quote, result);
-            String subject = String.format("Your %s Insurance Quote - %s",
-                    quote.getLine(),
-                    quote.getQuoteId());
+            String subject = quoteSubject(quote);
 
             MimeMessage message = mailSender.createMimeMessage();
             MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
@@ -69,22 +78,60 @@ public class AwsSesEmailService implements EmailService {
             helper.setSubject(subject);
             helper.setText(htmlContent, true); // HTML content
 
-            mailSender.send(message);
+            send(message, quote.getLine());
             log.info("Quote email sent to {} for quote {}", toEmail, quote.getQuoteId());
 
+        } catch (MessagingException e) {
+            log.error("Failed to send quote email to {}: {}", toEmail, e.getMessage());
+            throw new RuntimeException("Failed to send quote email", e);
+        }
+    }
+
+    @Override
+    public void sendQuoteEmailWithPdf(String toEmail, Quote quote, PremiumResult result,
+                                      String fileName, byte[] pdf) {
+        String content;
+        boolean html = true;
+        try {
+            content = emailTemplateService.generateQuoteEmail(quote, result);
         } catch (Exception e) {
+            log.error("Failed to render quote email for {}: {}", quote.getQuoteId(), e.getMessage());
+            content = plainTextQuoteBody(quote);
+            html = false;
+        }
+
+        try {
+            MimeMessage message = mailSender.createMimeMessage();
+            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+
+            helper.setFrom(senderEmail);
+            helper.setTo(toEmail);
+            helper.setSubject(quoteSubject(quote));
+            helper.setText(content, html);
+            helper.addAttachment(fileName, new ByteArrayResource(pdf), "application/pdf");
+
+            send(message, quote.getLine());
+            log.info("Quote email with PDF ({} bytes) sent to {} for quote {}",
+                    pdf.length, toEmail, quote.getQuoteId());
+
+        } catch (MessagingException e) {
             log.error("Failed to send quote email to {}: {}", toEmail, e.getMessage());
-            // Fallback to plain text
-            sendPlainTextQuoteEmail(toEmail, quote);
+            throw new RuntimeException("Failed to send quote email", e);
         }
     }
 
     private void sendPlainTextQuoteEmail(String toEmail, Quote quote) {
-        String subject = String.format("Your %s Insurance Quote - %s",
+        sendEmail(toEmail, quoteSubject(quote), plainTextQuoteBody(quote));
+    }
+
+    private static String quoteSubject(Quote quote) {
+        return String.format("Your %s Insurance Quote - %s",
                 quote.getLine(),
                 quote.getQuoteId());
+    }
 
-        String body = String.format("""
+    private static String plainTextQuoteBody(Quote quote) {
+        return String.format("""
             Dear %s,
             
             Thank you for requesting a %s insurance quote.
@@ -112,8 +159,6 @@ public class AwsSesEmailService implements EmailService {
                 quote.getTotalPremium(),
                 quote.getRiskScore()
         );
-
-        sendEmail(toEmail, subject, body);
     }
 
     @Override
@@ -139,7 +184,7 @@ public class AwsSesEmailService implements EmailService {
                         fileBytes.length);
             }
 
-            mailSender.send(message);
+            send(message, null);
             log.info("Email with attachment sent to {}", toEmail);
 
         } catch (MessagingException | IOException e) {
@@ -149,4 +194,42 @@ public class AwsSesEmailService implements EmailService {
             sendEmail(toEmail, subject, body + "\n\n[Attachment could not be attached]");
         }
     }
+
+    @Override
+    public void sendQuoteEmailWithAttachment(String toEmail, String subject, String body,
+                                             String fileName, byte[] pdf) {
+        try {
+            MimeMessage message = mailSender.createMimeMessage();
+            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+
+            helper.setFrom(senderEmail);
+            helper.setTo(toEmail);
+            helper.setSubject(subject);
+            helper.setText(body, false);
+
+            // PDF rendered in memory, attached as-is
+            if (pdf != null && pdf.length > 0) {
+                helper.addAttachment(fileName, new ByteArrayResource(pdf), "application/pdf");
+                log.info("Attached PDF: {} ({} bytes)", fileName, pdf.length);
+            }
+
+            send(message, null);
+            log.info("Email with attachment sent to {}", toEmail);
+
+        } catch (MessagingException e) {
+            log.error("Failed to send email with attachment to {}: {}",
+                    toEmail, e.getMessage());
+            // Send without attachment
+            sendEmail(toEmail, subject, body + "\n\n[Attachment could not be attached]");
+        }
+    }
+
+    private void send(MimeMessage message, String line) {
+        long start = System.nanoTime();
+        try {
+            mailSender.send(message);
+        } finally {
+            quoteMetrics.record(QuoteMetrics.EMAIL_SEND, line, System.nanoTime() - start);
+        }
+    }
 }
\ No newline at end of file
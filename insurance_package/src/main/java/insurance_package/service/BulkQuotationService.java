@@ -0,0 +1,318 @@
+package insurance_package.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import insurance_package.config.BulkQuoteProperties;
+import insurance_package.model.PremiumResult;
+import insurance_package.model.QuotationRequest;
+import insurance_package.model.Quote;
+import insurance_package.rating.RatingPlan;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Prices large lists of quotation requests (broker uploads, fleet renewals).
+ *
+ * Input is read as a stream of {@link QuotationRequest}s (JSON array or NDJSON)
+ * and processed in chunks: each chunk is priced in parallel on a dedicated
+ * fork-join pool, inserted with one unordered bulk write, and written back
+ * as NDJSON before the next chunk is read.
+ */
+@Slf4j
+@Service
+@Profile("mongo")
+public class BulkQuotationService {
+
+    private static final byte[] NEWLINE = {'\n'};
+
+    private final PricingService pricingService;
+    private final CatalogCache catalogCache;
+    private final QuoteDeliveryPipeline quoteDeliveryPipeline;
+    private final QuoteJournal quoteJournal;
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final QuoteMetrics quoteMetrics;
+
+    private final int chunkSize;
+    private final ForkJoinPool pricingPool;
+
+    public BulkQuotationService(
+            PricingService pricingService,
+            CatalogCache catalogCache,
+            QuoteDeliveryPipeline quoteDeliveryPipeline,
+            QuoteJournal quoteJournal,
+            MongoTemplate mongoTemplate,
+            ObjectMapper objectMapper,
+            QuoteMetrics quoteMetrics,
+            BulkQuoteProperties properties
+    ) {
+        this.pricingService = pricingService;
+        this.catalogCache = catalogCache;
+        this.quoteDeliveryPipeline = quoteDeliveryPipeline;
+        this.quoteJournal = quoteJournal;
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.quoteMetrics = quoteMetrics;
+
+        this.chunkSize = Math.max(1, properties.getChunkSize());
+        int parallelism = properties.getParallelism() > 0
+                ? properties.getParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        this.pricingPool = new ForkJoinPool(parallelism);
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record BulkQuoteResult(
+            int index,
+            boolean ok,
+            String line,
+            String quoteId,
+            Double totalPremium,
+            Integer riskScore,
+            String error
+    ) {
+        static BulkQuoteResult failed(int index, String line, String error) {
+            return new BulkQuoteResult(index, false, line, null, null, null, error);
+        }
+    }
+
+    private record PlanLookup(RatingPlan plan, String error) {
+    }
+
+    private record Priced(QuotationRequest request, PremiumResult result, Quote quote, String error) {
+    }
+
+    /**
+     * Prices every request read from {@code in} and writes one NDJSON result
+     * line per request to {@code out}, in input order.
+     */
+    public void priceAll(InputStream in, OutputStream out, boolean skipDelivery) throws IOException {
+        // Product + coverage options resolved once per line for the whole batch
+        Map<String, PlanLookup> plans = new HashMap<>();
+
+        int offset = 0;
+        int failed = 0;
+        String malformed = null;
+        List<QuotationRequest> chunk = new ArrayList<>(chunkSize);
+
+        try (MappingIterator<QuotationRequest> requests =
+                     objectMapper.readerFor(QuotationRequest.class).readValues(in)) {
+
+            while (requests.hasNextValue()) {
+                chunk.add(requests.nextValue());
+                if (chunk.size() == chunkSize) {
+                    failed += processChunk(offset, chunk, plans, out, skipDelivery);
+                    offset += chunk.size();
+                    chunk.clear();
+                }
+            }
+
+        } catch (JsonProcessingException e) {
+            malformed = "Malformed input: " + e.getOriginalMessage();
+        }
+
+        if (!chunk.isEmpty()) {
+            failed += processChunk(offset, chunk, plans, out, skipDelivery);
+            offset += chunk.size();
+        }
+
+        if (malformed != null) {
+            // Everything before the bad record has been priced; stop here
+            writeLine(out, BulkQuoteResult.failed(offset, null, malformed));
+            out.flush();
+        }
+
+        log.info("Bulk quotation finished: {} requests, {} failed", offset, failed);
+    }
+
+    // =========================================================
+    // CHUNK PROCESSING
+    // =========================================================
+    private int processChunk(
+            int offset,
+            List<QuotationRequest> chunk,
+            Map<String, PlanLookup> plans,
+            OutputStream out,
+            boolean skipDelivery
+    ) throws IOException {
+
+        for (QuotationRequest req : chunk) {
+            if (req != null && req.getLine() != null) {
+                plans.computeIfAbsent(req.getLine(), this::resolvePlan);
+            }
+        }
+
+        // 1. Price in parallel
+        int n = chunk.size();
+        Priced[] priced = new Priced[n];
+        try {
+            pricingPool.submit(() ->
+                    IntStream.range(0, n).parallel()
+                            .forEach(i -> priced[i] = priceOne(chunk.get(i), plans))
+            ).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Bulk pricing interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Bulk pricing failed", e.getCause());
+        }
+
+        // 2. One unordered bulk insert for the whole chunk
+        String[] insertErrors = insertAll(priced);
+
+        // 3. Write results back in input order
+        int failed = 0;
+        List<QuoteDeliveryPipeline.Delivery> deliveries = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Priced p = priced[i];
+            String error = p.error() != null ? p.error() : insertErrors[i];
+            String line = p.request() != null ? p.request().getLine() : null;
+            // Rows carry any line the uploader typed: tag only the known ones
+            String lineTag = QuoteMetrics.line(line);
+
+            if (error != null) {
+                failed++;
+                quoteMetrics.outcome(lineTag, QuoteMetrics.FAILURE);
+                writeLine(out, BulkQuoteResult.failed(offset + i, line, error));
+                continue;
+            }
+
+            quoteMetrics.outcome(lineTag, QuoteMetrics.SUCCESS);
+            if (!skipDelivery) {
+                deliveries.add(new QuoteDeliveryPipeline.Delivery(p.quote(), p.result()));
+            }
+
+            writeLine(out, new BulkQuoteResult(
+                    offset + i,
+                    true,
+                    line,
+                    p.quote().getQuoteId(),
+                    p.result().getTotalPremium(),
+                    p.result().getRiskScore(),
+                    null
+            ));
+        }
+        out.flush();
+
+        // 4. One outbox insert for the chunk's emails, renders in the BULK lane
+        try {
+            quoteDeliveryPipeline.submitAll(deliveries, PdfRenderExecutor.Lane.BULK);
+        } catch (RuntimeException e) {
+            // The chunk is stored and answered: keep going, replay queues its delivery
+            deliverLater(deliveries, e);
+        }
+        return failed;
+    }
+
+    private void deliverLater(List<QuoteDeliveryPipeline.Delivery> deliveries, RuntimeException e) {
+        int journaled = 0;
+        for (QuoteDeliveryPipeline.Delivery d : deliveries) {
+            if (quoteJournal.deliverLater(d.quote(), d.result(), e)) {
+                journaled++;
+            }
+        }
+        if (journaled == deliveries.size()) {
+            log.warn("Delivery of {} bulk quotes journaled: {}", journaled, e.getMessage());
+        } else {
+            log.error("{} of {} bulk quotes saved but not queued for delivery",
+                    deliveries.size() - journaled, deliveries.size(), e);
+        }
+    }
+
+    private PlanLookup resolvePlan(String line) {
+        try {
+            return new PlanLookup(catalogCache.activeProduct(line).plan(), null);
+        } catch (Exception e) {
+            return new PlanLookup(null, e.getMessage());
+        }
+    }
+
+    private Priced priceOne(QuotationRequest req, Map<String, PlanLookup> plans) {
+        if (req == null) {
+            return new Priced(null, null, null, "Empty request");
+        }
+
+        try {
+            pricingService.validate(req);
+            if (req.getSlots() == null) {
+                req.setSlots(new HashMap<>());
+            }
+
+            PlanLookup lookup = plans.get(req.getLine());
+            if (lookup.plan() == null) {
+                return new Priced(req, null, null, lookup.error());
+            }
+
+            PremiumResult result = pricingService.price(req, lookup.plan());
+            Quote quote = pricingService.buildQuote(req, result);
+            result.setQuoteId(quote.getQuoteId());
+            return new Priced(req, result, quote, null);
+
+        } catch (Exception e) {
+            return new Priced(req, null, null, e.getMessage());
+        }
+    }
+
+    /**
+     * Inserts every successfully priced quote of the chunk in one unordered
+     * bulk write. Returns the per-position insert error (null when stored).
+     */
+    private String[] insertAll(Priced[] priced) {
+        String[] errors = new String[priced.length];
+
+        List<Quote> quotes = new ArrayList<>(priced.length);
+        List<Integer> positions = new ArrayList<>(priced.length);
+        for (int i = 0; i < priced.length; i++) {
+            if (priced[i].quote() != null) {
+                quotes.add(priced[i].quote());
+                positions.add(i);
+            }
+        }
+
+        if (quotes.isEmpty()) {
+            return errors;
+        }
+
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Quote.class)
+                    .insert(quotes)
+                    .execute();
+        } catch (BulkOperationException e) {
+            e.getErrors().forEach(err ->
+                    errors[positions.get(err.getIndex())] = "Insert failed: " + err.getMessage()
+            );
+        } catch (Exception e) {
+            log.error("Bulk insert of {} quotes failed: {}", quotes.size(), e.getMessage());
+            positions.forEach(i -> errors[i] = "Insert failed: " + e.getMessage());
+        }
+        return errors;
+    }
+
+    private void writeLine(OutputStream out, BulkQuoteResult result) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(result));
+        out.write(NEWLINE);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pricingPool.shutdown();
+    }
+}
@@ -0,0 +1,202 @@
+package insurance_package.service;
+
+import insurance_package.exception.PricingException;
+import insurance_package.model.CoverageOption;
+import insurance_package.model.Product;
+import insurance_package.mongo.repository.CoverageOptionRepository;
+import insurance_package.mongo.repository.ProductRepository;
+import insurance_package.rating.RatingPlan;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process cache of the active products, their coverage options and the
+ * compiled rating plans, keyed by line and by product id.
+ *
+ * The whole catalog is a handful of documents, so every write simply
+ * rebuilds an immutable snapshot and swaps it in. Catalog reads normally go
+ * to secondaries (mongo.workloads.catalog); the rebuild after a write reads
+ * the primary so it cannot cache what a lagging secondary still has.
+ */
+@Slf4j
+@Service
+@Profile("mongo")
+@RequiredArgsConstructor
+public class CatalogCache {
+
+    private final ProductRepository productRepository;
+    private final CoverageOptionRepository coverageOptionRepository;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+
+    public record Entry(Product product, List<CoverageOption> coverageOptions, RatingPlan plan) {
+    }
+
+    private record Snapshot(Map<String, Entry> byLine, Map<ObjectId, Entry> byProductId) {
+        static final Snapshot EMPTY = new Snapshot(Map.of(), Map.of());
+    }
+
+    /**
+     * Loads the catalog at startup. Without Mongo the node still starts
+     * (and keeps its quote journal for replay); the cache is filled by the
+     * first miss or freshness check once Mongo answers.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        try {
+            refresh();
+            log.info("Catalog cache warmed: {} active products", snapshot.byLine().size());
+        } catch (Exception e) {
+            log.warn("Catalog cache not warmed, Mongo unavailable: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Active product for a line, as {@code findFirstByLineAndActive} would return it.
+     */
+    public Entry activeProduct(String line) {
+        Entry entry = snapshot.byLine().get(line);
+        if (entry != null) {
+            hits.incrementAndGet();
+            return entry;
+        }
+
+        misses.incrementAndGet();
+        Product product = productRepository
+                .findFirstByLineAndActive(line, true)
+                .orElseThrow(() ->
+                        new PricingException("No active product for line: " + line)
+                );
+
+        // Not in the snapshot yet (inserted behind our back) - pick it up
+        refresh();
+        Entry loaded = snapshot.byProductId().get(product.getId());
+        return loaded != null ? loaded : load(product, true);
+    }
+
+    public List<CoverageOption> coverageOptions(ObjectId productId) {
+        Entry entry = snapshot.byProductId().get(productId);
+        if (entry != null) {
+            hits.incrementAndGet();
+            return entry.coverageOptions();
+        }
+
+        misses.incrementAndGet();
+        return coverageOptionRepository.findByProductId(productId);
+    }
+
+    /**
+     * Reloads the catalog from the primary. Called after every product /
+     * coverage option write, so the write is visible to the next quote.
+     */
+    public synchronized void refresh() {
+        Snapshot loaded = read(true);
+        if (changed(loaded)) {
+            snapshot = loaded;
+            refreshes.incrementAndGet();
+            log.info("Catalog cache refreshed: {} active products", loaded.byLine().size());
+        }
+    }
+
+    /**
+     * Picks up edits made directly in Mongo. Looks on a secondary and only
+     * reloads (from the primary) when something changed: applying a lagging
+     * secondary's view could undo a write just refreshed from the primary.
+     */
+    @Scheduled(
+            initialDelayString = "${catalog.cache.refresh-interval-ms:60000}",
+            fixedDelayString = "${catalog.cache.refresh-interval-ms:60000}"
+    )
+    public void freshnessCheck() {
+        try {
+            if (changed(read(false))) {
+                refresh();
+            }
+        } catch (Exception e) {
+            log.warn("Catalog freshness check failed, serving cached catalog: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("refreshes", refreshes.get());
+        stats.put("lines", snapshot.byLine().keySet());
+        return stats;
+    }
+
+    private Snapshot read(boolean primary) {
+        Map<String, Entry> byLine = new LinkedHashMap<>();
+        Map<ObjectId, Entry> byProductId = new HashMap<>();
+
+        List<Product> products = primary
+                ? productRepository.findByActiveOnPrimary(true)
+                : productRepository.findByActive(true);
+        for (Product product : products) {
+            if (product.getLine() == null) {
+                continue;
+            }
+
+            Entry entry;
+            try {
+                entry = load(product, primary);
+            } catch (PricingException e) {
+                log.warn("Skipping product {} in catalog: {}", product.getId(), e.getMessage());
+                continue;
+            }
+
+            byLine.putIfAbsent(product.getLine(), entry);
+            byProductId.put(product.getId(), entry);
+        }
+        return new Snapshot(Map.copyOf(byLine), Map.copyOf(byProductId));
+    }
+
+    // Compares the documents themselves (value equality), not a hash of them
+    private boolean changed(Snapshot loaded) {
+        Snapshot current = snapshot;
+        if (!loaded.byProductId().keySet().equals(current.byProductId().keySet())) {
+            return true;
+        }
+        for (Map.Entry<String, Entry> e : loaded.byLine().entrySet()) {
+            Entry was = current.byLine().get(e.getKey());
+            if (was == null || !was.product().getId().equals(e.getValue().product().getId())) {
+                return true;
+            }
+        }
+        if (loaded.byLine().size() != current.byLine().size()) {
+            return true;
+        }
+        for (Map.Entry<ObjectId, Entry> e : loaded.byProductId().entrySet()) {
+            Entry was = current.byProductId().get(e.getKey());
+            if (!was.product().equals(e.getValue().product())
+                    || !was.coverageOptions().equals(e.getValue().coverageOptions())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Entry load(Product product, boolean primary) {
+        List<CoverageOption> options = List.copyOf(primary
+                ? coverageOptionRepository.findByProductIdOnPrimary(product.getId())
+                : coverageOptionRepository.findByProductId(product.getId()));
+        return new Entry(product, options, RatingPlan.compile(product, options));
+    }
+}
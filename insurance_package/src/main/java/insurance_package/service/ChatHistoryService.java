@@ -0,0 +1,592 @@
+package insurance_package.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import insurance_package.config.ChatbotProperties;
+import insurance_package.mongo.model.ChatSession;
+import insurance_package.mongo.model.ChatSessionBucket;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.TypeInformation;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Chatbot transcripts.
+ *
+ * A session document keeps the newest max-messages messages
+ * ({@code $push} with {@code $each} and {@code $slice}); the messages the
+ * slice drops are appended to the session's {@link ChatSessionBucket}s, so
+ * write cost does not grow with the conversation.
+ *
+ * Chat requests only hand turns to {@link #appendTurnAsync}, which is
+ * in-memory: active sessions are cached (LRU, at most max-sessions) with
+ * their live messages and the turns not yet written. Every
+ * flush-interval-ms, or once flush-batch-messages are waiting, one flusher
+ * thread writes all of them with a single unordered bulk on the sessions
+ * and one on the buckets. Each session update only matches the
+ * messageCount the cache last saw, so what it drops is known exactly;
+ * sessions that another node wrote meanwhile, and new sessions, go through
+ * {@link #appendTurn} (one atomic findAndModify per turn) and are re-read
+ * on their next flush. Past max-pending-messages the caller flushes itself.
+ * Recent history is served from the cache, and whatever is still waiting
+ * is flushed on shutdown.
+ *
+ * The projection expressions in appendTurn need MongoDB 4.4+.
+ */
+@Slf4j
+@Service
+public class ChatHistoryService {
+
+    private static final String SESSIONS = "chat_sessions";
+    private static final String LIVE = "{ $size: { $ifNull: ['$messages', []] } }";
+
+    private final MongoTemplate mongoTemplate;
+    private final QuoteMetrics quoteMetrics;
+    private final int maxMessages;
+    private final int bucketSize;
+    private final int flushBatchMessages;
+    private final int maxPendingMessages;
+
+    // Guarded by this. Access order = LRU.
+    private final LinkedHashMap<String, ActiveSession> sessions;
+    // Evicted while still holding unwritten messages, until the next flush
+    private final Map<String, ActiveSession> evicted = new HashMap<>();
+    private final Set<ActiveSession> dirty = new LinkedHashSet<>();
+    private int pendingMessages;
+
+    // One flush at a time, so a session's turns are written in order
+    private final Object flushLock = new Object();
+    private final ScheduledExecutorService flusher;
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+
+    private static final class ActiveSession {
+        final String sessionId;
+        // live / messageCount mirror the document as of the last flush
+        boolean loaded;
+        long messageCount;
+        List<ChatSession.Message> live = new ArrayList<>();
+        // Being written by the running flush
+        List<ChatSession.Message> inFlight = List.of();
+        List<ChatSession.Message> pending = new ArrayList<>();
+
+        ActiveSession(String sessionId) {
+            this.sessionId = sessionId;
+        }
+    }
+
+    // One session's share of a flush
+    private record Write(ActiveSession session, long expectedCount, List<ChatSession.Message> messages) {
+    }
+
+    public ChatHistoryService(MongoTemplate mongoTemplate, ChatbotProperties properties, QuoteMetrics quoteMetrics) {
+        ChatbotProperties.History config = properties.getHistory();
+        this.mongoTemplate = mongoTemplate;
+        this.quoteMetrics = quoteMetrics;
+        this.maxMessages = Math.max(1, config.getMaxMessages());
+        this.bucketSize = Math.max(1, config.getBucketSize());
+        this.flushBatchMessages = Math.max(1, config.getFlushBatchMessages());
+        this.maxPendingMessages = Math.max(flushBatchMessages, config.getMaxPendingMessages());
+
+        int maxSessions = Math.max(1, config.getMaxSessions());
+        this.sessions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ActiveSession> eldest) {
+                if (size() <= maxSessions) {
+                    return false;
+                }
+                if (!eldest.getValue().pending.isEmpty()) {
+                    evicted.put(eldest.getKey(), eldest.getValue());
+                }
+                return true;
+            }
+        };
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("chat-history-"));
+        long interval = Math.max(10, config.getFlushIntervalMs());
+        flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+
+        quoteMetrics.chatHistory(this, ChatHistoryService::cachedSessions, ChatHistoryService::pendingMessages);
+    }
+
+    /**
+     * Records the turn in memory; it reaches Mongo with the next flush.
+     */
+    public void appendTurnAsync(String sessionId, List<ChatSession.Message> turn) {
+        if (turn.isEmpty()) {
+            return;
+        }
+        int pending;
+        synchronized (this) {
+            ActiveSession session = session(sessionId);
+            session.pending.addAll(turn);
+            dirty.add(session);
+            pendingMessages += turn.size();
+            pending = pendingMessages;
+        }
+
+        if (pending >= maxPendingMessages) {
+            // Flusher is behind: write on the caller rather than grow further
+            flush();
+        } else if (pending >= flushBatchMessages && flushQueued.compareAndSet(false, true)) {
+            flusher.execute(this::flushQuietly);
+        }
+    }
+
+    /**
+     * Appends one turn straight to Mongo in a single atomic write.
+     */
+    public void appendTurn(String sessionId, List<ChatSession.Message> turn) {
+        if (turn.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+
+        Update update = new Update()
+                .setOnInsert("createdAt", now)
+                .set("updatedAt", now)
+                .inc("messageCount", turn.size());
+        update.push("messages").slice(-maxMessages).each(toMongo(turn).toArray());
+
+        // The document as it was: its counts and the oldest messages the
+        // $slice is about to drop
+        String excess = "{ $subtract: [{ $add: [" + LIVE + ", " + turn.size() + "] }, " + maxMessages + "] }";
+        Query query = new BasicQuery(
+                new Document("sessionId", sessionId),
+                new Document("messageCount", 1)
+                        .append("live", Document.parse(LIVE))
+                        .append("overflow", Document.parse(
+                                "{ $cond: [{ $gt: [" + excess + ", 0] }, { $slice: ['$messages', " + excess + "] }, []] }")));
+
+        Document before = upsert(query, update);
+        if (before == null) {
+            // New session: only a turn longer than max-messages overflows
+            if (turn.size() > maxMessages) {
+                archive(sessionId, 0, toMongo(turn.subList(0, turn.size() - maxMessages)));
+            }
+            return;
+        }
+
+        long live = before.get("live", Number.class).longValue();
+        Number counted = before.get("messageCount", Number.class);
+        long messageCount = counted != null ? counted.longValue() : 0;
+        if (messageCount < live) {
+            // Written before messageCount existed
+            mongoTemplate.updateFirst(query(where("sessionId").is(sessionId)),
+                    new Update().inc("messageCount", live - messageCount), SESSIONS);
+            messageCount = live;
+        }
+
+        List<Document> overflow = before.getList("overflow", Document.class, List.of());
+        if (!overflow.isEmpty()) {
+            archive(sessionId, messageCount - live, overflow);
+        }
+    }
+
+    /**
+     * The newest max-messages messages, from memory when the session is
+     * cached.
+     */
+    public List<ChatSession.Message> recentMessages(String sessionId) {
+        List<ChatSession.Message> unwritten;
+        synchronized (this) {
+            ActiveSession session = cached(sessionId);
+            if (session != null && session.loaded) {
+                List<ChatSession.Message> messages = new ArrayList<>(session.live);
+                messages.addAll(session.inFlight);
+                messages.addAll(session.pending);
+                return tail(messages);
+            }
+            unwritten = session != null ? new ArrayList<>(session.pending) : List.of();
+        }
+
+        List<ChatSession.Message> messages = new ArrayList<>();
+        ChatSession stored = mongoTemplate.findOne(query(where("sessionId").is(sessionId)), ChatSession.class);
+        if (stored != null) {
+            messages.addAll(stored.getMessages());
+        }
+        messages.addAll(unwritten);
+        return tail(messages);
+    }
+
+    /**
+     * The whole conversation, oldest first.
+     */
+    public List<ChatSession.Message> transcript(String sessionId) {
+        List<ChatSession.Message> messages = new ArrayList<>();
+        // No flush in progress: every message is either in Mongo or pending
+        synchronized (flushLock) {
+            mongoTemplate.find(
+                    query(where("sessionId").is(sessionId)).with(Sort.by("bucket")),
+                    ChatSessionBucket.class
+            ).forEach(bucket -> messages.addAll(bucket.getMessages()));
+
+            ChatSession session = mongoTemplate.findOne(query(where("sessionId").is(sessionId)), ChatSession.class);
+            if (session != null) {
+                messages.addAll(session.getMessages());
+            }
+            synchronized (this) {
+                ActiveSession cached = cached(sessionId);
+                if (cached != null) {
+                    messages.addAll(cached.pending);
+                }
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * Writes everything waiting, in one bulk per collection.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            flushQueued.set(false);
+            List<Write> writes = drain();
+            if (writes.isEmpty()) {
+                return;
+            }
+
+            long start = System.nanoTime();
+            int messages = writes.stream().mapToInt(w -> w.messages().size()).sum();
+            int roundTrips = 0;
+            try {
+                roundTrips = write(writes);
+            } finally {
+                synchronized (this) {
+                    writes.forEach(w -> w.session().inFlight = List.of());
+                }
+                quoteMetrics.chatFlush(messages, roundTrips, System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Writes what is still waiting before Mongo goes away.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(30, TimeUnit.SECONDS);
+        flush();
+    }
+
+    // =========================================================
+    // FLUSH
+    // =========================================================
+    private synchronized List<Write> drain() {
+        List<Write> writes = new ArrayList<>(dirty.size());
+        for (ActiveSession session : dirty) {
+            writes.add(new Write(session, session.messageCount, session.pending));
+            session.inFlight = session.pending;
+            session.pending = new ArrayList<>();
+            evicted.remove(session.sessionId, session);
+        }
+        dirty.clear();
+        pendingMessages = 0;
+        return writes;
+    }
+
+    // Returns the number of Mongo round trips used
+    private int write(List<Write> writes) {
+        int roundTrips = load(writes);
+
+        List<Write> batched = new ArrayList<>();
+        for (Write write : writes) {
+            if (write.session().loaded) {
+                batched.add(new Write(write.session(), write.session().messageCount, write.messages()));
+            } else {
+                // Not in Mongo yet (or state unknown): the atomic path
+                roundTrips += appendDirect(write);
+            }
+        }
+        if (batched.isEmpty()) {
+            return roundTrips;
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ChatSession.class);
+        LocalDateTime now = LocalDateTime.now();
+        for (Write write : batched) {
+            Update update = new Update()
+                    .set("updatedAt", now)
+                    .inc("messageCount", write.messages().size());
+            update.push("messages").slice(-maxMessages).each(toMongo(write.messages()).toArray());
+            bulk.updateOne(query(where("sessionId").is(write.session().sessionId)
+                    .and("messageCount").is(write.expectedCount())), update);
+        }
+
+        RuntimeException failure = null;
+        long matched = 0;
+        try {
+            BulkWriteResult result = bulk.execute();
+            matched = result.getMatchedCount();
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+        roundTrips++;
+
+        List<Write> applied = batched;
+        if (failure != null || matched < batched.size()) {
+            applied = new ArrayList<>();
+            roundTrips += reconcile(batched, failure, applied);
+        }
+
+        List<Query> bucketQueries = new ArrayList<>();
+        List<Update> bucketUpdates = new ArrayList<>();
+        for (Write write : applied) {
+            ActiveSession session = write.session();
+            List<ChatSession.Message> all = new ArrayList<>(session.live);
+            all.addAll(write.messages());
+            int dropped = Math.max(0, all.size() - maxMessages);
+
+            long first = write.expectedCount() - session.live.size();
+            bucketWrites(session.sessionId, first, toMongo(all.subList(0, dropped)), bucketQueries, bucketUpdates);
+
+            synchronized (this) {
+                session.live = new ArrayList<>(all.subList(dropped, all.size()));
+                session.messageCount = write.expectedCount() + write.messages().size();
+            }
+        }
+        if (!bucketQueries.isEmpty()) {
+            writeBuckets(bucketQueries, bucketUpdates);
+            roundTrips++;
+        }
+        return roundTrips;
+    }
+
+    /**
+     * Reads the live messages of sessions not cached yet, in one query.
+     */
+    private int load(List<Write> writes) {
+        List<String> ids = writes.stream()
+                .filter(w -> !w.session().loaded)
+                .map(w -> w.session().sessionId)
+                .toList();
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        Query query = query(where("sessionId").in(ids));
+        query.fields().include("sessionId", "messages", "messageCount");
+        Map<String, ChatSession> found = new HashMap<>();
+        mongoTemplate.find(query, ChatSession.class).forEach(s -> found.put(s.getSessionId(), s));
+
+        synchronized (this) {
+            for (Write write : writes) {
+                ChatSession stored = found.get(write.session().sessionId);
+                if (!write.session().loaded && stored != null) {
+                    ActiveSession session = write.session();
+                    session.live = new ArrayList<>(stored.getMessages());
+                    // A legacy count below the live size never matches, so
+                    // such a session goes through appendTurn, which fixes it
+                    session.messageCount = Math.max(stored.getMessageCount(), session.live.size());
+                    session.loaded = true;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Some session updates did not match: find out per session whether it
+     * was written (messageCount moved by exactly this flush), is still to
+     * be written (unchanged), or was changed by someone else.
+     */
+    private int reconcile(List<Write> batched, RuntimeException failure, List<Write> applied) {
+        Map<String, Long> counts = new HashMap<>();
+        try {
+            Query query = query(where("sessionId").in(batched.stream().map(w -> w.session().sessionId).toList()));
+            query.fields().include("sessionId", "messageCount");
+            mongoTemplate.find(query, ChatSession.class)
+                    .forEach(s -> counts.put(s.getSessionId(), s.getMessageCount()));
+        } catch (RuntimeException e) {
+            log.error("Chat history flush failed, {} sessions kept for retry: {}",
+                    batched.size(), (failure != null ? failure : e).getMessage());
+            batched.forEach(this::requeue);
+            return 1;
+        }
+
+        int roundTrips = 1;
+        for (Write write : batched) {
+            Long count = counts.get(write.session().sessionId);
+            if (count != null && count == write.expectedCount() + write.messages().size()) {
+                applied.add(write);
+            } else if (count != null && count == write.expectedCount() && failure != null) {
+                requeue(write);
+            } else {
+                roundTrips += appendDirect(write);
+            }
+        }
+        if (failure != null) {
+            log.warn("Chat history bulk write failed, reconciled {} sessions: {}", batched.size(), failure.getMessage());
+        }
+        return roundTrips;
+    }
+
+    private int appendDirect(Write write) {
+        try {
+            appendTurn(write.session().sessionId, write.messages());
+            // Re-read on the next flush
+            synchronized (this) {
+                write.session().loaded = false;
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to save chat turn for session {}: {}", write.session().sessionId, e.getMessage());
+            requeue(write);
+        }
+        return 1;
+    }
+
+    // Puts unwritten messages back in front of anything newer
+    private synchronized void requeue(Write write) {
+        ActiveSession session = write.session();
+        List<ChatSession.Message> pending = new ArrayList<>(write.messages());
+        pending.addAll(session.pending);
+        session.pending = pending;
+        pendingMessages += write.messages().size();
+        dirty.add(session);
+        if (cached(session.sessionId) != session) {
+            evicted.put(session.sessionId, session);
+        }
+    }
+
+    private void writeBuckets(List<Query> queries, List<Update> updates) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ChatSessionBucket.class);
+        for (int i = 0; i < queries.size(); i++) {
+            bulk.upsert(queries.get(i), updates.get(i));
+        }
+        try {
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            // Racing upserts creating the same bucket: the bucket exists now
+            for (BulkWriteError error : e.getErrors()) {
+                int i = error.getIndex();
+                try {
+                    mongoTemplate.updateFirst(queries.get(i), updates.get(i), ChatSessionBucket.class);
+                } catch (RuntimeException retry) {
+                    log.error("Failed to archive chat messages ({}): {}", queries.get(i), retry.getMessage());
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to archive {} chat message batches: {}", queries.size(), e.getMessage());
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("Chat history flush failed: {}", e.getMessage(), e);
+        }
+    }
+
+    // =========================================================
+    // HELPERS
+    // =========================================================
+    private ActiveSession session(String sessionId) {
+        ActiveSession session = sessions.get(sessionId);
+        if (session == null) {
+            session = evicted.remove(sessionId);
+            if (session == null) {
+                session = new ActiveSession(sessionId);
+            }
+            sessions.put(sessionId, session);
+        }
+        return session;
+    }
+
+    private ActiveSession cached(String sessionId) {
+        ActiveSession session = sessions.get(sessionId);
+        return session != null ? session : evicted.get(sessionId);
+    }
+
+    /**
+     * Appends dropped messages to their buckets; first is the position of
+     * the first of them in the conversation.
+     */
+    private void archive(String sessionId, long first, List<Document> messages) {
+        List<Query> queries = new ArrayList<>();
+        List<Update> updates = new ArrayList<>();
+        bucketWrites(sessionId, first, messages, queries, updates);
+
+        for (int i = 0; i < queries.size(); i++) {
+            try {
+                mongoTemplate.upsert(queries.get(i), updates.get(i), ChatSessionBucket.class);
+            } catch (DuplicateKeyException e) {
+                // Another turn created the bucket first
+                mongoTemplate.updateFirst(queries.get(i), updates.get(i), ChatSessionBucket.class);
+            }
+        }
+    }
+
+    private void bucketWrites(String sessionId, long first, List<Document> messages,
+                              List<Query> queries, List<Update> updates) {
+        int from = 0;
+        while (from < messages.size()) {
+            long bucket = (first + from) / bucketSize;
+            int to = (int) Math.min(messages.size(), (bucket + 1) * bucketSize - first);
+
+            Update update = new Update().setOnInsert("createdAt", LocalDateTime.now());
+            update.push("messages").each(new ArrayList<>(messages.subList(from, to)).toArray());
+            queries.add(query(where("sessionId").is(sessionId).and("bucket").is(bucket)));
+            updates.add(update);
+            from = to;
+        }
+    }
+
+    private List<Document> toMongo(List<ChatSession.Message> messages) {
+        return messages.stream()
+                .map(message -> (Document) mongoTemplate.getConverter()
+                        .convertToMongoType(message, TypeInformation.of(ChatSession.Message.class)))
+                .toList();
+    }
+
+    private List<ChatSession.Message> tail(List<ChatSession.Message> messages) {
+        return messages.size() <= maxMessages
+                ? messages
+                : new ArrayList<>(messages.subList(messages.size() - maxMessages, messages.size()));
+    }
+
+    private Document upsert(Query query, Update update) {
+        FindAndModifyOptions options = FindAndModifyOptions.options().upsert(true).returnNew(false);
+        try {
+            return mongoTemplate.findAndModify(query, update, options, Document.class, SESSIONS);
+        } catch (DuplicateKeyException e) {
+            // Two first turns raced on the unique sessionId: the session exists now
+            return mongoTemplate.findAndModify(query, update, options, Document.class, SESSIONS);
+        }
+    }
+
+    private synchronized double cachedSessions() {
+        return sessions.size();
+    }
+
+    private synchronized double pendingMessages() {
+        return pendingMessages;
+    }
+}
@@ -0,0 +1,264 @@
+package insurance_package.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import insurance_package.config.ChatbotProperties;
+import insurance_package.exception.ChatbotRequestException;
+import insurance_package.exception.ChatbotUnavailableException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Calls the Python chatbot engine (chatbot.engine-url).
+ *
+ * One shared {@link HttpClient} keeps connections to the engine alive
+ * between turns and is only used through {@code sendAsync}: a turn waiting
+ * for the engine holds no servlet or platform thread, replies are completed
+ * on a small fixed pool. Every attempt is bounded by the connect and
+ * request timeouts.
+ *
+ * A chat turn is not idempotent once the engine has it, so only connect
+ * failures and HTTP 503 are retried. After failure-threshold consecutive
+ * failures the circuit opens and calls fail fast for open-ms; then a single
+ * trial call decides whether it closes again. Calls started before the
+ * circuit opened do not: a late success or failure is ignored while it is
+ * open. 4xx replies do not count as engine failures and fail with
+ * {@link ChatbotRequestException} instead of {@link ChatbotUnavailableException}.
+ */
+@Slf4j
+@Component
+public class ChatbotEngineClient {
+
+    private static final TypeReference<Map<String, Object>> REPLY = new TypeReference<>() {
+    };
+
+    private final ObjectMapper objectMapper;
+    private final QuoteMetrics quoteMetrics;
+    private final ExecutorService executor;
+    private final HttpClient httpClient;
+    private final URI engineUri;
+    private final Duration requestTimeout;
+    private final int maxRetries;
+    private final long retryBackoffMs;
+    private final int failureThreshold;
+    private final long openNanos;
+
+    // Circuit breaker, guarded by this
+    private int consecutiveFailures;
+    private long openUntil;     // System.nanoTime(), 0 = closed
+    private boolean trialInFlight;
+
+    private enum Admission {
+        REJECTED,
+        CALL,
+        // The one half-open call whose outcome closes or reopens the circuit
+        TRIAL
+    }
+
+    public ChatbotEngineClient(ChatbotProperties properties, ObjectMapper objectMapper, QuoteMetrics quoteMetrics) {
+        ChatbotProperties.Client client = properties.getClient();
+        this.objectMapper = objectMapper;
+        this.quoteMetrics = quoteMetrics;
+        this.engineUri = URI.create(Objects.requireNonNull(
+                properties.getEngineUrl(), "chatbot.engine-url is not set"));
+        this.requestTimeout = Duration.ofMillis(client.getRequestTimeoutMs());
+        this.maxRetries = Math.max(0, client.getMaxRetries());
+        this.retryBackoffMs = client.getRetryBackoffMs();
+        this.failureThreshold = Math.max(1, properties.getBreaker().getFailureThreshold());
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(properties.getBreaker().getOpenMs());
+
+        this.executor = Executors.newFixedThreadPool(
+                Math.max(1, client.getThreads()),
+                new CustomizableThreadFactory("chatbot-http-")
+        );
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(client.getConnectTimeoutMs()))
+                .executor(executor)
+                .build();
+
+        quoteMetrics.chatbotBreaker(this, c -> c.isOpen() ? 1 : 0);
+    }
+
+    /**
+     * Sends one turn to the engine. Fails with
+     * {@link ChatbotUnavailableException} when the engine cannot answer and
+     * with {@link ChatbotRequestException} when it refuses the turn.
+     */
+    public CompletableFuture<Map<String, Object>> ask(Map<String, Object> payload) {
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(payload);
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Invalid chatbot payload", e));
+        }
+
+        Admission admission = allowRequest();
+        if (admission == Admission.REJECTED) {
+            quoteMetrics.chatbotCall("rejected", 0);
+            return CompletableFuture.failedFuture(
+                    new ChatbotUnavailableException("Chatbot engine circuit is open", null));
+        }
+
+        HttpRequest request = HttpRequest.newBuilder(engineUri)
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+
+        long start = System.nanoTime();
+        return send(request, 0).handle((reply, error) -> {
+            Throwable cause = unwrap(error);
+            boolean rejected = cause instanceof EngineStatusException status && status.status < 500;
+            recordResult(admission, cause == null || rejected);
+            quoteMetrics.chatbotCall(cause == null ? "ok" : "error", System.nanoTime() - start);
+
+            if (rejected) {
+                log.warn("Chatbot engine rejected the turn: {}", cause.getMessage());
+                throw new ChatbotRequestException("Chatbot engine rejected the request: " + cause.getMessage(), cause);
+            }
+            if (cause != null) {
+                log.warn("Chatbot engine call failed: {}", cause.toString());
+                throw new ChatbotUnavailableException("Chatbot engine call failed: " + cause, cause);
+            }
+            return reply;
+        });
+    }
+
+    public synchronized boolean isOpen() {
+        return openUntil != 0;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // =========================================================
+    // HTTP
+    // =========================================================
+    private CompletableFuture<Map<String, Object>> send(HttpRequest request, int attempt) {
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .handle((response, error) -> {
+                    Throwable cause = unwrap(error);
+                    if (attempt < maxRetries && retryable(response, cause)) {
+                        log.debug("Retrying chatbot engine call (attempt {}): {}",
+                                attempt + 1, cause != null ? cause.toString() : "HTTP " + response.statusCode());
+                        return CompletableFuture
+                                .runAsync(() -> { }, CompletableFuture.delayedExecutor(
+                                        retryBackoffMs * (attempt + 1), TimeUnit.MILLISECONDS, executor))
+                                .thenCompose(ignored -> send(request, attempt + 1));
+                    }
+                    if (cause != null) {
+                        return CompletableFuture.<Map<String, Object>>failedFuture(cause);
+                    }
+                    if (response.statusCode() / 100 != 2) {
+                        return CompletableFuture.<Map<String, Object>>failedFuture(
+                                new EngineStatusException(response.statusCode()));
+                    }
+                    try {
+                        return CompletableFuture.completedFuture(parse(response.body()));
+                    } catch (IOException e) {
+                        return CompletableFuture.<Map<String, Object>>failedFuture(e);
+                    }
+                })
+                .thenCompose(Function.identity());
+    }
+
+    // The turn certainly did not reach the engine
+    private static boolean retryable(HttpResponse<?> response, Throwable cause) {
+        if (cause != null) {
+            return cause instanceof ConnectException || cause instanceof HttpConnectTimeoutException;
+        }
+        return response.statusCode() == 503;
+    }
+
+    private Map<String, Object> parse(byte[] body) throws IOException {
+        if (body.length == 0) {
+            return new LinkedHashMap<>();
+        }
+        return objectMapper.readValue(body, REPLY);
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    // =========================================================
+    // CIRCUIT BREAKER
+    // =========================================================
+    private synchronized Admission allowRequest() {
+        if (openUntil == 0) {
+            return Admission.CALL;
+        }
+        if (System.nanoTime() - openUntil < 0 || trialInFlight) {
+            return Admission.REJECTED;
+        }
+        // Half open: one trial call
+        trialInFlight = true;
+        return Admission.TRIAL;
+    }
+
+    private synchronized void recordResult(Admission admission, boolean success) {
+        if (admission == Admission.TRIAL) {
+            trialInFlight = false;
+            if (success) {
+                consecutiveFailures = 0;
+                openUntil = 0;
+                log.info("Chatbot engine circuit closed");
+            } else {
+                consecutiveFailures++;
+                openUntil = System.nanoTime() + openNanos;
+                log.warn("Chatbot engine trial call failed, circuit open for another {} ms",
+                        TimeUnit.NANOSECONDS.toMillis(openNanos));
+            }
+            return;
+        }
+
+        if (openUntil != 0) {
+            // Started before the circuit opened: only the trial decides
+            return;
+        }
+        if (success) {
+            consecutiveFailures = 0;
+            return;
+        }
+        consecutiveFailures++;
+        if (consecutiveFailures >= failureThreshold) {
+            openUntil = System.nanoTime() + openNanos;
+            log.warn("Chatbot engine circuit open for {} ms after {} consecutive failures",
+                    TimeUnit.NANOSECONDS.toMillis(openNanos), consecutiveFailures);
+        }
+    }
+
+    private static final class EngineStatusException extends IOException {
+        final int status;
+
+        EngineStatusException(int status) {
+            super("Chatbot engine returned HTTP " + status);
+            this.status = status;
+        }
+    }
+}
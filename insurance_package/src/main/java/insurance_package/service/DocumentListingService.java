@@ -0,0 +1,287 @@
+package insurance_package.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import insurance_package.exception.ValidationException;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonParseException;
+import org.bson.json.JsonWriterSettings;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Lists a whole collection without loading it: a page at a time with
+ * keyset pagination, or as NDJSON straight from a Mongo cursor.
+ *
+ * Pages continue after the sort key values of the previous page's last
+ * document (the opaque "next" cursor) instead of skipping, so every page
+ * is one index range scan however deep it is. The sort must end with the
+ * id to be unique.
+ *
+ * Documents are read raw and only the requested properties (plus the sort
+ * keys) are fetched; field names are the entity's property names and are
+ * checked against it. A request holds at most one page, or one cursor
+ * batch, of documents.
+ *
+ * {@link #streamArray} serves the plain JSON array of whole entities that
+ * the list endpoints have always returned, from a cursor as well.
+ */
+@Component
+@Profile("mongo")
+@RequiredArgsConstructor
+public class DocumentListingService {
+
+    public static final int MAX_LIMIT = 100;
+    private static final int STREAM_BATCH_SIZE = 500;
+
+    private static final JsonWriterSettings CURSOR_JSON =
+            JsonWriterSettings.builder().outputMode(JsonMode.EXTENDED).build();
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+
+    public record Page(List<Map<String, Object>> items, String next) {
+
+        public Map<String, Object> body() {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("ok", true);
+            body.put("count", items.size());
+            body.put("items", items);
+            body.put("next", next);
+            return body;
+        }
+    }
+
+    /**
+     * Resolves the requested fields (comma separated property names, all
+     * when blank) and the sort of a listing of {@code type}. Throws
+     * {@link ValidationException} for an unknown property.
+     */
+    public Listing listing(Class<?> type, Sort sort, String fields) {
+        MongoPersistentEntity<?> entity =
+                mongoTemplate.getConverter().getMappingContext().getRequiredPersistentEntity(type);
+
+        // Stored field name -> property name
+        Map<String, String> names = new LinkedHashMap<>();
+        for (MongoPersistentProperty property : entity) {
+            names.put(property.getFieldName(), property.getName());
+        }
+
+        Document projection = new Document();
+        if (fields == null || fields.isBlank()) {
+            // Every mapped property, which also leaves out _class
+            names.keySet().forEach(field -> projection.append(field, 1));
+        } else {
+            for (String name : fields.split(",")) {
+                projection.append(fieldName(entity, name.trim()), 1);
+            }
+        }
+
+        Document sortKeys = new Document();
+        for (Sort.Order order : sort) {
+            String field = fieldName(entity, order.getProperty());
+            sortKeys.append(field, order.isAscending() ? 1 : -1);
+            projection.append(field, 1);
+        }
+        if (!sortKeys.containsKey("_id")) {
+            throw new IllegalArgumentException("Listing sort must end with the id: " + sort);
+        }
+
+        return new Listing(mongoTemplate.getCollectionName(type), projection, sortKeys, names);
+    }
+
+    /**
+     * Writes every {@code type} entity, in sort order, as one JSON array:
+     * the body findAll() would give, without holding the collection.
+     */
+    public <T> void streamArray(Class<T> type, Sort sort, OutputStream out) throws IOException {
+        Query query = new Query().with(sort).cursorBatchSize(STREAM_BATCH_SIZE);
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        JsonGenerator json = objectMapper.createGenerator(out);
+
+        int written = 0;
+        json.writeStartArray();
+        try (Stream<T> entities = mongoTemplate.stream(query, type)) {
+            for (T entity : (Iterable<T>) entities::iterator) {
+                writer.writeValue(json, entity);
+                if (++written % STREAM_BATCH_SIZE == 0) {
+                    json.flush();
+                }
+            }
+        }
+        json.writeEndArray();
+        json.flush();
+    }
+
+    public final class Listing {
+
+        private final String collection;
+        private final Document projection;
+        private final Document sort;
+        private final Map<String, String> names;
+
+        private Listing(String collection, Document projection, Document sort, Map<String, String> names) {
+            this.collection = collection;
+            this.projection = projection;
+            this.sort = sort;
+            this.names = names;
+        }
+
+        /**
+         * Up to limit (at most MAX_LIMIT) documents after the cursor, or
+         * from the start without one. next is null on the last page.
+         */
+        public Page page(String cursor, int limit) {
+            int size = Math.max(1, Math.min(limit, MAX_LIMIT));
+            Document filter = cursor == null || cursor.isBlank() ? new Document() : after(decode(cursor));
+
+            // One extra to know whether there is a next page
+            BasicQuery query = new BasicQuery(filter, projection);
+            query.setSortObject(sort);
+            query.limit(size + 1);
+            List<Document> documents = mongoTemplate.find(query, Document.class, collection);
+
+            String next = null;
+            if (documents.size() > size) {
+                documents = documents.subList(0, size);
+                next = encode(documents.get(size - 1));
+            }
+            List<Map<String, Object>> items = new ArrayList<>(documents.size());
+            documents.forEach(document -> items.add(item(document)));
+            return new Page(items, next);
+        }
+
+        /**
+         * Writes every document, in listing order, as one JSON line each.
+         */
+        public void stream(OutputStream out) throws IOException {
+            BasicQuery query = new BasicQuery(new Document(), projection);
+            query.setSortObject(sort);
+            query.cursorBatchSize(STREAM_BATCH_SIZE);
+
+            int written = 0;
+            try (Stream<Document> documents = mongoTemplate.stream(query, Document.class, collection)) {
+                for (Document document : (Iterable<Document>) documents::iterator) {
+                    out.write(objectMapper.writeValueAsBytes(item(document)));
+                    out.write('\n');
+                    if (++written % STREAM_BATCH_SIZE == 0) {
+                        out.flush();
+                    }
+                }
+            }
+            out.flush();
+        }
+
+        // Keyset condition: strictly after the previous sort key values
+        private Document after(Document last) {
+            List<Document> branches = new ArrayList<>();
+            Document equal = new Document();
+            for (Map.Entry<String, Object> key : sort.entrySet()) {
+                String field = key.getKey();
+                if (!last.containsKey(field)) {
+                    throw new ValidationException("Invalid cursor");
+                }
+                Object value = last.get(field);
+                boolean ascending = ((Integer) key.getValue()) > 0;
+
+                // Missing / null values sort before everything else
+                if (value == null) {
+                    if (ascending) {
+                        branches.add(new Document(equal).append(field, new Document("$ne", null)));
+                    }
+                } else {
+                    branches.add(new Document(equal).append(field,
+                            new Document(ascending ? "$gt" : "$lt", value)));
+                    if (!ascending && !"_id".equals(field)) {
+                        branches.add(new Document(equal).append(field, null));
+                    }
+                }
+                equal.append(field, value);
+            }
+            if (branches.isEmpty()) {
+                // Nothing sorts after the last document
+                return new Document("_id", new Document("$in", List.of()));
+            }
+            return branches.size() == 1 ? branches.get(0) : new Document("$or", branches);
+        }
+
+        private String encode(Document last) {
+            Document keys = new Document();
+            sort.keySet().forEach(field -> keys.append(field, last.get(field)));
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(keys.toJson(CURSOR_JSON).getBytes(StandardCharsets.UTF_8));
+        }
+
+        private Document decode(String cursor) {
+            try {
+                return Document.parse(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException | JsonParseException e) {
+                throw new ValidationException("Invalid cursor");
+            }
+        }
+
+        // Property names, plain JSON values
+        private Map<String, Object> item(Document document) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            document.forEach((field, value) -> item.put(names.getOrDefault(field, field), plain(value)));
+            return item;
+        }
+    }
+
+    private static String fieldName(MongoPersistentEntity<?> entity, String property) {
+        MongoPersistentProperty persistent = entity.getPersistentProperty(property);
+        if (persistent == null) {
+            throw new ValidationException("Unknown field: " + property);
+        }
+        return persistent.getFieldName();
+    }
+
+    private static Object plain(Object value) {
+        if (value instanceof ObjectId id) {
+            return id.toHexString();
+        }
+        if (value instanceof Date date) {
+            return date.toInstant();
+        }
+        if (value instanceof Decimal128 decimal) {
+            return decimal.bigDecimalValue();
+        }
+        if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> plain = new LinkedHashMap<>();
+            map.forEach((k, v) -> {
+                if (!"_class".equals(k)) {
+                    plain.put(k, plain(v));
+                }
+            });
+            return plain;
+        }
+        if (value instanceof Collection<?> collection) {
+            return collection.stream().map(DocumentListingService::plain).toList();
+        }
+        return value;
+    }
+}
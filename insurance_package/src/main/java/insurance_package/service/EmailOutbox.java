@@ -0,0 +1,659 @@
+package insurance_package.service;
+
+import insurance_package.config.OutboxProperties;
+import insurance_package.config.PdfProperties;
+import insurance_package.config.QuoteMailProperties;
+import insurance_package.config.QuotePipelineProperties;
+import insurance_package.model.PremiumResult;
+import insurance_package.model.Quote;
+import insurance_package.model.QuoteStatus;
+import insurance_package.mongo.model.OutboxEmail;
+import insurance_package.mongo.repository.QuoteRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Durable quote email delivery on the {@code email_outbox} collection.
+ *
+ * Quote creation inserts an {@link OutboxEmail}; nothing on the request
+ * path talks to SMTP. Workers on every node claim due emails with one
+ * findAndModify (status SENDING, lease in nextAttemptAt, attempts + 1),
+ * send the quote email and the PDF email (one message with
+ * {@code quotation.mail.merge-pdf}), and record each attempt on the
+ * record. A failed attempt is retried with exponential backoff and
+ * dead-lettered (status DEAD, quote FAILED) after max-attempts. An email
+ * whose worker died is claimed again once its lease runs out. Every claim
+ * stores a fresh token in lockedBy, and a worker only records its attempt
+ * while the email still carries its token, so a worker whose lease ran out
+ * cannot overwrite the attempt that took over.
+ *
+ * The PDF comes from the {@link PdfStore} (or output-dir for FILE storage);
+ * if the pipeline has not produced it, the worker renders it in the
+ * email's lane. A full render queue is handled per
+ * {@code quotation.pipeline.render-overload}: DEGRADE sends a plain
+ * "PDF to follow" summary and retries the PDF later, SHED gives up.
+ *
+ * Due emails are claimed interactive first. Every message takes a token
+ * from the {@link EmailRateGovernor}; an email that gets none in time, hits
+ * the daily quota or is throttled by SES is put back without using up an
+ * attempt (throttling also slows the governor down).
+ */
+@Slf4j
+@Service
+@Profile("mongo")
+public class EmailOutbox {
+
+    private static final int ATTEMPT_LOG_SIZE = 20;
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+    private final EmailService emailService;
+    private final QuoteRepository quoteRepository;
+    private final PdfQuotationService pdfQuotationService;
+    private final PdfRenderExecutor renderExecutor;
+    private final PdfStore pdfStore;
+    private final QuoteStatusRecorder statusRecorder;
+    private final QuoteMetrics quoteMetrics;
+    private final OutboxProperties properties;
+    private final QuotePipelineProperties.Overload overload;
+    private final String outputDir;
+    private final boolean fileStorage;
+    private final boolean mergePdf;
+    private final EmailRateGovernor rateGovernor;
+    private final long maxRateWaitMs;
+
+    private final String node = ManagementFactory.getRuntimeMXBean().getName();
+    private final Semaphore wakeups = new Semaphore(0);
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    public EmailOutbox(
+            MongoTemplate mongoTemplate,
+            EmailService emailService,
+            QuoteRepository quoteRepository,
+            PdfQuotationService pdfQuotationService,
+            PdfRenderExecutor renderExecutor,
+            PdfStore pdfStore,
+            QuoteStatusRecorder statusRecorder,
+            QuoteMetrics quoteMetrics,
+            OutboxProperties properties,
+            QuotePipelineProperties pipelineProperties,
+            PdfProperties pdfProperties,
+            QuoteMailProperties mailProperties,
+            EmailRateGovernor rateGovernor
+    ) {
+        this.mongoTemplate = mongoTemplate;
+        this.emailService = emailService;
+        this.quoteRepository = quoteRepository;
+        this.pdfQuotationService = pdfQuotationService;
+        this.renderExecutor = renderExecutor;
+        this.pdfStore = pdfStore;
+        this.statusRecorder = statusRecorder;
+        this.quoteMetrics = quoteMetrics;
+        this.properties = properties;
+        this.overload = pipelineProperties.getRenderOverload();
+        this.outputDir = pdfProperties.getOutputDir();
+        this.fileStorage = pdfProperties.getStorage() == PdfProperties.Storage.FILE;
+        this.mergePdf = mailProperties.isMergePdf();
+        this.rateGovernor = rateGovernor;
+        this.maxRateWaitMs = mailProperties.getRate().getMaxWaitMs();
+    }
+
+    // =========================================================
+    // ENQUEUE
+    // =========================================================
+
+    /**
+     * Quote email + PDF email for a new quote. Waits up to render-grace
+     * for the pipeline's PDF unless {@link #wake} is called first.
+     *
+     * A quote has one such email, keyed by its quote id: enqueueing it
+     * again (journal replay, a retry after a write that timed out but
+     * landed) finds it already there and does nothing.
+     */
+    public void enqueue(Quote quote, PremiumResult result, PdfRenderExecutor.Lane lane) {
+        try {
+            mongoTemplate.insert(quoteEmail(quote, result, lane));
+        } catch (DuplicateKeyException e) {
+            log.debug("Email for quote {} already in the outbox", quote.getQuoteId());
+        }
+    }
+
+    public void enqueueAll(List<QuoteDeliveryPipeline.Delivery> deliveries, PdfRenderExecutor.Lane lane) {
+        List<OutboxEmail> emails = deliveries.stream()
+                .map(d -> quoteEmail(d.quote(), d.result(), lane))
+                .toList();
+        if (emails.isEmpty()) {
+            return;
+        }
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, OutboxEmail.class)
+                    .insert(emails)
+                    .execute();
+        } catch (BulkOperationException e) {
+            // Duplicates are emails already enqueued; anything else is a real failure
+            if (e.getErrors().isEmpty() || e.getErrors().stream().anyMatch(err -> err.getCode() != DUPLICATE_KEY)) {
+                throw e;
+            }
+            log.debug("{} of {} outbox emails already enqueued", e.getErrors().size(), emails.size());
+        }
+    }
+
+    /**
+     * PDF email only (re-send), due immediately.
+     */
+    public void enqueuePdf(Quote quote, PdfRenderExecutor.Lane lane) {
+        OutboxEmail email = newEmail(quote, null, lane);
+        email.setQuoteEmailSent(true);
+        email.setNextAttemptAt(Instant.now());
+        mongoTemplate.insert(email);
+        wakeups.release();
+    }
+
+    /**
+     * The quote's PDF is ready (or will not be): make its new email due now.
+     */
+    public void wake(String quoteId) {
+        try {
+            mongoTemplate.updateMulti(
+                    query(where("quoteId").is(quoteId)
+                            .and("status").is(OutboxEmail.Status.PENDING)
+                            .and("attempts").is(0)),
+                    Update.update("nextAttemptAt", Instant.now()),
+                    OutboxEmail.class
+            );
+        } catch (Exception e) {
+            // Still sent once render-grace has passed
+            log.warn("Could not wake outbox email for quote {}: {}", quoteId, e.getMessage());
+        }
+        wakeups.release();
+    }
+
+    private OutboxEmail quoteEmail(Quote quote, PremiumResult result, PdfRenderExecutor.Lane lane) {
+        OutboxEmail email = newEmail(quote, result, lane);
+        email.setId(quote.getQuoteId());
+        return email;
+    }
+
+    private OutboxEmail newEmail(Quote quote, PremiumResult result, PdfRenderExecutor.Lane lane) {
+        Instant now = Instant.now();
+        OutboxEmail email = new OutboxEmail();
+        email.setQuoteId(quote.getQuoteId());
+        email.setLine(quote.getLine());
+        email.setToEmail(quote.getCustomerEmail());
+        email.setLane(lane.name());
+        email.setPriority(lane.ordinal());
+        email.setResult(result);
+        email.setStatus(OutboxEmail.Status.PENDING);
+        email.setNextAttemptAt(now.plus(properties.getRenderGrace()));
+        email.setCreatedAt(now);
+        return email;
+    }
+
+    // =========================================================
+    // WORKERS
+    // =========================================================
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        running = true;
+        ThreadFactory threads = new CustomizableThreadFactory("email-outbox-");
+        for (int i = 0; i < properties.getWorkers(); i++) {
+            Thread worker = threads.newThread(this::work);
+            workers.add(worker);
+            worker.start();
+        }
+        log.info("Email outbox started: {} workers on {}", workers.size(), node);
+    }
+
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+        running = false;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (Thread worker : workers) {
+            // An email cut off here is re-claimed when its lease expires
+            worker.join(TimeUnit.SECONDS.toMillis(30));
+        }
+        workers.clear();
+    }
+
+    private void work() {
+        while (running) {
+            try {
+                OutboxEmail email = claim();
+                if (email != null) {
+                    process(email);
+                } else {
+                    wakeups.tryAcquire(properties.getPollIntervalMs(), TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // Mongo unavailable: back off one poll interval
+                log.warn("Email outbox worker error: {}", e.getMessage());
+                try {
+                    Thread.sleep(properties.getPollIntervalMs());
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    OutboxEmail claim() {
+        Instant now = Instant.now();
+        Query due = query(where("status").in(OutboxEmail.Status.PENDING, OutboxEmail.Status.SENDING)
+                .and("nextAttemptAt").lte(now))
+                .with(Sort.by("priority", "nextAttemptAt"));
+
+        return mongoTemplate.findAndModify(
+                due,
+                new Update()
+                        .set("status", OutboxEmail.Status.SENDING)
+                        .set("lockedBy", claimToken())
+                        .set("nextAttemptAt", now.plus(properties.getLease()))
+                        .inc("attempts", 1),
+                FindAndModifyOptions.options().returnNew(true),
+                OutboxEmail.class
+        );
+    }
+
+    // =========================================================
+    // DELIVERY
+    // =========================================================
+    private void process(OutboxEmail email) {
+        long start = System.nanoTime();
+
+        Optional<Quote> found;
+        try {
+            found = quoteRepository.findByQuoteId(email.getQuoteId());
+        } catch (Exception e) {
+            failed(email, null, start, e.getMessage());
+            return;
+        }
+        if (found.isEmpty()) {
+            dead(email, null, start, "Quote not found");
+            return;
+        }
+        Quote quote = found.get();
+
+        byte[] pdf;
+        try {
+            pdf = pdf(quote, PdfRenderExecutor.Lane.valueOf(email.getLane()));
+        } catch (RejectedExecutionException e) {
+            overloaded(email, quote, start);
+            return;
+        }
+
+        try {
+            if (!email.isQuoteEmailSent() && pdf != null && mergePdf) {
+                if (!permit(email, start)) {
+                    return;
+                }
+                emailService.sendQuoteEmailWithPdf(email.getToEmail(), quote, email.getResult(),
+                        PdfQuotationService.fileName(quote), pdf);
+                log.info("Quote email with PDF attachment sent to {}", email.getToEmail());
+            } else {
+                if (!email.isQuoteEmailSent()) {
+                    if (!permit(email, start)) {
+                        return;
+                    }
+                    emailService.sendQuoteEmail(email.getToEmail(), quote, email.getResult());
+                    if (!markQuoteEmailSent(email)) {
+                        log.warn("Lease on email for quote {} ran out, PDF email left to the new claim",
+                                quote.getQuoteId());
+                        return;
+                    }
+                }
+                if (pdf != null) {
+                    if (!permit(email, start)) {
+                        return;
+                    }
+                    emailService.sendQuoteEmailWithAttachment(
+                            email.getToEmail(),
+                            attachmentSubject(quote),
+                            attachmentBody(quote),
+                            PdfQuotationService.fileName(quote),
+                            pdf
+                    );
+                    log.info("Email with PDF attachment sent to {}", email.getToEmail());
+                }
+            }
+        } catch (Exception e) {
+            if (!limited(email, start, e)) {
+                log.error("Failed to send email for quote {} (attempt {}): {}",
+                        quote.getQuoteId(), email.getAttempts(), e.getMessage());
+                failed(email, quote, start, "Email failed: " + e.getMessage());
+            }
+            return;
+        }
+
+        sent(email, start);
+        statusRecorder.update(quote, QuoteStatus.EMAILED, pdf == null ? "Sent without PDF attachment" : null);
+        if (fileStorage) {
+            deleteQuietly(pdfFile(quote));
+        }
+    }
+
+    /**
+     * The quote's PDF: stored, left in output-dir by the pipeline, or
+     * rendered now. Null when rendering fails - the email goes out without.
+     *
+     * @throws RejectedExecutionException when the render queue is full
+     */
+    private byte[] pdf(Quote quote, PdfRenderExecutor.Lane lane) {
+        try {
+            Optional<PdfStore.StoredPdf> stored = pdfStore.latest(quote.getQuoteId());
+            if (stored.isPresent()) {
+                return stored.get().toBytes();
+            }
+            File file = pdfFile(quote);
+            if (fileStorage && file.exists()) {
+                return Files.readAllBytes(file.toPath());
+            }
+            return renderExecutor.submit(lane, () -> pdfQuotationService.quotationPdf(quote))
+                    .join()
+                    .toBytes();
+        } catch (RejectedExecutionException e) {
+            throw e;
+        } catch (Exception e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            log.error("Failed to generate PDF for quote {}: {}", quote.getQuoteId(), cause.getMessage());
+            return null;
+        }
+    }
+
+    private void overloaded(OutboxEmail email, Quote quote, long start) {
+        if (overload == QuotePipelineProperties.Overload.SHED) {
+            dead(email, quote, start, "Render queue full");
+            return;
+        }
+
+        if (!email.isQuoteEmailSent()) {
+            if (!permit(email, start)) {
+                return;
+            }
+            try {
+                emailService.sendEmail(email.getToEmail(), summarySubject(quote), summaryBody(quote));
+                markQuoteEmailSent(email);
+                statusRecorder.update(quote, QuoteStatus.EMAILED, "PDF to follow");
+                log.warn("Render queue full, quote {} emailed with PDF to follow", quote.getQuoteId());
+            } catch (Exception e) {
+                if (!limited(email, start, e)) {
+                    failed(email, quote, start, "Email failed: " + e.getMessage());
+                }
+                return;
+            }
+        }
+
+        if (email.getAttempts() >= properties.getMaxAttempts()) {
+            dead(email, quote, start, "Render queue full");
+        } else {
+            reschedule(email, start, "deferred", "Render queue full");
+        }
+    }
+
+    // =========================================================
+    // RATE LIMITS
+    // =========================================================
+
+    /**
+     * A send token for the next message. When none is granted the email
+     * is put back and false returned.
+     */
+    private boolean permit(OutboxEmail email, long start) {
+        boolean urgent = PdfRenderExecutor.Lane.INTERACTIVE.name().equals(email.getLane());
+        EmailRateGovernor.Permit permit;
+        try {
+            permit = rateGovernor.acquire(urgent, maxRateWaitMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            permit = EmailRateGovernor.Permit.TIMEOUT;
+        }
+
+        switch (permit) {
+            case GRANTED:
+                return true;
+            case QUOTA:
+                postpone(email, start, "quota", "Daily email quota reached",
+                        Duration.between(Instant.now(), rateGovernor.quotaResetAt()));
+                return false;
+            default:
+                postpone(email, start, "delayed", "Send rate limit", Duration.ofMillis(maxRateWaitMs));
+                return false;
+        }
+    }
+
+    /**
+     * Puts the email back if the send failed on a throttling / quota reply.
+     */
+    private boolean limited(OutboxEmail email, long start, Exception e) {
+        if (rateGovernor.isQuotaExceeded(e)) {
+            rateGovernor.quotaExhausted();
+            postpone(email, start, "quota", e.getMessage(),
+                    Duration.between(Instant.now(), rateGovernor.quotaResetAt()));
+            return true;
+        }
+        if (rateGovernor.isThrottling(e)) {
+            rateGovernor.throttled();
+            postpone(email, start, "throttled", e.getMessage(), Duration.ofMillis(maxRateWaitMs));
+            return true;
+        }
+        return false;
+    }
+
+    // False when the claim has been taken over
+    private boolean markQuoteEmailSent(OutboxEmail email) {
+        email.setQuoteEmailSent(true);
+        return mongoTemplate.updateFirst(owned(email), Update.update("quoteEmailSent", true), OutboxEmail.class)
+                .getMatchedCount() > 0;
+    }
+
+    private void sent(OutboxEmail email, long start) {
+        Update update = new Update()
+                .set("status", OutboxEmail.Status.SENT)
+                .set("sentAt", Instant.now())
+                .unset("lockedBy");
+        finish(email, update, start, "sent", null);
+    }
+
+    private void failed(OutboxEmail email, Quote quote, long start, String error) {
+        if (email.getAttempts() >= properties.getMaxAttempts()) {
+            dead(email, quote, start, error);
+        } else {
+            reschedule(email, start, "retry", error);
+        }
+    }
+
+    private void reschedule(OutboxEmail email, long start, String outcome, String error) {
+        Update update = new Update()
+                .set("status", OutboxEmail.Status.PENDING)
+                .set("nextAttemptAt", Instant.now().plus(backoff(email.getAttempts())))
+                .set("lastError", error)
+                .unset("lockedBy");
+        finish(email, update, start, outcome, error);
+    }
+
+    // Back to PENDING without using up an attempt
+    private void postpone(OutboxEmail email, long start, String outcome, String error, Duration delay) {
+        Update update = new Update()
+                .set("status", OutboxEmail.Status.PENDING)
+                .set("nextAttemptAt", Instant.now().plus(delay))
+                .set("lastError", error)
+                .inc("attempts", -1)
+                .unset("lockedBy");
+        finish(email, update, start, outcome, error);
+    }
+
+    private void dead(OutboxEmail email, Quote quote, long start, String error) {
+        log.error("Giving up on email for quote {} after {} attempts: {}",
+                email.getQuoteId(), email.getAttempts(), error);
+        Update update = new Update()
+                .set("status", OutboxEmail.Status.DEAD)
+                .set("lastError", error)
+                .unset("lockedBy");
+        finish(email, update, start, "dead", error);
+        if (quote != null) {
+            statusRecorder.update(quote, QuoteStatus.FAILED, error);
+        }
+    }
+
+    private void finish(OutboxEmail email, Update update, long start, String outcome, String error) {
+        OutboxEmail.Attempt attempt = new OutboxEmail.Attempt();
+        attempt.setAt(Instant.now());
+        attempt.setNode(node);
+        attempt.setOutcome(outcome);
+        attempt.setError(error);
+        attempt.setDurationMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        update.push("attemptLog").slice(-ATTEMPT_LOG_SIZE).each(attempt);
+
+        quoteMetrics.outbox(email.getLine(), outcome);
+        try {
+            if (mongoTemplate.updateFirst(owned(email), update, OutboxEmail.class).getMatchedCount() == 0) {
+                log.warn("Outbox email for quote {} was claimed again before its attempt was recorded",
+                        email.getQuoteId());
+            }
+        } catch (Exception e) {
+            // Lease runs out and the email is claimed again
+            log.warn("Could not record outbox attempt for quote {}: {}",
+                    email.getQuoteId(), e.getMessage());
+        }
+    }
+
+    // Only while this claim still holds the email
+    static Query owned(OutboxEmail email) {
+        return query(where("_id").is(email.getId()).and("lockedBy").is(email.getLockedBy()));
+    }
+
+    // Unique per claim: workers on one node must not pass for each other
+    private String claimToken() {
+        return node + ":" + new ObjectId().toHexString();
+    }
+
+    private Duration backoff(int attempts) {
+        long initial = properties.getInitialBackoff().toMillis();
+        long max = properties.getMaxBackoff().toMillis();
+        long delay = initial << Math.min(Math.max(attempts - 1, 0), 30);
+        delay = Math.min(delay <= 0 ? max : delay, max);
+        // +-20% so emails failed together do not retry together
+        double jitter = 0.8 + ThreadLocalRandom.current().nextDouble() * 0.4;
+        return Duration.ofMillis((long) (delay * jitter));
+    }
+
+    // =========================================================
+    // HELPERS
+    // =========================================================
+    private File pdfFile(Quote quote) {
+        return new File(outputDir, PdfQuotationService.fileName(quote));
+    }
+
+    private static String attachmentSubject(Quote quote) {
+        return String.format("Your %s Insurance Quotation - %s",
+                quote.getLine(),
+                quote.getQuoteId());
+    }
+
+    private static String attachmentBody(Quote quote) {
+        return String.format("""
+            Dear %s,
+
+            Please find your %s insurance quotation attached.
+
+            Quote Summary:
+            - Quote ID: %s
+            - Total Premium: %s %s
+            - Risk Score: %s
+
+            This quotation is valid for 14 days.
+
+            Best regards,
+            Trust Insurance Team
+            """,
+                quote.getCustomerName(),
+                quote.getLine(),
+                quote.getQuoteId(),
+                quote.getCurrency(),
+                quote.getTotalPremium(),
+                quote.getRiskScore()
+        );
+    }
+
+    private static String summarySubject(Quote quote) {
+        return String.format("Your %s Insurance Quote - %s",
+                quote.getLine(),
+                quote.getQuoteId());
+    }
+
+    private static String summaryBody(Quote quote) {
+        return String.format("""
+            Dear %s,
+
+            Thank you for your %s insurance quotation request.
+
+            Quote Summary:
+            - Quote ID: %s
+            - Total Premium: %s %s
+            - Risk Score: %s
+
+            Your PDF quotation will follow in a separate email shortly.
+
+            Best regards,
+            Trust Insurance Team
+            """,
+                quote.getCustomerName(),
+                quote.getLine(),
+                quote.getQuoteId(),
+                quote.getCurrency(),
+                quote.getTotalPremium(),
+                quote.getRiskScore()
+        );
+    }
+
+    private static void deleteQuietly(File pdfFile) {
+        if (pdfFile != null && pdfFile.exists()) {
+            try {
+                boolean deleted = pdfFile.delete();
+                if (deleted) {
+                    log.debug("Temporary PDF file deleted: {}", pdfFile.getName());
+                }
+            } catch (SecurityException e) {
+                log.warn("Could not delete PDF file: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package insurance_package.service;
+
+import insurance_package.config.QuoteMailProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.mail.MailSendException;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Locale;
+
+/**
+ * Keeps quote email below the SES sending limits.
+ *
+ * A token bucket (burst tokens, refilled at the current rate) hands out
+ * one token per message; urgent (interactive) senders are served before
+ * any waiting bulk / re-send sender. The rate starts at max-per-second,
+ * is halved (down to min-per-second) on every throttling reply from SES
+ * and grows back by a tenth of the maximum every recovery interval
+ * without one. A per-node daily quota (UTC day, 0 = none) stops sending
+ * until midnight once used up, as does SES reporting the quota exceeded.
+ *
+ * Waiting senders, delays and throttling replies are published through
+ * {@link QuoteMetrics}.
+ */
+@Slf4j
+@Component
+public class EmailRateGovernor {
+
+    public enum Permit {
+        GRANTED,
+        // Nothing free within max-wait
+        TIMEOUT,
+        // Daily quota used up until quotaResetAt()
+        QUOTA
+    }
+
+    private final QuoteMetrics quoteMetrics;
+    private final double maxRate;
+    private final double minRate;
+    private final double burst;
+    private final long recoveryMs;
+    private final long dailyQuota;
+
+    // Guarded by this
+    private double rate;
+    private double tokens;
+    private long refilledAt = System.nanoTime();
+    private long adjustedAt = System.nanoTime();
+    private int urgentWaiting;
+    private int otherWaiting;
+    private LocalDate day = today();
+    private long sentToday;
+    private boolean quotaExceeded;
+
+    public EmailRateGovernor(QuoteMailProperties properties, QuoteMetrics quoteMetrics) {
+        QuoteMailProperties.Rate config = properties.getRate();
+        this.quoteMetrics = quoteMetrics;
+        this.maxRate = config.getMaxPerSecond();
+        this.minRate = Math.min(config.getMinPerSecond(), maxRate);
+        this.burst = Math.max(1, config.getBurst());
+        this.recoveryMs = config.getRecoveryIntervalMs();
+        this.dailyQuota = config.getDailyQuota();
+        this.rate = maxRate;
+        this.tokens = burst;
+
+        quoteMetrics.emailRate(this, EmailRateGovernor::currentRate, EmailRateGovernor::waiting);
+    }
+
+    /**
+     * Takes one send token, waiting up to maxWaitMs for it.
+     */
+    public synchronized Permit acquire(boolean urgent, long maxWaitMs) throws InterruptedException {
+        long deadline = System.nanoTime() + maxWaitMs * 1_000_000;
+        boolean delayed = false;
+
+        if (urgent) {
+            urgentWaiting++;
+        } else {
+            otherWaiting++;
+        }
+        try {
+            while (true) {
+                if (quotaUsedUp()) {
+                    return Permit.QUOTA;
+                }
+                refill();
+                if (tokens >= 1 && (urgent || urgentWaiting == 0)) {
+                    tokens -= 1;
+                    sentToday++;
+                    if (delayed) {
+                        quoteMetrics.emailDelayed(urgent);
+                    }
+                    return Permit.GRANTED;
+                }
+
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    quoteMetrics.emailDelayed(urgent);
+                    return Permit.TIMEOUT;
+                }
+                delayed = true;
+                long untilToken = tokens >= 1 ? 1_000_000 : (long) ((1 - tokens) / rate * 1e9);
+                long waitNanos = Math.max(Math.min(untilToken, remaining), 100_000);
+                wait(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+            }
+        } finally {
+            if (urgent) {
+                urgentWaiting--;
+            } else {
+                otherWaiting--;
+            }
+            notifyAll();
+        }
+    }
+
+    /**
+     * SES said slow down: halve the rate and drain the bucket.
+     */
+    public synchronized void throttled() {
+        double before = rate;
+        rate = Math.max(minRate, rate / 2);
+        tokens = 0;
+        adjustedAt = System.nanoTime();
+        quoteMetrics.emailThrottled();
+        log.warn("Email throttled, send rate {} -> {}/s", format(before), format(rate));
+    }
+
+    /**
+     * SES reported the daily quota exceeded: stop until the UTC day ends.
+     */
+    public synchronized void quotaExhausted() {
+        rollDay();
+        quotaExceeded = true;
+        quoteMetrics.emailThrottled();
+        log.warn("Daily email quota exhausted, sending resumes at {}", quotaResetAt());
+    }
+
+    public Instant quotaResetAt() {
+        return today().plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    /**
+     * A throttling reply ("454 Throttling failure", "Maximum sending rate
+     * exceeded") anywhere in the cause chain.
+     */
+    public boolean isThrottling(Throwable e) {
+        return causeMentions(e, "throttling") || causeMentions(e, "sending rate exceeded");
+    }
+
+    public boolean isQuotaExceeded(Throwable e) {
+        return causeMentions(e, "daily message quota exceeded");
+    }
+
+    // =========================================================
+    // HELPERS
+    // =========================================================
+    private void refill() {
+        long now = System.nanoTime();
+
+        // Additive increase after a quiet recovery interval
+        long sinceAdjust = (now - adjustedAt) / 1_000_000;
+        if (rate < maxRate && sinceAdjust >= recoveryMs) {
+            rate = Math.min(maxRate, rate + maxRate / 10 * (sinceAdjust / recoveryMs));
+            adjustedAt = now;
+        }
+
+        tokens = Math.min(burst, tokens + (now - refilledAt) / 1e9 * rate);
+        refilledAt = now;
+    }
+
+    private boolean quotaUsedUp() {
+        rollDay();
+        return quotaExceeded || (dailyQuota > 0 && sentToday >= dailyQuota);
+    }
+
+    private void rollDay() {
+        LocalDate now = today();
+        if (!now.equals(day)) {
+            day = now;
+            sentToday = 0;
+            quotaExceeded = false;
+        }
+    }
+
+    private synchronized double currentRate() {
+        return rate;
+    }
+
+    private synchronized double waiting() {
+        return urgentWaiting + otherWaiting;
+    }
+
+    private static boolean causeMentions(Throwable e, String text) {
+        for (Throwable t = e; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            String message = t.getMessage();
+            if (message != null && message.toLowerCase(Locale.ROOT).contains(text)) {
+                return true;
+            }
+            if (t instanceof MailSendException send) {
+                for (Exception failed : send.getMessageExceptions()) {
+                    if (causeMentions(failed, text)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static LocalDate today() {
+        return LocalDate.now(ZoneOffset.UTC);
+    }
+
+    private static String format(double rate) {
+        return String.format(Locale.ROOT, "%.1f", rate);
+    }
+}
@@ -10,4 +10,7 @@ public interface EmailService {
     void sendEmail(String toEmail, String subject, String body);
     void sendQuoteEmail(String toEmail, Quote quote, PremiumResult result);
     void sendQuoteEmailWithAttachment(String toEmail, String subject, String body, File attachment);
+    void sendQuoteEmailWithAttachment(String toEmail, String subject, String body, String fileName, byte[] pdf);
+    // Quote email with the PDF attached: one message instead of two
+    void sendQuoteEmailWithPdf(String toEmail, Quote quote, PremiumResult result, String fileName, byte[] pdf);
 }
\ No newline at end of file
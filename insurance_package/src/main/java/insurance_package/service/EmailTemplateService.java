@@ -21,6 +21,7 @@ import java.util.Map;
 public class EmailTemplateService {
 
     private final TemplateEngine templateEngine;
+    private final QuoteMetrics quoteMetrics;
 
     // For Life Insurance Email
     public String renderLifeQuotationEmail(
@@ -52,7 +53,8 @@ public class EmailTemplateService {
                 LocalDate.now().format(DateTimeFormatter.ofPattern("dd MMMM yyyy")));
 
         try {
-            return templateEngine.process("life-quotation-email.html", ctx);
+            return quoteMetrics.time(QuoteMetrics.EMAIL_TEMPLATE, "Life",
+                    () -> templateEngine.process("life-quotation-email.html", ctx));
         } catch (Exception e) {
             log.error("Failed to render life email template: {}", e.getMessage());
             return generatePlainTextLifeEmail(profile, quote);
@@ -84,7 +86,8 @@ public class EmailTemplateService {
                 LocalDate.now().format(DateTimeFormatter.ofPattern("dd MMMM yyyy")));
 
         try {
-            return templateEngine.process("motor-quotation-email.html", ctx);
+            return quoteMetrics.time(QuoteMetrics.EMAIL_TEMPLATE, "Motor",
+                    () -> templateEngine.process("motor-quotation-email.html", ctx));
         } catch (Exception e) {
             log.error("Failed to render motor email template: {}", e.getMessage());
             return generatePlainTextMotorEmail(slots, quote);
@@ -0,0 +1,84 @@
+package insurance_package.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Heap-only {@link PdfStore}: the most recent render per quote, bounded by
+ * total size (least recently used first out). Nothing survives a restart.
+ */
+public class InMemoryPdfStore implements PdfStore {
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+
+    private record Entry(String quoteId, String contentHash, byte[] data) implements StoredPdf {
+
+        @Override
+        public long length() {
+            return data.length;
+        }
+
+        @Override
+        public void transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            ByteBuffer slice = ByteBuffer.wrap(data, (int) position, (int) count);
+            while (slice.hasRemaining()) {
+                target.write(slice);
+            }
+        }
+
+        @Override
+        public byte[] toBytes() {
+            return data;
+        }
+    }
+
+    public InMemoryPdfStore(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public synchronized Optional<StoredPdf> find(String quoteId, String contentHash) {
+        Entry entry = entries.get(quoteId);
+        return entry != null && entry.contentHash().equals(contentHash)
+                ? Optional.of(entry)
+                : Optional.empty();
+    }
+
+    @Override
+    public synchronized Optional<StoredPdf> latest(String quoteId) {
+        return Optional.ofNullable(entries.get(quoteId));
+    }
+
+    @Override
+    public synchronized StoredPdf put(String quoteId, String contentHash, byte[] pdf) {
+        Entry entry = new Entry(quoteId, contentHash, pdf);
+        if (pdf.length > maxBytes) {
+            return entry;
+        }
+
+        Entry previous = entries.put(quoteId, entry);
+        if (previous != null) {
+            totalBytes -= previous.data().length;
+        }
+        totalBytes += pdf.length;
+
+        Iterator<Entry> it = entries.values().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            totalBytes -= it.next().data().length;
+            it.remove();
+        }
+        return entry;
+    }
+
+    @Override
+    public synchronized Stats stats() {
+        return new Stats("memory", entries.size(), totalBytes, 0);
+    }
+}
@@ -1,44 +1,36 @@
 package insurance_package.service;
 
 import insurance_package.model.*;
+import insurance_package.rating.CoverageDescriptor;
+import insurance_package.rating.MotorRatingPlan;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Profile("mongo")     // ✅ REQUIRED
 @Component
 public class MotorRuleEngine {
 
-    @SuppressWarnings("unchecked")
+    private static final String EXPLANATION_PREFIX =
+            "Premium based on vehicle age, usage, region, NCD and selected coverages: ";
+
     public PremiumResult applyBusinessRules(
-            QuotationRequest req,
-            Map<String, Object> rates,
-            List<CoverageOption> coverageOptions
+            MotorSlots slots,
+            MotorRatingPlan plan
     ) {
-        Map<String, Object> slots = req.getSlots();
-
-        double base = toDouble(rates.getOrDefault("base", 400));
-        double perYear = toDouble(rates.getOrDefault("per_year", 20));
-
-        int year = toInt(slots.getOrDefault("year", LocalDate.now().getYear()));
-        int vehicleAge = LocalDate.now().getYear() - year;
+        double base = plan.base();
+        double perYear = plan.perYear();
 
-        String usage = String.valueOf(slots.getOrDefault("usage", ""));
-        String region = String.valueOf(slots.getOrDefault("region", ""));
-        double ncd = toDouble(slots.getOrDefault("ncd_percent", 0));
-        double sumInsured = toDouble(slots.getOrDefault("sum_insured", 0));
-        String currency = String.valueOf(rates.getOrDefault("currency", "MYR"));
+        int vehicleAge = LocalDate.now().getYear() - slots.year();
 
-        Map<String, Object> usageFactors =
-                (Map<String, Object>) rates.get("usage_factors");
-        Map<String, Object> regionFactors =
-                (Map<String, Object>) rates.get("region_factors");
+        String region = slots.region();
+        double ncd = slots.ncdPercent();
+        double sumInsured = slots.sumInsured();
 
-        double usageFactor = getOr(usageFactors, usage, 1.0);
-        double regionFactor = getOr(regionFactors, region, 1.0);
+        double usageFactor = plan.usageFactors().factorOf(slots.usage(), 1.0);
+        double regionFactor = plan.regionFactors().factorOf(region, 1.0);
 
         double ageLoad = perYear * Math.max(0, vehicleAge);
         double basePremium = base + ageLoad;
@@ -51,49 +43,40 @@ public class MotorRuleEngine {
         double coreMotorPremium =
                 round2(subtotal + sst + stampDuty);
 
-        List<CoverageItem> items = new ArrayList<>();
+        List<CoverageDescriptor> coverages = plan.coverages();
+        List<CoverageItem> items = new ArrayList<>(coverages.size() + 1);
+        StringBuilder explanation = new StringBuilder(EXPLANATION_PREFIX.length() + 32 * (coverages.size() + 1))
+                .append(EXPLANATION_PREFIX);
 
         CoverageItem basic = new CoverageItem();
         basic.setCode("BASIC_MOTOR");
         basic.setLabel("Motor Basic Premium");
         basic.setAmount(coreMotorPremium);
         items.add(basic);
+        explanation.append(basic.getLabel());
 
-        if (coverageOptions != null) {
-            for (CoverageOption option : coverageOptions) {
+        double total = coreMotorPremium;
 
-                boolean isBasic =
-                        "BASIC".equalsIgnoreCase(option.getCode())
-                                || "BASIC_MOTOR".equalsIgnoreCase(option.getCode());
+        for (int i = 0; i < coverages.size(); i++) {
+            CoverageDescriptor option = coverages.get(i);
 
-                String flagKey = option.getCode() + "_enabled";
-                Object flagVal = slots.get(flagKey);
+            boolean enabled =
+                    option.defaultOn()
+                            || slots.isEnabled(option.code());
 
-                boolean enabled =
-                        option.isDefaultOn()
-                                || Boolean.TRUE.equals(flagVal);
+            if (enabled) {
+                CoverageItem item = new CoverageItem();
+                item.setCode(option.code());
+                item.setLabel(option.label());
+                item.setAmount(option.amountFor(sumInsured));
+                items.add(item);
 
-                if (!isBasic && enabled) {
-                    double amount;
-
-                    if (option.getLoadFactor() < 1.0 && sumInsured > 0) {
-                        amount = round2(sumInsured * option.getLoadFactor());
-                    } else {
-                        amount = round2(option.getLoadFactor());
-                    }
-
-                    CoverageItem item = new CoverageItem();
-                    item.setCode(option.getCode());
-                    item.setLabel(option.getLabel());
-                    item.setAmount(amount);
-                    items.add(item);
-                }
+                total += item.getAmount();
+                explanation.append(", ").append(item.getLabel());
             }
         }
 
-        double totalPremium = round2(
-                items.stream().mapToDouble(CoverageItem::getAmount).sum()
-        );
+        double totalPremium = round2(total);
 
         int risk = Math.max(0, Math.min(100,
                 50 + (vehicleAge * 2)
@@ -102,15 +85,10 @@ public class MotorRuleEngine {
 
         PremiumBreakdown breakdown = new PremiumBreakdown();
         breakdown.setSumInsured(sumInsured);
-        breakdown.setCurrency(currency);
+        breakdown.setCurrency(plan.currency());
         breakdown.setItems(items);
         breakdown.setTotalPremium(totalPremium);
-        breakdown.setSummaryExplanation(
-                "Premium based on vehicle age, usage, region, NCD and selected coverages: "
-                        + items.stream()
-                        .map(CoverageItem::getLabel)
-                        .collect(Collectors.joining(", "))
-        );
+        breakdown.setSummaryExplanation(explanation.toString());
 
         PremiumResult result = new PremiumResult();
         result.setBasePremium(round2(basePremium));
@@ -121,26 +99,6 @@ public class MotorRuleEngine {
         return result;
     }
 
-    private static double toDouble(Object o) {
-        if (o == null) return 0.0;
-        return (o instanceof Number n)
-                ? n.doubleValue()
-                : Double.parseDouble(o.toString());
-    }
-
-    private static int toInt(Object o) {
-        if (o == null) return 0;
-        return (o instanceof Number n)
-                ? n.intValue()
-                : Integer.parseInt(o.toString());
-    }
-
-    private static double getOr(Map<String, Object> m, String k, double d) {
-        if (m == null) return d;
-        Object v = m.get(k);
-        return v == null ? d : toDouble(v);
-    }
-
     private static double round2(double v) {
         return Math.round(v * 100.0) / 100.0;
     }
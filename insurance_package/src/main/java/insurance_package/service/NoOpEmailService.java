@@ -62,4 +62,22 @@ public class NoOpEmailService implements EmailService {
                 attachment.length());
         log.info("=".repeat(60));
     }
-}
\ No newline at end of file
+
+    @Override
+    public void sendQuoteEmailWithAttachment(String toEmail, String subject, String body,
+                                             String fileName, byte[] pdf) {
+        log.info("=".repeat(60));
+        log.info("[NoOpEmailService] SIMULATING EMAIL WITH ATTACHMENT");
+        log.info("To: {}", toEmail);
+        log.info("Subject: {}", subject);
+        log.info("Attachment: {} ({} bytes)", fileName, pdf.length);
+        log.info("=".repeat(60));
+    }
+
+    @Override
+    public void sendQuoteEmailWithPdf(String toEmail, Quote quote, PremiumResult result,
+                                      String fileName, byte[] pdf) {
+        sendQuoteEmail(toEmail, quote, result);
+        log.info("[NoOpEmailService] ... with attachment {} ({} bytes)", fileName, pdf.length);
+    }
+}
@@ -0,0 +1,450 @@
+package insurance_package.service;
+
+import insurance_package.config.PdfProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * {@link PdfStore} on local append-only pack files.
+ *
+ * PDFs are appended to the current segment ({@code pdf-NNNNNN.pack}) as
+ * self-describing records:
+ *
+ * <pre>
+ *   int    magic "QPDF"
+ *   int    pdf length
+ *   long   stored at (epoch millis)
+ *   byte[32] SHA-256 of the rendered HTML
+ *   short  quote id length, quote id (UTF-8)
+ *   byte[] pdf
+ * </pre>
+ *
+ * The index (quote id -> latest record) lives in memory and is rebuilt by
+ * scanning the segments at startup; a torn record at the end of a segment
+ * (crash mid-append) is truncated away. Reads are positional and served
+ * with {@link FileChannel#transferTo}, so downloads never copy the document
+ * through the heap. Eviction drops whole segments, by age and total size;
+ * an evicted segment is closed and deleted once its last in-flight read
+ * (download, attachment) has finished.
+ */
+@Slf4j
+public class PackFilePdfStore implements PdfStore, Closeable {
+
+    private static final int MAGIC = 0x51504446;
+    private static final int HASH_BYTES = 32;
+    private static final int FIXED_HEADER = 4 + 4 + 8 + HASH_BYTES + 2;
+
+    private static final String SEGMENT_PREFIX = "pdf-";
+    private static final String SEGMENT_SUFFIX = ".pack";
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final Path dir;
+    private final long segmentMaxBytes;
+    private final long segmentMaxAgeMs;
+    private final long retentionMs;
+    private final long maxTotalBytes;
+
+    // Oldest first; the last one is appended to. Guarded by this.
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+
+    private static final class Segment {
+        final int id;
+        final Path path;
+        final FileChannel channel;
+        final long openedAt;
+        volatile long size;
+        volatile long newestAt;
+
+        // Reads in progress; -1 once closed
+        final AtomicInteger readers = new AtomicInteger();
+        volatile boolean retired;
+
+        Segment(int id, Path path, FileChannel channel, long openedAt) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.openedAt = openedAt;
+        }
+
+        void acquire() throws IOException {
+            while (true) {
+                int n = readers.get();
+                if (n < 0) {
+                    throw new IOException("PDF segment " + path.getFileName() + " was evicted");
+                }
+                if (readers.compareAndSet(n, n + 1)) {
+                    return;
+                }
+            }
+        }
+
+        void release() {
+            if (readers.decrementAndGet() == 0 && retired) {
+                closeIfUnread();
+            }
+        }
+
+        // Closes and deletes the segment now, or after its last reader
+        void retire() {
+            retired = true;
+            closeIfUnread();
+        }
+
+        private void closeIfUnread() {
+            if (readers.compareAndSet(0, -1)) {
+                closeQuietly(this);
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    log.warn("Could not delete PDF segment {}: {}", path, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private record Entry(
+            String quoteId,
+            String contentHash,
+            Segment segment,
+            long offset,
+            long length,
+            long storedAt
+    ) implements StoredPdf {
+
+        @Override
+        public void transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            segment.acquire();
+            try {
+                long pos = offset + position;
+                long end = pos + count;
+                while (pos < end) {
+                    long n = segment.channel.transferTo(pos, end - pos, target);
+                    if (n <= 0) {
+                        throw new IOException("Short transfer from " + segment.path.getFileName());
+                    }
+                    pos += n;
+                }
+            } finally {
+                segment.release();
+            }
+        }
+
+        @Override
+        public byte[] toBytes() throws IOException {
+            segment.acquire();
+            try {
+                ByteBuffer buf = ByteBuffer.allocate(Math.toIntExact(length));
+                while (buf.hasRemaining()) {
+                    if (segment.channel.read(buf, offset + buf.position()) < 0) {
+                        throw new IOException("Unexpected end of " + segment.path.getFileName());
+                    }
+                }
+                return buf.array();
+            } finally {
+                segment.release();
+            }
+        }
+    }
+
+    // A record just written: attachments use the bytes still at hand
+    private record Written(Entry entry, byte[] data) implements StoredPdf {
+
+        @Override
+        public String quoteId() {
+            return entry.quoteId();
+        }
+
+        @Override
+        public String contentHash() {
+            return entry.contentHash();
+        }
+
+        @Override
+        public long length() {
+            return data.length;
+        }
+
+        @Override
+        public void transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            entry.transferTo(position, count, target);
+        }
+
+        @Override
+        public byte[] toBytes() {
+            return data;
+        }
+    }
+
+    public PackFilePdfStore(PdfProperties.Store properties) {
+        this.dir = Paths.get(properties.getDir());
+        this.segmentMaxBytes = properties.getSegmentMaxBytes();
+        this.segmentMaxAgeMs = properties.getSegmentMaxAge().toMillis();
+        this.retentionMs = properties.getRetention().toMillis();
+        this.maxTotalBytes = properties.getMaxTotalBytes();
+
+        try {
+            open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open PDF store in " + dir, e);
+        }
+        log.info("PDF store opened: {} documents in {} segments under {}",
+                index.size(), segments.size(), dir.toAbsolutePath());
+    }
+
+    // =========================================================
+    // PdfStore
+    // =========================================================
+    @Override
+    public Optional<StoredPdf> find(String quoteId, String contentHash) {
+        Entry entry = index.get(quoteId);
+        return entry != null && entry.contentHash().equals(contentHash)
+                ? Optional.of(entry)
+                : Optional.empty();
+    }
+
+    @Override
+    public Optional<StoredPdf> latest(String quoteId) {
+        return Optional.ofNullable(index.get(quoteId));
+    }
+
+    @Override
+    public synchronized StoredPdf put(String quoteId, String contentHash, byte[] pdf) throws IOException {
+        Entry existing = index.get(quoteId);
+        if (existing != null && existing.contentHash().equals(contentHash)) {
+            return existing;
+        }
+
+        long now = System.currentTimeMillis();
+        Segment segment = appendTarget(now);
+
+        byte[] id = quoteId.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer header = ByteBuffer.allocate(FIXED_HEADER + id.length)
+                .putInt(MAGIC)
+                .putInt(pdf.length)
+                .putLong(now)
+                .put(HEX.parseHex(contentHash))
+                .putShort((short) id.length)
+                .put(id)
+                .flip();
+
+        long offset = segment.size;
+        ByteBuffer[] record = {header, ByteBuffer.wrap(pdf)};
+        segment.channel.position(offset);
+        long remaining = header.remaining() + (long) pdf.length;
+        while (remaining > 0) {
+            remaining -= segment.channel.write(record);
+        }
+
+        Entry entry = new Entry(quoteId, contentHash, segment,
+                offset + FIXED_HEADER + id.length, pdf.length, now);
+        segment.size = offset + FIXED_HEADER + id.length + pdf.length;
+        segment.newestAt = now;
+        index.put(quoteId, entry);
+
+        return new Written(entry, pdf);
+    }
+
+    @Override
+    public synchronized Stats stats() {
+        long bytes = 0;
+        for (Segment s : segments) {
+            bytes += s.size;
+        }
+        return new Stats("pack", index.size(), bytes, segments.size());
+    }
+
+    // =========================================================
+    // EVICTION
+    // =========================================================
+
+    /**
+     * Drops segments past retention, then oldest segments while the store
+     * is over its size budget. The segment being appended to is kept.
+     */
+    @Scheduled(
+            initialDelayString = "${quotation.pdf.store.evict-interval-ms:600000}",
+            fixedDelayString = "${quotation.pdf.store.evict-interval-ms:600000}"
+    )
+    public synchronized void evict() {
+        long now = System.currentTimeMillis();
+        long total = 0;
+        for (Segment s : segments) {
+            total += s.size;
+        }
+
+        List<Segment> candidates = new ArrayList<>(segments);
+        if (candidates.isEmpty()) {
+            return;
+        }
+        candidates.remove(candidates.size() - 1);
+
+        int removed = 0;
+        for (Segment s : candidates) {
+            boolean expired = now - s.newestAt > retentionMs;
+            if (!expired && total <= maxTotalBytes) {
+                break;
+            }
+            total -= s.size;
+            remove(s);
+            removed++;
+        }
+
+        if (removed > 0) {
+            log.info("PDF store evicted {} segments, {} documents remain", removed, index.size());
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        for (Segment s : segments) {
+            closeQuietly(s);
+        }
+        segments.clear();
+        index.clear();
+    }
+
+    // =========================================================
+    // SEGMENTS
+    // =========================================================
+    private void open() throws IOException {
+        Files.createDirectories(dir);
+
+        List<Path> files;
+        try (Stream<Path> list = Files.list(dir)) {
+            files = list
+                    .filter(p -> segmentId(p) >= 0)
+                    .sorted((a, b) -> Integer.compare(segmentId(a), segmentId(b)))
+                    .toList();
+        }
+
+        for (Path path : files) {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            Segment segment = new Segment(segmentId(path), path, channel,
+                    Files.getLastModifiedTime(path).toMillis());
+            scan(segment);
+            segments.addLast(segment);
+        }
+    }
+
+    private void scan(Segment segment) throws IOException {
+        FileChannel channel = segment.channel;
+        long fileSize = channel.size();
+        long pos = 0;
+        ByteBuffer fixed = ByteBuffer.allocate(FIXED_HEADER);
+        byte[] hash = new byte[HASH_BYTES];
+
+        while (pos + FIXED_HEADER <= fileSize) {
+            fixed.clear();
+            readFully(channel, fixed, pos);
+            fixed.flip();
+
+            int magic = fixed.getInt();
+            int length = fixed.getInt();
+            long storedAt = fixed.getLong();
+            fixed.get(hash);
+            int idLength = fixed.getShort() & 0xFFFF;
+
+            long dataOffset = pos + FIXED_HEADER + idLength;
+            if (magic != MAGIC || length < 0 || dataOffset + length > fileSize) {
+                break;
+            }
+
+            ByteBuffer id = ByteBuffer.allocate(idLength);
+            readFully(channel, id, pos + FIXED_HEADER);
+            String quoteId = new String(id.array(), StandardCharsets.UTF_8);
+
+            // Later records supersede earlier ones for the same quote
+            index.put(quoteId, new Entry(quoteId, HEX.formatHex(hash), segment,
+                    dataOffset, length, storedAt));
+            segment.newestAt = Math.max(segment.newestAt, storedAt);
+            pos = dataOffset + length;
+        }
+
+        if (pos < fileSize) {
+            log.warn("Truncating torn record at offset {} of {}", pos, segment.path.getFileName());
+            channel.truncate(pos);
+        }
+        segment.size = pos;
+        if (segment.newestAt == 0) {
+            segment.newestAt = segment.openedAt;
+        }
+    }
+
+    private Segment appendTarget(long now) throws IOException {
+        Segment active = segments.peekLast();
+        if (active != null
+                && active.size < segmentMaxBytes
+                && (active.size == 0 || now - active.openedAt < segmentMaxAgeMs)) {
+            return active;
+        }
+
+        int id = active != null ? active.id + 1 : 1;
+        Path path = dir.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Segment segment = new Segment(id, path, channel, now);
+        segment.newestAt = now;
+        segments.addLast(segment);
+        return segment;
+    }
+
+    private void remove(Segment segment) {
+        segments.remove(segment);
+        index.values().removeIf(e -> e.segment() == segment);
+        // Downloads and attachments already reading it finish first
+        segment.retire();
+    }
+
+    private static void closeQuietly(Segment segment) {
+        try {
+            segment.channel.close();
+        } catch (IOException e) {
+            log.warn("Could not close PDF segment {}: {}", segment.path, e.getMessage());
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, position + buf.position()) < 0) {
+                throw new IOException("Unexpected end of segment");
+            }
+        }
+    }
+
+    private static int segmentId(Path path) {
+        String name = path.getFileName().toString();
+        if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(),
+                    name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
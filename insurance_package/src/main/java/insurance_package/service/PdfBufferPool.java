@@ -0,0 +1,67 @@
+package insurance_package.service;
+
+import insurance_package.config.PdfProperties;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Small pool of growable byte buffers for in-memory PDF rendering.
+ *
+ * A quotation PDF is a few hundred KB; rendering into a fresh
+ * {@link ByteArrayOutputStream} regrows and copies the array several times
+ * per document. Pooled buffers keep their capacity, so a render costs one
+ * final copy of the finished bytes.
+ */
+@Component
+public class PdfBufferPool {
+
+    // Buffers that grew past this (unusual documents) are dropped, not kept
+    private static final int MAX_RETAINED_BYTES = 4 * 1024 * 1024;
+
+    @FunctionalInterface
+    public interface Writer {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private static final class Buffer extends ByteArrayOutputStream {
+        Buffer(int size) {
+            super(size);
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+    }
+
+    private final BlockingQueue<Buffer> free;
+    private final int initialBytes;
+
+    public PdfBufferPool(PdfProperties properties) {
+        this.free = new ArrayBlockingQueue<>(Math.max(1, properties.getBufferPoolSize()));
+        this.initialBytes = Math.max(1024, properties.getBufferInitialBytes());
+    }
+
+    /**
+     * Runs {@code writer} against a pooled buffer and returns what it wrote.
+     */
+    public byte[] render(Writer writer) throws IOException {
+        Buffer buffer = free.poll();
+        if (buffer == null) {
+            buffer = new Buffer(initialBytes);
+        }
+        try {
+            writer.writeTo(buffer);
+            return buffer.toByteArray();
+        } finally {
+            buffer.reset();
+            if (buffer.capacity() <= MAX_RETAINED_BYTES) {
+                free.offer(buffer);
+            }
+        }
+    }
+}
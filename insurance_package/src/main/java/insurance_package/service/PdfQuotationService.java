@@ -1,17 +1,20 @@
 package insurance_package.service;
 
-import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
+import insurance_package.config.PdfProperties;
 import insurance_package.model.Quote;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.annotation.Profile;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.thymeleaf.context.Context;
-import org.thymeleaf.spring6.SpringTemplateEngine;
 
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
@@ -20,135 +23,99 @@ import java.util.*;
 @Service
 public class PdfQuotationService {
 
-    private final SpringTemplateEngine templateEngine;
-
-    @Value("${quotation.pdf.output-dir:./generated-pdfs}")
-    private String outputDir;
-
-    @Value("${company.logo.base64:}")
-    private String companyLogoBase64;
-
-    public PdfQuotationService(SpringTemplateEngine templateEngine) {
-        this.templateEngine = templateEngine;
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd MMMM yyyy");
+
+    private final PdfRenderResources resources;
+    private final PdfBufferPool bufferPool;
+    private final PdfStore pdfStore;
+    private final QuoteMetrics quoteMetrics;
+    private final String outputDir;
+
+    public PdfQuotationService(
+            PdfRenderResources resources,
+            PdfBufferPool bufferPool,
+            PdfStore pdfStore,
+            PdfProperties properties,
+            QuoteMetrics quoteMetrics
+    ) {
+        this.resources = resources;
+        this.bufferPool = bufferPool;
+        this.pdfStore = pdfStore;
+        this.quoteMetrics = quoteMetrics;
+        this.outputDir = properties.getOutputDir();
     }
 
-    public File generateQuotationPdf(Quote quote) {
-        log.info("Generating PDF for quote: {}", quote.getQuoteId());
-
-        try {
-            String line = safe(quote.getLine());
-            boolean isMotor = "Motor".equalsIgnoreCase(line);
-
-            // Prepare Thymeleaf Context
-            Context ctx = new Context();
-
-            // Basic quote information
-            ctx.setVariable("quote", quote);
-            ctx.setVariable("quotationNo", safe(quote.getQuoteId()));
-            ctx.setVariable("issueDate", LocalDate.now());
-            ctx.setVariable("validUntil", LocalDate.now().plusDays(14));
-            ctx.setVariable("formattedDate",
-                    LocalDate.now().format(DateTimeFormatter.ofPattern("dd MMMM yyyy")));
-
-            ctx.setVariable("customerName", safe(quote.getCustomerName()));
-            ctx.setVariable("customerEmail", safe(quote.getCustomerEmail()));
-            ctx.setVariable("currency", safeOrDefault(quote.getCurrency(), "MYR"));
-            ctx.setVariable("totalPremium", quote.getTotalPremium() == null ? 0 : quote.getTotalPremium());
-            ctx.setVariable("riskScore", quote.getRiskScore());
-            ctx.setVariable("line", line);
-
-            // Company logo
-            if (companyLogoBase64 != null && !companyLogoBase64.isBlank()) {
-                String logo = companyLogoBase64.trim();
-                if (!logo.startsWith("data:image")) {
-                    logo = "data:image/png;base64," + logo;
-                }
-                ctx.setVariable("logoBase64", logo);
-            } else {
-                ctx.setVariable("logoBase64", "");
-            }
-
-            // Request details (slots)
-            Map<String, Object> requestDetails = quote.getRequestDetails();
-            if (requestDetails == null) {
-                requestDetails = new HashMap<>();
-            }
-            ctx.setVariable("requestDetails", requestDetails);
-
-            // Motor-specific variables - FIXED: Use explicit type casting
-            if (isMotor) {
-                ctx.setVariable("vehicleMake", safe(requestDetails.get("make")));
-                ctx.setVariable("vehicleModel", safe(requestDetails.get("model")));
-                ctx.setVariable("vehicleYear", safe(requestDetails.get("year")));
-                ctx.setVariable("plateNo", safe(requestDetails.get("plate_no")));
-                ctx.setVariable("usage", safe(requestDetails.get("usage")));
-                ctx.setVariable("region", safe(requestDetails.get("region")));
-                ctx.setVariable("sumInsured", safe(requestDetails.get("sum_insured")));
+    /**
+     * Production mode: parse both templates and initialise the renderer
+     * before the first real quote arrives.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        if (!resources.isCacheTemplates()) {
+            return;
+        }
+        long start = System.nanoTime();
+        for (String line : List.of("Motor", "Life")) {
+            Quote sample = Quote.builder().quoteId("WARMUP").line(line).build();
+            try {
+                writePdf(line, renderHtml(sample), OutputStream.nullOutputStream());
+            } catch (Exception e) {
+                log.warn("PDF warm-up failed for {}: {}", line, e.getMessage());
             }
-            // Life-specific variables - FIXED: Proper handling without getOrDefault
-            else {
-                Map<String, Object> profile = new HashMap<>();
-
-                // Manually check and convert each field
-                Object ageObj = requestDetails.get("age");
-                profile.put("age", ageObj != null ? String.valueOf(ageObj) : "N/A");
-
-                Object genderObj = requestDetails.get("gender");
-                profile.put("gender", genderObj != null ? String.valueOf(genderObj) : "Not specified");
-
-                Object smokerObj = requestDetails.get("smoker_status");
-                profile.put("smoker_status", smokerObj != null ? String.valueOf(smokerObj) : "N/A");
-
-                Object incomeObj = requestDetails.get("income");
-                profile.put("income", incomeObj != null ? String.valueOf(incomeObj) : "0");
-
-                Object occupationObj = requestDetails.get("occupation");
-                profile.put("occupation", occupationObj != null ? String.valueOf(occupationObj) : "Not specified");
-
-                Object maritalObj = requestDetails.get("marital_status");
-                profile.put("marital_status", maritalObj != null ? String.valueOf(maritalObj) : "Not specified");
+        }
+        log.info("PDF templates warmed in {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
 
-                ctx.setVariable("profile", profile);
-            }
+    /**
+     * The quotation PDF from the {@link PdfStore}, laid out only when no
+     * stored render has the same HTML (same quote, same inputs, same day).
+     */
+    public PdfStore.StoredPdf quotationPdf(Quote quote) {
+        String html = renderHtml(quote);
+        String hash = sha256(html);
+
+        Optional<PdfStore.StoredPdf> stored = pdfStore.find(quote.getQuoteId(), hash);
+        quoteMetrics.pdfStore(quote.getLine(), stored.isPresent());
+        if (stored.isPresent()) {
+            log.info("PDF for quote {} served from store", quote.getQuoteId());
+            return stored.get();
+        }
 
-            // Premium breakdown
-            Map<String, Object> breakdown = quote.getPremiumBreakdown();
-            if (breakdown == null) {
-                breakdown = new HashMap<>();
-            }
-            ctx.setVariable("breakdown", breakdown);
+        try {
+            byte[] pdf = bufferPool.render(out -> writePdf(quote.getLine(), html, out));
+            return pdfStore.put(quote.getQuoteId(), hash, pdf);
+        } catch (Exception e) {
+            log.error("PDF generation failed for quote {}: {}",
+                    quote.getQuoteId(), e.getMessage(), e);
+            throw new RuntimeException("PDF generation failed: " + e.getMessage(), e);
+        }
+    }
 
-            // Base premium
-            Object basePremium = breakdown.get("basePremium");
-            if (basePremium == null) basePremium = breakdown.get("base_premium");
-            ctx.setVariable("basePremium", basePremium == null ? 0 : basePremium);
+    /**
+     * Renders the quotation PDF in memory (pooled buffer, no temp file).
+     */
+    public byte[] renderQuotationPdf(Quote quote) {
+        log.info("Rendering PDF for quote: {}", quote.getQuoteId());
 
-            // Currency from breakdown (if present)
-            Object bdCurrency = breakdown.get("currency");
-            if (bdCurrency != null && !String.valueOf(bdCurrency).isBlank()) {
-                ctx.setVariable("currency", String.valueOf(bdCurrency));
-            }
+        try {
+            String html = renderHtml(quote);
+            return bufferPool.render(out -> writePdf(quote.getLine(), html, out));
+        } catch (Exception e) {
+            log.error("PDF generation failed for quote {}: {}",
+                    quote.getQuoteId(), e.getMessage(), e);
+            throw new RuntimeException("PDF generation failed: " + e.getMessage(), e);
+        }
+    }
 
-            // Total premium from breakdown (if present)
-            Object total = breakdown.get("totalPremium");
-            if (total != null) {
-                ctx.setVariable("totalPremium", total);
-            }
+    public static String fileName(Quote quote) {
+        return "Quotation_" + quote.getQuoteId() + ".pdf";
+    }
 
-            // Coverage items
-            List<Map<String, Object>> coverageItems = extractCoverageItems(breakdown);
-            ctx.setVariable("coverageItems", coverageItems);
-            log.debug("PDF coverageItems count = {}", coverageItems.size());
-
-            // Select template - CORRECTED PATH
-            String templatePath;
-            if (isMotor) {
-                templatePath = "pdf/motor-quote"; // Looks for templates/pdf/motor-quote.html
-            } else {
-                templatePath = "pdf/life-quote";  // Looks for templates/pdf/life-quote.html
-            }
+    public File generateQuotationPdf(Quote quote) {
+        log.info("Generating PDF for quote: {}", quote.getQuoteId());
 
-            String html = templateEngine.process(templatePath, ctx);
+        try {
+            String html = renderHtml(quote);
 
             // Ensure output directory exists
             File outputDirFile = new File(outputDir);
@@ -160,15 +127,10 @@ public class PdfQuotationService {
             }
 
             // Generate PDF file
-            String fileName = "Quotation_" + quote.getQuoteId() + ".pdf";
-            File pdfFile = new File(outputDirFile, fileName);
+            File pdfFile = new File(outputDirFile, fileName(quote));
 
             try (OutputStream os = new FileOutputStream(pdfFile)) {
-                PdfRendererBuilder builder = new PdfRendererBuilder();
-                builder.useFastMode();
-                builder.withHtmlContent(html, null);
-                builder.toStream(os);
-                builder.run();
+                writePdf(quote.getLine(), html, os);
             }
 
             log.info("PDF generated successfully: {}", pdfFile.getAbsolutePath());
@@ -181,6 +143,142 @@ public class PdfQuotationService {
         }
     }
 
+    /**
+     * Lays out rendered quotation HTML as a PDF into {@code os}.
+     */
+    void writePdf(String line, String html, OutputStream os) throws IOException {
+        long start = System.nanoTime();
+        try {
+            resources.newBuilder()
+                    .withHtmlContent(html, null)
+                    .toStream(os)
+                    .run();
+        } finally {
+            quoteMetrics.record(QuoteMetrics.PDF_LAYOUT, line, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Renders the quotation HTML for the quote's line.
+     */
+    String renderHtml(Quote quote) {
+        String line = safe(quote.getLine());
+        boolean isMotor = "Motor".equalsIgnoreCase(line);
+
+        // Prepare Thymeleaf Context
+        Context ctx = new Context();
+
+        // Basic quote information
+        ctx.setVariable("quote", quote);
+        ctx.setVariable("quotationNo", safe(quote.getQuoteId()));
+        ctx.setVariable("issueDate", LocalDate.now());
+        ctx.setVariable("validUntil", LocalDate.now().plusDays(14));
+        ctx.setVariable("formattedDate",
+                LocalDate.now().format(DATE_FORMAT));
+
+        ctx.setVariable("customerName", safe(quote.getCustomerName()));
+        ctx.setVariable("customerEmail", safe(quote.getCustomerEmail()));
+        ctx.setVariable("currency", safeOrDefault(quote.getCurrency(), "MYR"));
+        ctx.setVariable("totalPremium", quote.getTotalPremium() == null ? 0 : quote.getTotalPremium());
+        ctx.setVariable("riskScore", quote.getRiskScore());
+        ctx.setVariable("line", line);
+
+        // Company logo (decoded once, served from memory)
+        ctx.setVariable("logoBase64", resources.logoSrc());
+
+        // Request details (slots)
+        Map<String, Object> requestDetails = quote.getRequestDetails();
+        if (requestDetails == null) {
+            requestDetails = new HashMap<>();
+        }
+        ctx.setVariable("requestDetails", requestDetails);
+
+        // Motor-specific variables - FIXED: Use explicit type casting
+        if (isMotor) {
+            ctx.setVariable("vehicleMake", safe(requestDetails.get("make")));
+            ctx.setVariable("vehicleModel", safe(requestDetails.get("model")));
+            ctx.setVariable("vehicleYear", safe(requestDetails.get("year")));
+            ctx.setVariable("plateNo", safe(requestDetails.get("plate_no")));
+            ctx.setVariable("usage", safe(requestDetails.get("usage")));
+            ctx.setVariable("region", safe(requestDetails.get("region")));
+            ctx.setVariable("sumInsured", safe(requestDetails.get("sum_insured")));
+        }
+        // Life-specific variables - FIXED: Proper handling without getOrDefault
+        else {
+            Map<String, Object> profile = new HashMap<>();
+
+            // Manually check and convert each field
+            Object ageObj = requestDetails.get("age");
+            profile.put("age", ageObj != null ? String.valueOf(ageObj) : "N/A");
+
+            Object genderObj = requestDetails.get("gender");
+            profile.put("gender", genderObj != null ? String.valueOf(genderObj) : "Not specified");
+
+            Object smokerObj = requestDetails.get("smoker_status");
+            profile.put("smoker_status", smokerObj != null ? String.valueOf(smokerObj) : "N/A");
+
+            Object incomeObj = requestDetails.get("income");
+            profile.put("income", incomeObj != null ? String.valueOf(incomeObj) : "0");
+
+            Object occupationObj = requestDetails.get("occupation");
+            profile.put("occupation", occupationObj != null ? String.valueOf(occupationObj) : "Not specified");
+
+            Object maritalObj = requestDetails.get("marital_status");
+            profile.put("marital_status", maritalObj != null ? String.valueOf(maritalObj) : "Not specified");
+
+            ctx.setVariable("profile", profile);
+        }
+
+        // Premium breakdown
+        Map<String, Object> breakdown = quote.getPremiumBreakdown();
+        if (breakdown == null) {
+            breakdown = new HashMap<>();
+        }
+        ctx.setVariable("breakdown", breakdown);
+
+        // Base premium
+        Object basePremium = breakdown.get("basePremium");
+        if (basePremium == null) basePremium = breakdown.get("base_premium");
+        ctx.setVariable("basePremium", basePremium == null ? 0 : basePremium);
+
+        // Currency from breakdown (if present)
+        Object bdCurrency = breakdown.get("currency");
+        if (bdCurrency != null && !String.valueOf(bdCurrency).isBlank()) {
+            ctx.setVariable("currency", String.valueOf(bdCurrency));
+        }
+
+        // Total premium from breakdown (if present)
+        Object total = breakdown.get("totalPremium");
+        if (total != null) {
+            ctx.setVariable("totalPremium", total);
+        }
+
+        // Coverage items
+        List<Map<String, Object>> coverageItems = extractCoverageItems(breakdown);
+        ctx.setVariable("coverageItems", coverageItems);
+        log.debug("PDF coverageItems count = {}", coverageItems.size());
+
+        // Select template - CORRECTED PATH
+        String templatePath;
+        if (isMotor) {
+            templatePath = "pdf/motor-quote"; // Looks for templates/pdf/motor-quote.html
+        } else {
+            templatePath = "pdf/life-quote";  // Looks for templates/pdf/life-quote.html
+        }
+
+        return quoteMetrics.time(QuoteMetrics.PDF_HTML, line,
+                () -> resources.templateEngine().process(templatePath, ctx));
+    }
+
+    private static String sha256(String html) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(html.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     @SuppressWarnings("rawtypes")
     private List<Map<String, Object>> extractCoverageItems(Map<String, Object> breakdown) {
         List<Map<String, Object>> coverageItems = new ArrayList<>();
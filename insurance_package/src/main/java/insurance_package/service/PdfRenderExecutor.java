@@ -0,0 +1,151 @@
+package insurance_package.service;
+
+import insurance_package.config.QuotePipelineProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The only place quotation PDFs are laid out.
+ *
+ * A fixed pool (one worker per core, less one for the request threads,
+ * unless configured) takes tasks from a priority queue: INTERACTIVE
+ * (chatbot / API quotes, downloads) before BULK before RESEND, FIFO within
+ * a lane. The queue is bounded; BULK and RESEND are refused earlier than
+ * INTERACTIVE so a large upload cannot take the last slots. A refused task
+ * throws {@link RejectedExecutionException} and the caller decides whether
+ * to shed or degrade.
+ *
+ * Per-lane queue depth, queue wait and rejections are published through
+ * {@link QuoteMetrics}.
+ */
+@Slf4j
+@Component
+public class PdfRenderExecutor {
+
+    // Declaration order is priority order
+    public enum Lane {
+        INTERACTIVE,
+        BULK,
+        RESEND
+    }
+
+    private final QuoteMetrics quoteMetrics;
+    private final ThreadPoolExecutor executor;
+    private final int capacity;
+    private final int backgroundCapacity;
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger[] laneDepth = new AtomicInteger[Lane.values().length];
+    private final AtomicLong sequence = new AtomicLong();
+
+    public PdfRenderExecutor(QuotePipelineProperties properties, QuoteMetrics quoteMetrics) {
+        this.quoteMetrics = quoteMetrics;
+        this.capacity = properties.getRenderQueueCapacity();
+        this.backgroundCapacity = Math.max(0, capacity - properties.getRenderInteractiveReserve());
+
+        int threads = properties.getRenderThreads() > 0
+                ? properties.getRenderThreads()
+                : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+        this.executor = new ThreadPoolExecutor(
+                threads, threads,
+                60L, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(),
+                new CustomizableThreadFactory("quote-render-")
+        );
+
+        for (Lane lane : Lane.values()) {
+            laneDepth[lane.ordinal()] = new AtomicInteger();
+            quoteMetrics.renderQueue(lane.name(), laneDepth[lane.ordinal()]);
+        }
+
+        log.info("PDF render executor: {} threads, queue capacity {} ({} for bulk/resend)",
+                threads, capacity, backgroundCapacity);
+    }
+
+    /**
+     * Queues a render. Never blocks.
+     *
+     * @throws RejectedExecutionException when the lane has no room left
+     */
+    public <T> CompletableFuture<T> submit(Lane lane, Callable<T> work) {
+        int limit = lane == Lane.INTERACTIVE ? capacity : backgroundCapacity;
+        if (queued.incrementAndGet() > limit) {
+            queued.decrementAndGet();
+            quoteMetrics.renderRejected(lane.name());
+            throw new RejectedExecutionException("Render queue full for lane " + lane);
+        }
+
+        RenderTask<T> task = new RenderTask<>(lane, sequence.getAndIncrement(), work);
+        laneDepth[lane.ordinal()].incrementAndGet();
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            dequeued(lane);
+            throw e;
+        }
+        return task.result;
+    }
+
+    /**
+     * Whether a task in this lane would currently be accepted.
+     */
+    public boolean hasRoom(Lane lane) {
+        return queued.get() < (lane == Lane.INTERACTIVE ? capacity : backgroundCapacity);
+    }
+
+    private void dequeued(Lane lane) {
+        laneDepth[lane.ordinal()].decrementAndGet();
+        queued.decrementAndGet();
+    }
+
+    private final class RenderTask<T> implements Runnable, Comparable<RenderTask<?>> {
+
+        final Lane lane;
+        final long seq;
+        final long enqueuedAt = System.nanoTime();
+        final Callable<T> work;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+
+        RenderTask(Lane lane, long seq, Callable<T> work) {
+            this.lane = lane;
+            this.seq = seq;
+            this.work = work;
+        }
+
+        @Override
+        public void run() {
+            dequeued(lane);
+            quoteMetrics.renderWait(lane.name(), System.nanoTime() - enqueuedAt);
+            try {
+                result.complete(work.call());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        }
+
+        @Override
+        public int compareTo(RenderTask<?> other) {
+            int c = Integer.compare(lane.ordinal(), other.lane.ordinal());
+            return c != 0 ? c : Long.compare(seq, other.seq);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+}
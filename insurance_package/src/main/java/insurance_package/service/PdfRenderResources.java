@@ -0,0 +1,173 @@
+package insurance_package.service;
+
+import com.openhtmltopdf.extend.FSStream;
+import com.openhtmltopdf.extend.impl.FSDefaultCacheStore;
+import com.openhtmltopdf.outputdevice.helper.BaseRendererBuilder;
+import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
+import insurance_package.config.PdfProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Everything a quotation PDF render needs that does not depend on the quote,
+ * prepared once and shared by all renders:
+ *
+ * - a dedicated template engine for {@code templates/pdf/*} (cached in
+ *   production, re-read on every render when {@code cache-templates=false})
+ * - the company logo, decoded once and served to the renderer from memory
+ *   under {@value #LOGO_URI} instead of a 300 KB data URI per document
+ * - configured font files, read once, and a shared font metrics cache
+ */
+@Slf4j
+@Component
+public class PdfRenderResources {
+
+    private static final String ASSET_SCHEME = "quote-asset";
+    static final String LOGO_URI = ASSET_SCHEME + ":logo";
+
+    private final boolean cacheTemplates;
+    private final TemplateEngine templateEngine;
+    private final byte[] logo;
+    private final List<LoadedFont> fonts;
+    private final FSDefaultCacheStore fontMetricsCache = new FSDefaultCacheStore();
+
+    private record LoadedFont(PdfProperties.Font font, byte[] data) {
+    }
+
+    public PdfRenderResources(
+            PdfProperties properties,
+            @Value("${company.logo.base64:}") String companyLogoBase64
+    ) {
+        this.cacheTemplates = properties.isCacheTemplates();
+        this.templateEngine = templateEngine(cacheTemplates);
+        this.logo = decodeLogo(companyLogoBase64);
+        this.fonts = loadFonts(properties.getFonts());
+
+        log.info("PDF render resources ready: templateCache={}, logo={} bytes, fonts={}",
+                cacheTemplates, logo.length, fonts.size());
+    }
+
+    public TemplateEngine templateEngine() {
+        return templateEngine;
+    }
+
+    public boolean isCacheTemplates() {
+        return cacheTemplates;
+    }
+
+    /**
+     * Value for the templates' {@code logoBase64} variable (an img src).
+     */
+    public String logoSrc() {
+        return logo.length > 0 ? LOGO_URI : "";
+    }
+
+    /**
+     * A renderer builder with the shared configuration applied.
+     */
+    public PdfRendererBuilder newBuilder() {
+        PdfRendererBuilder builder = new PdfRendererBuilder();
+        builder.useFastMode();
+        builder.useCacheStore(PdfRendererBuilder.CacheStore.PDF_FONT_METRICS, fontMetricsCache);
+        builder.useProtocolsStreamImplementation(this::openAsset, ASSET_SCHEME);
+
+        for (LoadedFont f : fonts) {
+            builder.useFont(
+                    () -> new ByteArrayInputStream(f.data()),
+                    f.font().getFamily(),
+                    f.font().getWeight(),
+                    f.font().isItalic()
+                            ? BaseRendererBuilder.FontStyle.ITALIC
+                            : BaseRendererBuilder.FontStyle.NORMAL,
+                    true
+            );
+        }
+        return builder;
+    }
+
+    // =========================================================
+    // HELPERS
+    // =========================================================
+    private FSStream openAsset(String uri) {
+        byte[] data = LOGO_URI.equals(uri) ? logo : null;
+        if (data == null || data.length == 0) {
+            log.warn("Unknown PDF asset requested: {}", uri);
+            return null;
+        }
+        return new FSStream() {
+            @Override
+            public InputStream getStream() {
+                return new ByteArrayInputStream(data);
+            }
+
+            @Override
+            public Reader getReader() {
+                return new InputStreamReader(getStream(), StandardCharsets.UTF_8);
+            }
+        };
+    }
+
+    private static TemplateEngine templateEngine(boolean cacheable) {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding("UTF-8");
+        resolver.setCacheable(cacheable);
+
+        SpringTemplateEngine engine = new SpringTemplateEngine();
+        engine.setTemplateResolver(resolver);
+        return engine;
+    }
+
+    private static byte[] decodeLogo(String base64) {
+        if (base64 == null || base64.isBlank()) {
+            return new byte[0];
+        }
+        String value = base64.trim();
+        int comma = value.indexOf(',');
+        if (value.startsWith("data:") && comma > 0) {
+            value = value.substring(comma + 1);
+        }
+        try {
+            return Base64.getMimeDecoder().decode(value);
+        } catch (IllegalArgumentException e) {
+            log.warn("company.logo.base64 is not valid base64, PDFs will have no logo: {}",
+                    e.getMessage());
+            return new byte[0];
+        }
+    }
+
+    private static List<LoadedFont> loadFonts(List<PdfProperties.Font> configured) {
+        List<LoadedFont> loaded = new ArrayList<>();
+        DefaultResourceLoader loader = new DefaultResourceLoader();
+
+        for (PdfProperties.Font font : configured) {
+            String path = font.getPath();
+            Resource resource = loader.getResource(path.contains(":") ? path : "file:" + path);
+            try (InputStream in = resource.getInputStream()) {
+                loaded.add(new LoadedFont(font, in.readAllBytes()));
+            } catch (Exception e) {
+                log.warn("Could not load PDF font {} from {}: {}",
+                        font.getFamily(), path, e.getMessage());
+            }
+        }
+        return List.copyOf(loaded);
+    }
+}
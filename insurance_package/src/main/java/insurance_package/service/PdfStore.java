@@ -0,0 +1,49 @@
+package insurance_package.service;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.Optional;
+
+/**
+ * Rendered quotation PDFs keyed by quote id plus the SHA-256 of the
+ * rendered HTML, so a PDF is only laid out again when its inputs changed.
+ */
+public interface PdfStore {
+
+    /**
+     * The stored render of this quote for exactly these inputs.
+     */
+    Optional<StoredPdf> find(String quoteId, String contentHash);
+
+    /**
+     * The most recent stored render of this quote, whatever its inputs.
+     */
+    Optional<StoredPdf> latest(String quoteId);
+
+    StoredPdf put(String quoteId, String contentHash, byte[] pdf) throws IOException;
+
+    Stats stats();
+
+    record Stats(String type, int documents, long bytes, int segments) {
+    }
+
+    interface StoredPdf {
+
+        String quoteId();
+
+        String contentHash();
+
+        long length();
+
+        /**
+         * Copies {@code count} bytes starting at {@code position} to the target
+         * channel without staging them on the heap where the store allows it.
+         */
+        void transferTo(long position, long count, WritableByteChannel target) throws IOException;
+
+        /**
+         * The whole document as an array (email attachments).
+         */
+        byte[] toBytes() throws IOException;
+    }
+}
@@ -0,0 +1,201 @@
+package insurance_package.service;
+
+import insurance_package.config.QuoteMailProperties;
+import jakarta.mail.Address;
+import jakarta.mail.AuthenticationFailedException;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link JavaMailSenderImpl} that keeps authenticated SMTP connections
+ * open between sends instead of connecting, STARTTLS-ing and logging in
+ * for every message.
+ *
+ * At most max-connections transports exist; a send borrows one
+ * exclusively (waiting up to borrow-timeout), the most recently used
+ * first. A transport is closed instead of returned after a send error,
+ * after max-messages-per-connection messages, or when it has been idle
+ * longer than idle-timeout (checked on borrow and by {@link #closeIdle}).
+ */
+@Slf4j
+public class PooledJavaMailSender extends JavaMailSenderImpl implements DisposableBean {
+
+    private final int maxMessagesPerConnection;
+    private final long idleTimeoutMs;
+    private final long borrowTimeoutMs;
+
+    private final Semaphore permits;
+    // Most recently used last. Guarded by itself.
+    private final Deque<PooledTransport> idle = new ArrayDeque<>();
+
+    private static final class PooledTransport {
+        final Transport transport;
+        int sent;
+        long lastUsed = System.currentTimeMillis();
+
+        PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+    }
+
+    public PooledJavaMailSender(QuoteMailProperties.Pool pool) {
+        this.maxMessagesPerConnection = pool.getMaxMessagesPerConnection();
+        this.idleTimeoutMs = pool.getIdleTimeoutMs();
+        this.borrowTimeoutMs = pool.getBorrowTimeoutMs();
+        this.permits = new Semaphore(pool.getMaxConnections(), true);
+    }
+
+    @Override
+    protected void doSend(MimeMessage[] mimeMessages, Object[] originalMessages) throws MailException {
+        Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new MailSendException("No SMTP connection free after " + borrowTimeoutMs + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MailSendException("Interrupted waiting for an SMTP connection", e);
+        }
+
+        PooledTransport pooled = null;
+        try {
+            for (int i = 0; i < mimeMessages.length; i++) {
+                if (pooled == null) {
+                    pooled = borrow();
+                }
+
+                MimeMessage message = mimeMessages[i];
+                try {
+                    // Same preparation as JavaMailSenderImpl
+                    if (message.getSentDate() == null) {
+                        message.setSentDate(new Date());
+                    }
+                    String messageId = message.getMessageID();
+                    message.saveChanges();
+                    if (messageId != null) {
+                        message.setHeader("Message-ID", messageId);
+                    }
+                    Address[] addresses = message.getAllRecipients();
+                    pooled.transport.sendMessage(message, addresses != null ? addresses : new Address[0]);
+                    pooled.sent++;
+                } catch (Exception e) {
+                    // The connection may be in any state now: replace it
+                    close(pooled);
+                    pooled = null;
+                    Object original = originalMessages != null ? originalMessages[i] : message;
+                    failedMessages.put(original, e);
+                }
+            }
+        } finally {
+            giveBack(pooled);
+            permits.release();
+        }
+
+        if (!failedMessages.isEmpty()) {
+            throw new MailSendException(failedMessages);
+        }
+    }
+
+    /**
+     * Closes connections idle for longer than idle-timeout.
+     */
+    @Scheduled(fixedDelayString = "${quotation.mail.pool.idle-timeout-ms:30000}")
+    public void closeIdle() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMs;
+        while (true) {
+            PooledTransport oldest;
+            synchronized (idle) {
+                oldest = idle.peekFirst();
+                if (oldest == null || oldest.lastUsed > cutoff) {
+                    return;
+                }
+                idle.pollFirst();
+            }
+            close(oldest);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        while (true) {
+            PooledTransport pooled;
+            synchronized (idle) {
+                pooled = idle.pollFirst();
+            }
+            if (pooled == null) {
+                return;
+            }
+            close(pooled);
+        }
+    }
+
+    // =========================================================
+    // POOL
+    // =========================================================
+    private PooledTransport borrow() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMs;
+        while (true) {
+            PooledTransport pooled;
+            synchronized (idle) {
+                pooled = idle.pollLast();
+            }
+            if (pooled == null) {
+                break;
+            }
+            if (pooled.lastUsed > cutoff && pooled.transport.isConnected()) {
+                return pooled;
+            }
+            close(pooled);
+        }
+
+        try {
+            Transport transport = connectTransport();
+            log.debug("Opened SMTP connection to {}:{}", getHost(), getPort());
+            return new PooledTransport(transport);
+        } catch (AuthenticationFailedException e) {
+            throw new MailAuthenticationException(e);
+        } catch (MessagingException e) {
+            throw new MailSendException("Mail server connection failed", e);
+        }
+    }
+
+    private void giveBack(PooledTransport pooled) {
+        if (pooled == null) {
+            return;
+        }
+        if (pooled.sent >= maxMessagesPerConnection) {
+            close(pooled);
+            return;
+        }
+        pooled.lastUsed = System.currentTimeMillis();
+        synchronized (idle) {
+            idle.addLast(pooled);
+        }
+    }
+
+    private void close(PooledTransport pooled) {
+        try {
+            pooled.transport.close();
+            log.debug("Closed SMTP connection after {} messages", pooled.sent);
+        } catch (MessagingException e) {
+            log.debug("Error closing SMTP connection: {}", e.getMessage());
+        }
+    }
+}
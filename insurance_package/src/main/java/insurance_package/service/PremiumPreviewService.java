@@ -0,0 +1,107 @@
+package insurance_package.service;
+
+import insurance_package.config.PreviewProperties;
+import insurance_package.model.CoverageItem;
+import insurance_package.model.PremiumResult;
+import insurance_package.model.QuoteSlots;
+import insurance_package.rating.RatingPlan;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Indicative pricing for the chatbot while slots are still being collected.
+ *
+ * Runs only the rule engines against the cached catalog: nothing is saved,
+ * rendered or emailed. Results are memoized by the bound, price-relevant
+ * slots, so re-asking after a non-pricing answer (name, email, plate number)
+ * is a map lookup.
+ */
+@Service
+@Profile("mongo")
+public class PremiumPreviewService {
+
+    private final PricingService pricingService;
+    private final CatalogCache catalogCache;
+    private final Map<PreviewKey, Map<String, Object>> memo;
+
+    public PremiumPreviewService(
+            PricingService pricingService,
+            CatalogCache catalogCache,
+            PreviewProperties properties
+    ) {
+        this.pricingService = pricingService;
+        this.catalogCache = catalogCache;
+
+        int maxEntries = Math.max(16, properties.getCacheSize());
+        this.memo = Collections.synchronizedMap(
+                new LinkedHashMap<>(1024, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<PreviewKey, Map<String, Object>> eldest) {
+                        return size() > maxEntries;
+                    }
+                });
+    }
+
+    /**
+     * Slot records have value equality, so they are the fingerprint. Unanswered
+     * slots bind to defaults, so the missing slots are part of the key too
+     * (no ncd_percent is not ncd_percent=0). A catalog refresh produces new
+     * plan instances, which naturally invalidates previews priced against the
+     * old rates.
+     */
+    private record PreviewKey(RatingPlan plan, QuoteSlots slots, List<String> missing) {
+    }
+
+    /**
+     * Prices partial slots. Values that do not validate yet (half-typed
+     * numbers) are treated as not answered rather than failing the preview.
+     */
+    public Map<String, Object> preview(String line, QuoteSlotBinder.Binding binding) {
+        RatingPlan plan = catalogCache.activeProduct(line).plan();
+        PreviewKey key = new PreviewKey(plan, binding.slots(), List.copyOf(binding.missing()));
+
+        Map<String, Object> cached = memo.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        Map<String, Object> body = toBody(line, binding.missing(),
+                pricingService.price(binding.slots(), plan));
+        memo.put(key, body);
+        return body;
+    }
+
+    private static Map<String, Object> toBody(
+            String line,
+            List<String> missing,
+            PremiumResult result
+    ) {
+        List<Map<String, Object>> items = new ArrayList<>();
+        if (result.getBreakdown() != null && result.getBreakdown().getItems() != null) {
+            for (Object o : result.getBreakdown().getItems()) {
+                if (o instanceof CoverageItem item) {
+                    Map<String, Object> m = new LinkedHashMap<>();
+                    m.put("code", item.getCode());
+                    m.put("label", item.getLabel());
+                    m.put("amount", item.getAmount());
+                    items.add(m);
+                }
+            }
+        }
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("ok", true);
+        body.put("line", line);
+        body.put("indicative", true);
+        body.put("complete", missing.isEmpty());
+        body.put("missing", List.copyOf(missing));
+        body.put("currency", result.getBreakdown() != null ? result.getBreakdown().getCurrency() : "MYR");
+        body.put("basePremium", result.getBasePremium());
+        body.put("totalPremium", result.getTotalPremium());
+        body.put("riskScore", result.getRiskScore());
+        body.put("items", List.copyOf(items));
+        return Collections.unmodifiableMap(body);
+    }
+}
@@ -3,15 +3,14 @@ package insurance_package.service;
 import insurance_package.exception.PricingException;
 import insurance_package.exception.ValidationException;
 import insurance_package.model.*;
-import insurance_package.mongo.repository.CoverageOptionRepository;
-import insurance_package.mongo.repository.ProductRepository;
-import insurance_package.mongo.repository.QuoteRepository;
+import insurance_package.rating.LifeRatingPlan;
+import insurance_package.rating.MotorRatingPlan;
+import insurance_package.rating.RatingPlan;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 
-import java.io.File;
 import java.time.Instant;
 import java.util.*;
 
@@ -21,58 +20,108 @@ import java.util.*;
 @RequiredArgsConstructor
 public class PricingService {
 
-    private final CoverageOptionRepository coverageOptionRepository;
-    private final ProductRepository productRepository;
-    private final QuoteRepository quoteRepository;
+    private final CatalogCache catalogCache;
+    private final QuoteWriteBatcher quoteWriteBatcher;
+    private final QuoteJournal quoteJournal;
     private final MotorRuleEngine motorRuleEngine;
     private final LifeRuleEngine lifeRuleEngine;
-    private final PdfQuotationService pdfQuotationService;
-    private final EmailService emailService;
+    private final QuoteDeliveryPipeline quoteDeliveryPipeline;
+    private final QuoteSlotBinder quoteSlotBinder;
+    private final QuoteIdGenerator quoteIdGenerator;
+    private final QuoteMetrics quoteMetrics;
 
     public PremiumResult calculatePremium(QuotationRequest req) {
         log.info("Calculating premium for line: {}", req.getLine());
-        validate(req);
+        PremiumResult result = price(req);
+
+        Quote savedQuote = persistQuote(req, result);
 
-        Product product = productRepository
-                .findFirstByLineAndActive(req.getLine(), true)
-                .orElseThrow(() ->
-                        new PricingException("No active product for line: " + req.getLine())
-                );
+        result.setQuoteId(savedQuote.getQuoteId());
+
+        log.info("Premium calculation completed for quote: {}", savedQuote.getQuoteId());
+        return result;
+    }
 
-        Map<String, Object> rates = product.getBaseRates();
+    /**
+     * Runs the rule engine only - no persistence, no PDF, no email.
+     */
+    public PremiumResult price(QuotationRequest req) {
+        validate(req);
+        RatingPlan plan = quoteMetrics.time(QuoteMetrics.CATALOG, req.getLine(),
+                () -> catalogCache.activeProduct(req.getLine()).plan());
+        return price(req, plan);
+    }
 
-        if (rates == null) {
-            rates = new HashMap<>();
-            rates.put("base", 400.0);
-            rates.put("per_year", 20.0);
-            rates.put("currency", "MYR");
+    public PremiumResult price(QuotationRequest req, RatingPlan plan) {
+        QuoteSlots slots = req.getBoundSlots();
+        if (slots == null) {
+            // Untyped slots (bulk / legacy callers)
+            slots = quoteMetrics.time(QuoteMetrics.BIND, req.getLine(),
+                    () -> quoteSlotBinder.bind(req.getLine(), req.getSlots()).requireValid().slots());
+            req.setBoundSlots(slots);
         }
+        return price(slots, plan);
+    }
 
-        List<CoverageOption> coverageOptions =
-                coverageOptionRepository.findByProductId(product.getId());
+    public PremiumResult price(QuoteSlots slots, RatingPlan plan) {
+        long start = System.nanoTime();
+        try {
+            return rate(slots, plan);
+        } finally {
+            quoteMetrics.record(QuoteMetrics.RATING, plan.line(), System.nanoTime() - start);
+        }
+    }
 
-        PremiumResult result = switch (req.getLine()) {
-            case "Motor" -> motorRuleEngine.applyBusinessRules(req, rates, coverageOptions);
-            case "Life"  -> lifeRuleEngine.applyBusinessRules(req, rates);
-            default      -> throw new PricingException("Unsupported line: " + req.getLine());
-        };
+    private PremiumResult rate(QuoteSlots slots, RatingPlan plan) {
+        if (slots instanceof MotorSlots motor && plan instanceof MotorRatingPlan motorPlan) {
+            return motorRuleEngine.applyBusinessRules(motor, motorPlan);
+        }
+        if (slots instanceof LifeSlots life && plan instanceof LifeRatingPlan lifePlan) {
+            return lifeRuleEngine.applyBusinessRules(life, lifePlan);
+        }
+        throw new PricingException("Unsupported line: " + plan.line());
+    }
 
-        Quote savedQuote = persistQuote(req, result);
+    public Quote persistQuote(QuotationRequest req, PremiumResult result) {
+        Quote quote = buildQuote(req, result);
 
-        // FIXED: Set quoteId on result if the field exists
+        // Shares a bulk insert with concurrent quotes (group commit)
+        Quote savedQuote;
         try {
-            // Try to set quoteId using reflection if the field exists
-            result.getClass().getMethod("setQuoteId", String.class).invoke(result, savedQuote.getQuoteId());
-        } catch (Exception e) {
-            // If setQuoteId method doesn't exist, just log and continue
-            log.debug("PremiumResult does not have setQuoteId method");
+            savedQuote = quoteMetrics.time(QuoteMetrics.SAVE, quote.getLine(),
+                    () -> quoteWriteBatcher.save(quote));
+        } catch (RuntimeException e) {
+            if (!quoteJournal.accepts(e)) {
+                throw e;
+            }
+            // Mongo down or too slow: the journal replays it, then delivers it
+            try {
+                quoteJournal.append(quote, result);
+            } catch (RuntimeException journalError) {
+                e.addSuppressed(journalError);
+                throw e;
+            }
+            log.warn("Quote {} journaled, Mongo unavailable: {}", quote.getQuoteId(), e.getMessage());
+            return quote;
         }
+        log.info("Quote saved with ID: {}", savedQuote.getQuoteId());
 
-        log.info("Premium calculation completed for quote: {}", savedQuote.getQuoteId());
-        return result;
+        // PDF + email happen on the pipeline's own workers
+        try {
+            quoteDeliveryPipeline.submit(savedQuote, result);
+        } catch (RuntimeException e) {
+            // The quote is stored: answer with it, a retry would only create another
+            if (quoteJournal.deliverLater(savedQuote, result, e)) {
+                log.warn("Quote {} saved, delivery journaled: {}", savedQuote.getQuoteId(), e.getMessage());
+            } else {
+                log.error("Quote {} saved but not queued for delivery", savedQuote.getQuoteId(), e);
+            }
+        }
+
+        return savedQuote;
     }
 
-    public Quote persistQuote(QuotationRequest req, PremiumResult result) {
+    public Quote buildQuote(QuotationRequest req, PremiumResult result) {
         Map<String, Object> slots = req.getSlots();
         Map<String, Object> pb = new HashMap<>();
 
@@ -89,12 +138,14 @@ public class PricingService {
         }
 
         // Build quote
-        Quote quote = Quote.builder()
-                .quoteId(generateQuoteId())
+        return Quote.builder()
+                .quoteId(quoteIdGenerator.nextId())
                 .line(req.getLine())
                 .currency(String.valueOf(pb.getOrDefault("currency", "MYR")))
-                .customerName(String.valueOf(slots.getOrDefault("customer_name", "Customer")))
-                .customerEmail(String.valueOf(slots.getOrDefault("email", "")))
+                .customerName(String.valueOf(slots.getOrDefault("customer_name",
+                        req.getCustomerName() != null ? req.getCustomerName() : "Customer")))
+                .customerEmail(String.valueOf(slots.getOrDefault("email",
+                        req.getEmail() != null ? req.getEmail() : "")))
                 .requestDetails(slots)
                 .premiumBreakdown(pb)
                 .totalPremium(result.getTotalPremium())
@@ -102,100 +153,11 @@ public class PricingService {
                 .status(QuoteStatus.CREATED)
                 .createdAt(Instant.now())
                 .build();
-
-        Quote savedQuote = quoteRepository.save(quote);
-        log.info("Quote saved with ID: {}", savedQuote.getQuoteId());
-
-        // Generate PDF
-        File pdfFile = null;
-        try {
-            pdfFile = pdfQuotationService.generateQuotationPdf(savedQuote);
-            log.info("PDF generated: {}", pdfFile.getAbsolutePath());
-        } catch (Exception e) {
-            log.error("Failed to generate PDF for quote {}: {}",
-                    savedQuote.getQuoteId(), e.getMessage());
-            // Continue without PDF
-        }
-
-        // Send email if customer email is provided
-        String customerEmail = savedQuote.getCustomerEmail();
-        if (customerEmail != null && !customerEmail.trim().isEmpty()) {
-            try {
-                // Send quote email
-                emailService.sendQuoteEmail(customerEmail, savedQuote, result);
-
-                // If PDF was generated, send it as attachment
-                if (pdfFile != null && pdfFile.exists()) {
-                    String subject = String.format("Your %s Insurance Quotation - %s",
-                            savedQuote.getLine(),
-                            savedQuote.getQuoteId());
-
-                    String body = String.format("""
-                        Dear %s,
-                        
-                        Please find your %s insurance quotation attached.
-                        
-                        Quote Summary:
-                        - Quote ID: %s
-                        - Total Premium: %s %s
-                        - Risk Score: %s
-                        
-                        This quotation is valid for 14 days.
-                        
-                        Best regards,
-                        Trust Insurance Team
-                        """,
-                            savedQuote.getCustomerName(),
-                            savedQuote.getLine(),
-                            savedQuote.getQuoteId(),
-                            savedQuote.getCurrency(),
-                            savedQuote.getTotalPremium(),
-                            savedQuote.getRiskScore()
-                    );
-
-                    emailService.sendQuoteEmailWithAttachment(
-                            customerEmail,
-                            subject,
-                            body,
-                            pdfFile
-                    );
-
-                    log.info("Email with PDF attachment sent to {}", customerEmail);
-                }
-
-            } catch (Exception e) {
-                log.error("Failed to send email for quote {}: {}",
-                        savedQuote.getQuoteId(), e.getMessage());
-                // Don't fail the quote creation if email fails
-            }
-
-            // Clean up PDF file after sending
-            if (pdfFile != null && pdfFile.exists()) {
-                try {
-                    boolean deleted = pdfFile.delete();
-                    if (deleted) {
-                        log.debug("Temporary PDF file deleted: {}", pdfFile.getName());
-                    }
-                } catch (SecurityException e) {
-                    log.warn("Could not delete PDF file: {}", e.getMessage());
-                }
-            }
-        } else {
-            log.warn("No email provided for quote {}, email not sent", savedQuote.getQuoteId());
-        }
-
-        return savedQuote;
     }
 
-    private void validate(QuotationRequest req) {
+    void validate(QuotationRequest req) {
         if (req.getLine() == null || req.getLine().trim().isEmpty()) {
             throw new ValidationException("Insurance line is required");
         }
     }
-
-    private String generateQuoteId() {
-        String datePart = Instant.now().toString().substring(0, 10).replace("-", "");
-        String randomPart = UUID.randomUUID().toString().substring(0, 6).toUpperCase();
-        return "Q-" + datePart + "-" + randomPart;
-    }
 }
\ No newline at end of file
@@ -0,0 +1,159 @@
+package insurance_package.service;
+
+import insurance_package.config.PdfProperties;
+import insurance_package.model.PremiumResult;
+import insurance_package.model.Quote;
+import insurance_package.model.QuoteStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Post-quote work (PDF render, email delivery) off the request thread.
+ *
+ * A saved quote with a customer email first gets a durable record in the
+ * {@link EmailOutbox}, then is handed to the {@link PdfRenderExecutor} in
+ * its lane (INTERACTIVE for chat / API quotes, BULK for uploads, RESEND
+ * for re-sends). When the PDF is ready the outbox is woken and its workers
+ * send the emails. Progress is recorded on the quote as
+ * {@link QuoteStatus} transitions: CREATED -> PDF_READY -> EMAILED, or
+ * FAILED.
+ *
+ * A render refused because the queue is full is left to the outbox, which
+ * renders on its own attempt or degrades per
+ * {@code quotation.pipeline.render-overload}. A queued render whose PDF the
+ * outbox has stored in the meantime is skipped.
+ *
+ * With {@code quotation.pdf.storage=STORE} (default) or MEMORY the PDF is
+ * rendered into the {@link PdfStore}, which also serves downloads and
+ * attachments; FILE writes it to output-dir, where the outbox reads it back
+ * and deletes it once sent.
+ */
+@Slf4j
+@Service
+@Profile("mongo")
+public class QuoteDeliveryPipeline {
+
+    private final PdfQuotationService pdfQuotationService;
+    private final PdfRenderExecutor renderExecutor;
+    private final PdfStore pdfStore;
+    private final EmailOutbox emailOutbox;
+    private final QuoteStatusRecorder statusRecorder;
+    private final boolean inMemory;
+
+    public record Delivery(Quote quote, PremiumResult result) {
+    }
+
+    public QuoteDeliveryPipeline(
+            PdfQuotationService pdfQuotationService,
+            PdfRenderExecutor renderExecutor,
+            PdfStore pdfStore,
+            EmailOutbox emailOutbox,
+            QuoteStatusRecorder statusRecorder,
+            PdfProperties pdfProperties
+    ) {
+        this.pdfQuotationService = pdfQuotationService;
+        this.renderExecutor = renderExecutor;
+        this.pdfStore = pdfStore;
+        this.emailOutbox = emailOutbox;
+        this.statusRecorder = statusRecorder;
+        this.inMemory = pdfProperties.getStorage() != PdfProperties.Storage.FILE;
+    }
+
+    /**
+     * Queues a freshly saved interactive quote for rendering and delivery.
+     * Never blocks on SMTP or rendering; the outbox insert is the only write.
+     * If it fails, nothing is rendered: callers hand the quote to
+     * {@link QuoteJournal#deliverLater} so the email is not lost.
+     */
+    public void submit(Quote quote, PremiumResult result) {
+        submit(quote, result, PdfRenderExecutor.Lane.INTERACTIVE);
+    }
+
+    public void submit(Quote quote, PremiumResult result, PdfRenderExecutor.Lane lane) {
+        if (hasEmail(quote)) {
+            emailOutbox.enqueue(quote, result, lane);
+        }
+        render(quote, lane);
+    }
+
+    /**
+     * {@link #submit} for many quotes, with one outbox insert.
+     */
+    public void submitAll(List<Delivery> deliveries, PdfRenderExecutor.Lane lane) {
+        emailOutbox.enqueueAll(deliveries.stream().filter(d -> hasEmail(d.quote())).toList(), lane);
+        for (Delivery d : deliveries) {
+            render(d.quote(), lane);
+        }
+    }
+
+    /**
+     * Emails the quote's PDF again, rendered behind new quotes.
+     */
+    public void resend(Quote quote) {
+        emailOutbox.enqueuePdf(quote, PdfRenderExecutor.Lane.RESEND);
+    }
+
+    // =========================================================
+    // STAGES
+    // =========================================================
+    private void render(Quote quote, PdfRenderExecutor.Lane lane) {
+        try {
+            renderExecutor.submit(lane, () -> {
+                rendered(quote, renderPdf(quote));
+                return null;
+            });
+        } catch (RejectedExecutionException e) {
+            if (hasEmail(quote)) {
+                log.warn("Render queue full, quote {} left to the email outbox", quote.getQuoteId());
+                emailOutbox.wake(quote.getQuoteId());
+            } else {
+                log.error("Render queue full, no PDF for quote {}", quote.getQuoteId());
+                statusRecorder.update(quote, QuoteStatus.FAILED, "Render queue full");
+            }
+        }
+    }
+
+    private boolean renderPdf(Quote quote) {
+        try {
+            if (inMemory && pdfStore.latest(quote.getQuoteId()).isPresent()) {
+                // Rendered by the outbox while this render was queued
+                log.debug("PDF for quote {} already stored, render skipped", quote.getQuoteId());
+                return true;
+            }
+            if (inMemory) {
+                pdfQuotationService.quotationPdf(quote);
+            } else {
+                File file = pdfQuotationService.generateQuotationPdf(quote);
+                log.info("PDF generated: {}", file.getAbsolutePath());
+            }
+            statusRecorder.update(quote, QuoteStatus.PDF_READY, null);
+            return true;
+        } catch (Exception e) {
+            log.error("Failed to generate PDF for quote {}: {}",
+                    quote.getQuoteId(), e.getMessage());
+            // Continue without PDF
+            return false;
+        }
+    }
+
+    private void rendered(Quote quote, boolean ok) {
+        if (hasEmail(quote)) {
+            emailOutbox.wake(quote.getQuoteId());
+        } else {
+            log.warn("No email provided for quote {}, email not sent", quote.getQuoteId());
+            if (!ok) {
+                statusRecorder.update(quote, QuoteStatus.FAILED, "PDF generation failed");
+            }
+        }
+    }
+
+    private static boolean hasEmail(Quote quote) {
+        String email = quote.getCustomerEmail();
+        return email != null && !email.trim().isEmpty();
+    }
+}
@@ -0,0 +1,121 @@
+package insurance_package.service;
+
+import insurance_package.config.QuoteIdProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Quote ids of the form {@code Q-yyyyMMdd-TTTTTTTNNSSS} (UTC date, then
+ * fixed-width uppercase hex):
+ *
+ * <pre>
+ *   TTTTTTT  milliseconds since midnight UTC
+ *   NN       node id (0-255)
+ *   SSS      sequence within the millisecond (0-4095)
+ * </pre>
+ *
+ * Ids sort lexicographically in creation order and never repeat on a node:
+ * the timestamp and sequence live in one {@link AtomicLong} advanced by CAS.
+ * When a millisecond's sequence is used up, or the wall clock steps back,
+ * the generator simply runs slightly ahead of the clock instead of waiting.
+ */
+@Slf4j
+@Component
+public class QuoteIdGenerator {
+
+    private static final int SEQUENCE_BITS = 12;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int MAX_NODE_ID = 0xFF;
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    // "Q-" + yyyyMMdd + "-" + 7 time + 2 node + 3 sequence
+    private static final int LENGTH = 23;
+
+    private final int nodeId;
+
+    // (epoch millis << SEQUENCE_BITS) | sequence of the last issued id
+    private final AtomicLong state = new AtomicLong();
+
+    private volatile Day day = new Day(Long.MIN_VALUE, null);
+
+    private record Day(long epochDay, char[] prefix) {
+    }
+
+    public QuoteIdGenerator(QuoteIdProperties properties) {
+        int configured = properties.getNodeId();
+        if (configured > MAX_NODE_ID) {
+            throw new IllegalArgumentException(
+                    "quotation.quote-id.node-id must be between 0 and " + MAX_NODE_ID);
+        }
+        this.nodeId = configured >= 0 ? configured : nodeIdFromHostName();
+        log.info("Quote id generator using node id {}", nodeId);
+    }
+
+    public String nextId() {
+        long next = advance(System.currentTimeMillis());
+        long millis = next >>> SEQUENCE_BITS;
+        return format(millis, nodeId, next & SEQUENCE_MASK);
+    }
+
+    private long advance(long now) {
+        while (true) {
+            long prev = state.get();
+            long next = now > (prev >>> SEQUENCE_BITS)
+                    ? now << SEQUENCE_BITS
+                    : prev + 1; // same (or earlier) millisecond; overflow carries into the next one
+            if (state.compareAndSet(prev, next)) {
+                return next;
+            }
+        }
+    }
+
+    private String format(long millis, int node, long sequence) {
+        long epochDay = Math.floorDiv(millis, MILLIS_PER_DAY);
+        long msOfDay = Math.floorMod(millis, MILLIS_PER_DAY);
+
+        char[] id = new char[LENGTH];
+        System.arraycopy(prefixFor(epochDay), 0, id, 0, 11);
+        hex(id, 11, msOfDay, 7);
+        hex(id, 18, node, 2);
+        hex(id, 20, sequence, 3);
+        return new String(id);
+    }
+
+    private char[] prefixFor(long epochDay) {
+        Day current = day;
+        if (current.epochDay() != epochDay) {
+            LocalDate date = LocalDate.ofEpochDay(epochDay);
+            String prefix = String.format("Q-%04d%02d%02d-",
+                    date.getYear(), date.getMonthValue(), date.getDayOfMonth());
+            current = new Day(epochDay, prefix.toCharArray());
+            day = current;
+        }
+        return current.prefix();
+    }
+
+    private static void hex(char[] out, int offset, long value, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            out[i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+
+    private static int nodeIdFromHostName() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = String.valueOf(ProcessHandle.current().pid());
+        }
+        int derived = (host.hashCode() & 0x7fffffff) % (MAX_NODE_ID + 1);
+        log.warn("quotation.quote-id.node-id not set, derived {} from host {}; "
+                + "set it explicitly when running more than one instance", derived, host);
+        return derived;
+    }
+}
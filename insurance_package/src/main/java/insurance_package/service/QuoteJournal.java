@@ -0,0 +1,619 @@
+package insurance_package.service;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.bulk.BulkWriteError;
+import insurance_package.config.QuoteJournalProperties;
+import insurance_package.model.PremiumResult;
+import insurance_package.model.Quote;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonBinaryReader;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Local write-ahead journal for quotes Mongo could not take.
+ *
+ * When a quote insert fails because Mongo is unreachable or too slow,
+ * PricingService appends the quote (and its premium result) here and
+ * answers as usual. Records go to memory-mapped, preallocated segments
+ * ({@code journal-NNNNNN.wal}):
+ *
+ * <pre>
+ *   int    magic "QWAL"
+ *   int    payload length
+ *   long   sequence
+ *   long   journaled at (epoch millis)
+ *   int    CRC32C of sequence, journaled at, length and payload
+ *   byte[] payload (BSON: quote, result)
+ * </pre>
+ *
+ * and are flushed to disk (fsync) before the quote is answered. A record
+ * with a bad CRC ends its segment: it is a torn append from a crash.
+ *
+ * A replayer inserts the records into {@code quotes} in sequence order,
+ * with ordered bulk writes, and records the last replayed sequence in a
+ * checkpoint file. Quote ids are assigned before journaling, so a record
+ * replayed twice (crash before the checkpoint, or a slow insert that
+ * landed after all) hits a duplicate key and is treated as stored. The
+ * quote's delivery (PDF, email) starts once it is stored, at least once.
+ * Fully replayed segments are deleted.
+ *
+ * A quote that was stored but could not be handed to delivery (the outbox
+ * insert failed) is journaled too, see {@link #deliverLater}: its replay
+ * is a duplicate key, and delivery is retried from there. Replay pauses
+ * at a delivery that fails the same way, instead of dropping it.
+ */
+@Slf4j
+@Component
+@Profile("mongo")
+public class QuoteJournal {
+
+    private static final int MAGIC = 0x5157414C;
+    private static final int HEADER = 4 + 4 + 8 + 8 + 4;
+    private static final int DUPLICATE_KEY = 11000;
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final String CHECKPOINT = "replayed.checkpoint";
+
+    private static final DocumentCodec CODEC = new DocumentCodec(MongoClientSettings.getDefaultCodecRegistry());
+
+    private final MongoTemplate mongoTemplate;
+    private final QuoteDeliveryPipeline quoteDeliveryPipeline;
+    private final QuoteMetrics quoteMetrics;
+    private final boolean enabled;
+    private final Path dir;
+    private final int segmentBytes;
+    private final long maxBytes;
+    private final boolean fsync;
+    private final int replayBatchSize;
+    private final ScheduledExecutorService replayer;
+
+    private static final class Segment {
+        final int id;
+        final Path path;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        int end;            // append position, guarded by the journal
+
+        Segment(int id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+
+    private record Record(long sequence, long journaledAt, Segment segment, int next, Quote quote,
+                          PremiumResult result) {
+    }
+
+    public record Stats(boolean enabled, long depth, long lagMs, long bytes, int segments, long replayed) {
+    }
+
+    // Oldest first, the last one is appended to. Guarded by this.
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private long nextSequence = 1;
+
+    // Replay position: first record not in Mongo yet. Moved by the replayer only.
+    private volatile long replayedSequence;
+    private volatile long oldestJournaledAt;    // of the first unreplayed record, 0 = none
+    private Segment cursorSegment;
+    private int cursorOffset;
+
+    public QuoteJournal(
+            MongoTemplate mongoTemplate,
+            QuoteDeliveryPipeline quoteDeliveryPipeline,
+            QuoteJournalProperties properties,
+            QuoteMetrics quoteMetrics
+    ) {
+        this.mongoTemplate = mongoTemplate;
+        this.quoteDeliveryPipeline = quoteDeliveryPipeline;
+        this.quoteMetrics = quoteMetrics;
+        this.enabled = properties.isEnabled();
+        this.dir = Paths.get(properties.getDir());
+        this.segmentBytes = properties.getSegmentBytes();
+        this.maxBytes = properties.getMaxBytes();
+        this.fsync = properties.isFsync();
+        this.replayBatchSize = Math.max(1, properties.getReplayBatchSize());
+        this.replayer = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("quote-journal-"));
+
+        if (!enabled) {
+            return;
+        }
+        try {
+            open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open quote journal in " + dir, e);
+        }
+        log.info("Quote journal opened under {}: {} quotes to replay", dir.toAbsolutePath(), depth());
+
+        quoteMetrics.quoteJournal(this, QuoteJournal::depth, j -> j.lagMs() / 1000.0, QuoteJournal::bytes);
+        replayer.scheduleWithFixedDelay(this::replay, 0, properties.getReplayIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Whether a failed quote insert should be journaled: Mongo unreachable,
+     * timed out, or the write not acknowledged as a whole.
+     */
+    public boolean accepts(RuntimeException e) {
+        return enabled && (e instanceof DataAccessResourceFailureException
+                || e instanceof TransientDataAccessException
+                || (e instanceof BulkOperationException bulk && bulk.getErrors().isEmpty()));
+    }
+
+    /**
+     * For a quote already stored whose delivery could not be queued: journals
+     * it so replay queues the delivery once Mongo is back. Returns false
+     * (nothing journaled) when the failure is not Mongo's or the journal is
+     * unwritable.
+     */
+    public boolean deliverLater(Quote quote, PremiumResult result, RuntimeException cause) {
+        if (!accepts(cause)) {
+            return false;
+        }
+        try {
+            append(quote, result);
+        } catch (RuntimeException e) {
+            cause.addSuppressed(e);
+            return false;
+        }
+        quoteMetrics.quoteJournal("undelivered", 1);
+        return true;
+    }
+
+    /**
+     * Appends the quote; it is on disk when this returns. Throws
+     * {@link UncheckedIOException} when the journal is full or unwritable.
+     */
+    public void append(Quote quote, PremiumResult result) {
+        MongoConverter converter = mongoTemplate.getConverter();
+        Document quoteDocument = new Document();
+        converter.write(quote, quoteDocument);
+        Document resultDocument = new Document();
+        if (result != null) {
+            converter.write(result, resultDocument);
+        }
+        Document payload = new Document("quote", quoteDocument).append("result", resultDocument);
+        ByteBuffer bson = new RawBsonDocument(payload, CODEC).getByteBuffer().asNIO();
+        byte[] bytes = new byte[bson.remaining()];
+        bson.get(bytes);
+
+        boolean first;
+        synchronized (this) {
+            try {
+                Segment segment = appendTarget(HEADER + bytes.length, quote);
+                long sequence = nextSequence;
+                long now = System.currentTimeMillis();
+                int pos = segment.end;
+                MappedByteBuffer buffer = segment.buffer;
+
+                buffer.putInt(pos + 4, bytes.length);
+                buffer.putLong(pos + 8, sequence);
+                buffer.putLong(pos + 16, now);
+                buffer.putInt(pos + 24, crc(sequence, now, bytes));
+                buffer.put(pos + HEADER, bytes);
+                // Magic last: a record is only recognised once complete
+                buffer.putInt(pos, MAGIC);
+                if (fsync) {
+                    buffer.force(pos, HEADER + bytes.length);
+                }
+
+                segment.end = pos + HEADER + bytes.length;
+                nextSequence++;
+                first = oldestJournaledAt == 0;
+                if (first) {
+                    oldestJournaledAt = now;
+                }
+            } catch (IOException e) {
+                quoteMetrics.quoteJournal("failed", 1);
+                throw new UncheckedIOException("Could not journal quote " + quote.getQuoteId(), e);
+            }
+        }
+
+        quoteMetrics.quoteJournal("journaled", 1);
+        if (first) {
+            log.warn("Mongo unavailable, journaling quotes (first: {})", quote.getQuoteId());
+        } else {
+            log.debug("Quote {} journaled", quote.getQuoteId());
+        }
+    }
+
+    public long depth() {
+        synchronized (this) {
+            return nextSequence - 1 - replayedSequence;
+        }
+    }
+
+    // Age of the oldest quote not in Mongo yet
+    public long lagMs() {
+        long oldest = oldestJournaledAt;
+        return oldest == 0 ? 0 : Math.max(0, System.currentTimeMillis() - oldest);
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(enabled, depth(), lagMs(), bytes(), segments.size(), replayedSequence);
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        replayer.shutdownNow();
+        for (Segment segment : segments) {
+            try {
+                segment.buffer.force();
+                segment.channel.close();
+            } catch (IOException e) {
+                log.warn("Could not close journal segment {}: {}", segment.path, e.getMessage());
+            }
+        }
+    }
+
+    // =========================================================
+    // REPLAY
+    // =========================================================
+    private void replay() {
+        long replayed = 0;
+        try {
+            int consumed;
+            do {
+                consumed = replayBatch();
+                replayed += consumed;
+            } while (consumed > 0);
+            if (replayed > 0) {
+                log.info("Quote journal drained: {} quotes replayed into Mongo", replayed);
+            }
+        } catch (RuntimeException | IOException e) {
+            log.warn("Quote journal replay paused after {} quotes, {} waiting: {}", replayed, depth(), e.toString());
+        }
+    }
+
+    // Replays the next records in order; returns how many are done
+    private int replayBatch() throws IOException {
+        List<Record> records = readNext(replayBatchSize);
+        if (records.isEmpty()) {
+            return 0;
+        }
+
+        int done = 0;
+        while (done < records.size()) {
+            List<Record> chunk = records.subList(done, records.size());
+            int stored;     // records [done, stored) are in Mongo now
+            int next;       // first record of the next chunk
+            try {
+                mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, Quote.class)
+                        .insert(chunk.stream().map(Record::quote).toList())
+                        .execute();
+                stored = records.size();
+                next = stored;
+            } catch (BulkOperationException e) {
+                if (e.getErrors().isEmpty()) {
+                    // Not acknowledged as a whole: keep what is behind us, retry the rest later
+                    advance(records, done);
+                    throw e;
+                }
+                // Ordered: everything before the failed record is in
+                BulkWriteError error = e.getErrors().get(0);
+                int failed = done + error.getIndex();
+                Record record = records.get(failed);
+                if (error.getCode() == DUPLICATE_KEY) {
+                    quoteMetrics.quoteJournal("duplicate", 1);
+                    stored = failed + 1;
+                } else {
+                    log.error("Journaled quote {} rejected by Mongo, skipped: {}",
+                            record.quote().getQuoteId(), error.getMessage());
+                    quoteMetrics.quoteJournal("skipped", 1);
+                    stored = failed;
+                }
+                next = failed + 1;
+            } catch (RuntimeException e) {
+                advance(records, done);
+                throw e;
+            }
+            deliver(records, done, stored);
+            done = next;
+        }
+        advance(records, done);
+        return done;
+    }
+
+    // Queues delivery of records [from, to). If the outbox is unreachable,
+    // checkpoints before the record that failed and pauses replay: that
+    // record's insert is a duplicate next time, and its delivery is retried.
+    private void deliver(List<Record> records, int from, int to) throws IOException {
+        for (int i = from; i < to; i++) {
+            Record record = records.get(i);
+            try {
+                quoteDeliveryPipeline.submit(record.quote(), record.result());
+            } catch (RuntimeException e) {
+                if (accepts(e)) {
+                    quoteMetrics.quoteJournal("replayed", i - from);
+                    advance(records, i);
+                    throw e;
+                }
+                log.error("Delivery of journaled quote {} failed: {}", record.quote().getQuoteId(), e.getMessage());
+            }
+        }
+        quoteMetrics.quoteJournal("replayed", to - from);
+    }
+
+    // Moves the cursor past the first done records and checkpoints
+    private void advance(List<Record> records, int done) throws IOException {
+        if (done == 0) {
+            return;
+        }
+        Record last = records.get(done - 1);
+        writeCheckpoint(last.sequence());
+
+        synchronized (this) {
+            cursorSegment = last.segment();
+            cursorOffset = last.next();
+            replayedSequence = last.sequence();
+
+            // Segments behind the cursor are fully replayed
+            while (segments.peekFirst() != cursorSegment && segments.size() > 1) {
+                delete(segments.removeFirst());
+            }
+            if (cursorOffset >= cursorSegment.end && segments.size() > 1 && segments.peekFirst() == cursorSegment) {
+                delete(segments.removeFirst());
+                cursorSegment = segments.peekFirst();
+                cursorOffset = 0;
+            }
+            oldestJournaledAt = replayedSequence >= nextSequence - 1 ? 0 : journaledAt(cursorSegment, cursorOffset);
+        }
+    }
+
+    private List<Record> readNext(int max) {
+        List<Record> records = new ArrayList<>();
+        List<Segment> pending;
+        List<Integer> ends = new ArrayList<>();
+        synchronized (this) {
+            if (cursorSegment == null) {
+                cursorSegment = segments.peekFirst();
+                cursorOffset = 0;
+            }
+            pending = new ArrayList<>(segments);
+            pending.forEach(s -> ends.add(s.end));
+        }
+
+        int start = pending.indexOf(cursorSegment);
+        for (int i = Math.max(0, start); i < pending.size() && records.size() < max; i++) {
+            Segment segment = pending.get(i);
+            int pos = segment == cursorSegment ? cursorOffset : 0;
+            while (pos < ends.get(i) && records.size() < max) {
+                Record record = read(segment, pos);
+                records.add(record);
+                pos = record.next();
+            }
+        }
+        return records;
+    }
+
+    private Record read(Segment segment, int pos) {
+        MappedByteBuffer buffer = segment.buffer;
+        int length = buffer.getInt(pos + 4);
+        byte[] bytes = new byte[length];
+        buffer.get(pos + HEADER, bytes);
+
+        Document payload = CODEC.decode(new BsonBinaryReader(ByteBuffer.wrap(bytes)), DecoderContext.builder().build());
+        MongoConverter converter = mongoTemplate.getConverter();
+        Document result = payload.get("result", Document.class);
+        return new Record(buffer.getLong(pos + 8), buffer.getLong(pos + 16), segment, pos + HEADER + length,
+                converter.read(Quote.class, payload.get("quote", Document.class)),
+                result.isEmpty() ? null : converter.read(PremiumResult.class, result));
+    }
+
+    private void writeCheckpoint(long sequence) throws IOException {
+        Path tmp = dir.resolve(CHECKPOINT + ".tmp");
+        ByteBuffer data = ByteBuffer.allocate(8 + 4).putLong(sequence).putInt(crc(sequence, 0, new byte[0]));
+        data.flip();
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, dir.resolve(CHECKPOINT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // =========================================================
+    // SEGMENTS
+    // =========================================================
+    private void open() throws IOException {
+        Files.createDirectories(dir);
+        replayedSequence = readCheckpoint();
+        nextSequence = replayedSequence + 1;
+
+        List<Path> files;
+        try (Stream<Path> list = Files.list(dir)) {
+            files = list
+                    .filter(p -> segmentId(p) >= 0)
+                    .sorted((a, b) -> Integer.compare(segmentId(a), segmentId(b)))
+                    .toList();
+        }
+        for (Path path : files) {
+            Segment segment = map(segmentId(path), path, false);
+            long last = scan(segment);
+            if (last >= nextSequence) {
+                nextSequence = last + 1;
+            }
+            if (last <= replayedSequence && segment.end > 0) {
+                // Replayed before the last shutdown
+                delete(segment);
+            } else {
+                segments.addLast(segment);
+            }
+        }
+
+        // Position the replayer on the first record not replayed yet
+        for (Segment segment : segments) {
+            int pos = 0;
+            while (pos < segment.end) {
+                if (segment.buffer.getLong(pos + 8) > replayedSequence) {
+                    cursorSegment = segment;
+                    cursorOffset = pos;
+                    oldestJournaledAt = segment.buffer.getLong(pos + 16);
+                    return;
+                }
+                pos += HEADER + segment.buffer.getInt(pos + 4);
+            }
+        }
+        cursorSegment = segments.peekLast();
+        cursorOffset = cursorSegment != null ? cursorSegment.end : 0;
+    }
+
+    // Finds the end of the valid records; returns the last sequence (0 = none)
+    private long scan(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer;
+        int capacity = buffer.capacity();
+        int pos = 0;
+        long last = 0;
+        while (pos + HEADER <= capacity && buffer.getInt(pos) == MAGIC) {
+            int length = buffer.getInt(pos + 4);
+            if (length < 0 || pos + HEADER + length > capacity) {
+                break;
+            }
+            long sequence = buffer.getLong(pos + 8);
+            long journaledAt = buffer.getLong(pos + 16);
+            byte[] bytes = new byte[length];
+            buffer.get(pos + HEADER, bytes);
+            if (buffer.getInt(pos + 24) != crc(sequence, journaledAt, bytes)) {
+                break;
+            }
+            last = sequence;
+            pos += HEADER + length;
+        }
+
+        // Anything after the last good record is a torn append: clear it
+        int dirty = pos;
+        while (dirty < capacity && buffer.get(dirty) == 0) {
+            dirty++;
+        }
+        if (dirty < capacity) {
+            log.warn("Discarding torn journal record at offset {} of {}", pos, segment.path.getFileName());
+            for (int i = pos; i < capacity; i++) {
+                buffer.put(i, (byte) 0);
+            }
+            buffer.force();
+        }
+        segment.end = pos;
+        return last;
+    }
+
+    private Segment appendTarget(int recordBytes, Quote quote) throws IOException {
+        if (recordBytes > segmentBytes) {
+            throw new IOException("Quote " + quote.getQuoteId() + " is larger than a journal segment");
+        }
+        Segment active = segments.peekLast();
+        if (active != null && active.end + recordBytes <= active.buffer.capacity()) {
+            return active;
+        }
+        if (bytes() + segmentBytes > maxBytes) {
+            throw new IOException("Quote journal full (" + bytes() + " bytes)");
+        }
+
+        int id = active != null ? active.id + 1 : 1;
+        Path path = dir.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        Segment segment = map(id, path, true);
+        segments.addLast(segment);
+        if (cursorSegment == null) {
+            cursorSegment = segment;
+            cursorOffset = 0;
+        }
+        return segment;
+    }
+
+    private Segment map(int id, Path path, boolean create) throws IOException {
+        FileChannel channel = create
+                ? FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = create ? segmentBytes : channel.size();
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        return new Segment(id, path, channel, buffer);
+    }
+
+    private void delete(Segment segment) {
+        try {
+            segment.channel.close();
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            log.warn("Could not delete journal segment {}: {}", segment.path, e.getMessage());
+        }
+    }
+
+    private synchronized long bytes() {
+        return segments.stream().mapToLong(s -> s.buffer.capacity()).sum();
+    }
+
+    private long readCheckpoint() throws IOException {
+        Path path = dir.resolve(CHECKPOINT);
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (data.remaining() < 12) {
+            throw new IOException("Corrupt journal checkpoint " + path);
+        }
+        long sequence = data.getLong();
+        if (data.getInt() != crc(sequence, 0, new byte[0])) {
+            throw new IOException("Corrupt journal checkpoint " + path);
+        }
+        return sequence;
+    }
+
+    private static long journaledAt(Segment segment, int pos) {
+        return pos < segment.end ? segment.buffer.getLong(pos + 16) : 0;
+    }
+
+    private static int crc(long sequence, long journaledAt, byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(ByteBuffer.allocate(8 + 8 + 4).putLong(sequence).putLong(journaledAt).putInt(payload.length).flip());
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static int segmentId(Path path) {
+        String name = path.getFileName().toString();
+        if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(),
+                    name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package insurance_package.service;
+
+import insurance_package.model.QuoteStatus;
+import insurance_package.rating.LifeRatingPlan;
+import insurance_package.rating.MotorRatingPlan;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Per-stage latency and per-line outcome metrics for the quote path.
+ *
+ * Every stage is a {@code quote.stage} timer tagged with {@code stage} and
+ * {@code line}, published as a percentile histogram so p95/p99 can be
+ * computed over any window at query time. The {@code line} tag is one of
+ * the product lines (Motor, Life) or {@code unknown}, whatever the caller
+ * passes, so request bodies cannot mint new series; {@code unknown} timers
+ * publish no histogram. Outcomes are counted in
+ * {@code quote.requests} ({@code line}, {@code outcome}) and delivery
+ * results in {@code quote.deliveries}. The PDF render queue reports
+ * {@code quote.render.queue} (depth), {@code quote.render.wait} and
+ * {@code quote.render.rejected}, tagged with {@code lane}. Chatbot engine
+ * calls are timed in {@code chatbot.engine} ({@code outcome}), chat
+ * transcript flushes in {@code chat.history.*}, Mongo connection checkouts
+ * in {@code mongo.pool.*}, group-commit quote inserts in
+ * {@code quote.write.*} and the local quote journal in
+ * {@code quote.journal.*}.
+ */
+@Component
+public class QuoteMetrics {
+
+    // Stages
+    public static final String BIND = "bind";
+    public static final String CATALOG = "catalog";
+    public static final String RATING = "rating";
+    public static final String SAVE = "save";
+    public static final String PDF_HTML = "pdf_html";
+    public static final String PDF_LAYOUT = "pdf_layout";
+    public static final String EMAIL_TEMPLATE = "email_template";
+    public static final String EMAIL_SEND = "email_send";
+
+    // Outcomes
+    public static final String SUCCESS = "success";
+    public static final String INVALID = "invalid";
+    public static final String FAILURE = "failure";
+
+    private static final String UNKNOWN = "unknown";
+
+    private final MeterRegistry registry;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    public QuoteMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public <T> T time(String stage, String line, Supplier<T> work) {
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            record(stage, line, System.nanoTime() - start);
+        }
+    }
+
+    public void record(String stage, String line, long nanos) {
+        timer(stage, line).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void outcome(String line, String outcome) {
+        counter("quote.requests", "Quote requests by line and outcome", line, outcome).increment();
+    }
+
+    /**
+     * Terminal delivery status of a quote (EMAILED / FAILED).
+     */
+    public void delivery(String line, QuoteStatus status) {
+        counter("quote.deliveries", "Quote PDF/email deliveries by line and final status",
+                line, status.name()).increment();
+    }
+
+    /**
+     * Outbox email attempt: sent / retry / deferred / delayed / throttled / quota / dead.
+     */
+    public void outbox(String line, String outcome) {
+        counter("quote.outbox", "Email outbox attempts by line and outcome", line, outcome).increment();
+    }
+
+    /**
+     * Email rate governor: current allowed rate and senders waiting for a token.
+     */
+    public <T> void emailRate(T governor, ToDoubleFunction<T> rate, ToDoubleFunction<T> waiting) {
+        Gauge.builder("quote.email.rate", governor, rate)
+                .description("Email sends per second currently allowed")
+                .register(registry);
+        Gauge.builder("quote.email.queued", governor, waiting)
+                .description("Emails waiting for a send token")
+                .register(registry);
+    }
+
+    /**
+     * A send that had to wait for a token (or gave up waiting).
+     */
+    public void emailDelayed(boolean urgent) {
+        String priority = urgent ? "urgent" : "bulk";
+        counters.computeIfAbsent("email.delayed|" + priority, k ->
+                Counter.builder("quote.email.delayed")
+                        .description("Emails held back by the send rate governor")
+                        .tag("priority", priority)
+                        .register(registry)
+        ).increment();
+    }
+
+    /**
+     * SES throttling / quota replies.
+     */
+    public void emailThrottled() {
+        counters.computeIfAbsent("email.throttled", k ->
+                Counter.builder("quote.email.throttled")
+                        .description("Throttling and quota replies from the mail server")
+                        .register(registry)
+        ).increment();
+    }
+
+    /**
+     * Chatbot engine call: ok / error / rejected (circuit open).
+     */
+    public void chatbotCall(String outcome, long nanos) {
+        timers.computeIfAbsent("chatbot.engine|" + outcome, k ->
+                Timer.builder("chatbot.engine")
+                        .description("Chatbot engine calls by outcome, retries included")
+                        .tag("outcome", outcome)
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofMillis(1))
+                        .maximumExpectedValue(Duration.ofSeconds(60))
+                        .register(registry)
+        ).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public <T> void chatbotBreaker(T client, ToDoubleFunction<T> open) {
+        Gauge.builder("chatbot.breaker.open", client, open)
+                .description("1 while the chatbot engine circuit breaker is open")
+                .register(registry);
+    }
+
+    /**
+     * Chat history write-behind cache: cached sessions and unwritten messages.
+     */
+    public <T> void chatHistory(T store, ToDoubleFunction<T> sessions, ToDoubleFunction<T> pending) {
+        Gauge.builder("chat.history.sessions", store, sessions)
+                .description("Chat sessions cached in memory")
+                .register(registry);
+        Gauge.builder("chat.history.pending", store, pending)
+                .description("Chat messages waiting to be written")
+                .register(registry);
+    }
+
+    /**
+     * One chat history flush: messages written and the Mongo round trips it took.
+     */
+    public void chatFlush(int messages, int roundTrips, long nanos) {
+        timers.computeIfAbsent("chat.history.flush", k ->
+                Timer.builder("chat.history.flush")
+                        .description("Time to write one batch of chat messages")
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofNanos(1_000))
+                        .maximumExpectedValue(Duration.ofSeconds(30))
+                        .register(registry)
+        ).record(nanos, TimeUnit.NANOSECONDS);
+        counters.computeIfAbsent("chat.history.messages", k ->
+                Counter.builder("chat.history.messages")
+                        .description("Chat messages written")
+                        .register(registry)
+        ).increment(messages);
+        counters.computeIfAbsent("chat.history.writes", k ->
+                Counter.builder("chat.history.writes")
+                        .description("Mongo round trips used to write chat messages")
+                        .register(registry)
+        ).increment(roundTrips);
+    }
+
+    /**
+     * Quotes waiting for the group-commit writer.
+     */
+    public <T> void quoteWriteQueue(T queue, ToDoubleFunction<T> depth) {
+        Gauge.builder("quote.write.queue", queue, depth)
+                .description("Quotes waiting to be inserted")
+                .register(registry);
+    }
+
+    /**
+     * One group-commit bulk insert: quotes in it and the write time.
+     */
+    public void quoteWriteBatch(int quotes, long nanos) {
+        timers.computeIfAbsent("quote.write.flush", k ->
+                Timer.builder("quote.write.flush")
+                        .description("Time to insert one batch of quotes")
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofNanos(1_000))
+                        .maximumExpectedValue(Duration.ofSeconds(30))
+                        .register(registry)
+        ).record(nanos, TimeUnit.NANOSECONDS);
+        summaries.computeIfAbsent("quote.write.batch", k ->
+                DistributionSummary.builder("quote.write.batch")
+                        .description("Quotes per bulk insert")
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(1.0)
+                        .maximumExpectedValue(1_000.0)
+                        .register(registry)
+        ).record(quotes);
+    }
+
+    /**
+     * Quote journal: quotes not in Mongo yet, age of the oldest one and disk used.
+     */
+    public <T> void quoteJournal(T journal, ToDoubleFunction<T> depth, ToDoubleFunction<T> lagSeconds,
+                                 ToDoubleFunction<T> bytes) {
+        Gauge.builder("quote.journal.depth", journal, depth)
+                .description("Journaled quotes waiting to be replayed into Mongo")
+                .register(registry);
+        Gauge.builder("quote.journal.lag.seconds", journal, lagSeconds)
+                .description("Age of the oldest journaled quote not in Mongo yet")
+                .register(registry);
+        Gauge.builder("quote.journal.bytes", journal, bytes)
+                .description("Disk used by quote journal segments")
+                .register(registry);
+    }
+
+    /**
+     * Journal records: journaled / failed / replayed / duplicate / skipped,
+     * and undelivered (stored quotes journaled for delivery only).
+     */
+    public void quoteJournal(String outcome, int records) {
+        counters.computeIfAbsent("quote.journal.records|" + outcome, k ->
+                Counter.builder("quote.journal.records")
+                        .description("Quote journal records by outcome")
+                        .tag("outcome", outcome)
+                        .register(registry)
+        ).increment(records);
+    }
+
+    /**
+     * Mongo connection pools: connections open, checked out and operations
+     * waiting for one.
+     */
+    public void mongoPool(AtomicInteger size, AtomicInteger checkedOut, AtomicInteger waiting) {
+        Gauge.builder("mongo.pool.size", size, AtomicInteger::get)
+                .description("Open Mongo connections")
+                .register(registry);
+        Gauge.builder("mongo.pool.checked.out", checkedOut, AtomicInteger::get)
+                .description("Mongo connections in use")
+                .register(registry);
+        Gauge.builder("mongo.pool.waiting", waiting, AtomicInteger::get)
+                .description("Operations waiting for a Mongo connection")
+                .register(registry);
+    }
+
+    /**
+     * Wait for a pooled Mongo connection: ok / timeout / connection_error / pool_closed.
+     */
+    public void mongoCheckout(String outcome, long nanos) {
+        timers.computeIfAbsent("mongo.pool.wait|" + outcome, k ->
+                Timer.builder("mongo.pool.wait")
+                        .description("Time to check out a Mongo connection by outcome")
+                        .tag("outcome", outcome)
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofNanos(1_000))
+                        .maximumExpectedValue(Duration.ofSeconds(30))
+                        .register(registry)
+        ).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * PDF store lookup: hit = layout skipped.
+     */
+    public void pdfStore(String line, boolean hit) {
+        counter("quote.pdf.store", "PDF store lookups by line and result",
+                line, hit ? "hit" : "miss").increment();
+    }
+
+    public void renderQueue(String lane, AtomicInteger depth) {
+        Gauge.builder("quote.render.queue", depth, AtomicInteger::get)
+                .description("PDF renders waiting for a worker")
+                .tag("lane", lane)
+                .register(registry);
+    }
+
+    public void renderWait(String lane, long nanos) {
+        timers.computeIfAbsent("render.wait|" + lane, k ->
+                Timer.builder("quote.render.wait")
+                        .description("Time a PDF render spent queued before a worker took it")
+                        .tag("lane", lane)
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofNanos(1_000))
+                        .maximumExpectedValue(Duration.ofSeconds(60))
+                        .register(registry)
+        ).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void renderRejected(String lane) {
+        counters.computeIfAbsent("render.rejected|" + lane, k ->
+                Counter.builder("quote.render.rejected")
+                        .description("PDF renders refused because the render queue was full")
+                        .tag("lane", lane)
+                        .register(registry)
+        ).increment();
+    }
+
+    /**
+     * The {@code line} tag for a caller-supplied line: Motor, Life or unknown.
+     */
+    public static String line(String line) {
+        if (line != null) {
+            String l = line.trim();
+            if (MotorRatingPlan.LINE.equalsIgnoreCase(l)) {
+                return MotorRatingPlan.LINE;
+            }
+            if (LifeRatingPlan.LINE.equalsIgnoreCase(l)) {
+                return LifeRatingPlan.LINE;
+            }
+        }
+        return UNKNOWN;
+    }
+
+    private Counter counter(String name, String description, String line, String outcome) {
+        String l = line(line);
+        return counters.computeIfAbsent(name + '|' + l + '|' + outcome, k ->
+                Counter.builder(name)
+                        .description(description)
+                        .tag("line", l)
+                        .tag("outcome", outcome)
+                        .register(registry)
+        );
+    }
+
+    private Timer timer(String stage, String line) {
+        String l = line(line);
+        return timers.computeIfAbsent(stage + '|' + l, k ->
+                Timer.builder("quote.stage")
+                        .description("Latency of one stage of the quote path")
+                        .tag("stage", stage)
+                        .tag("line", l)
+                        .publishPercentileHistogram(!UNKNOWN.equals(l))
+                        // Rating is microseconds, PDF layout and SMTP can take seconds
+                        .minimumExpectedValue(Duration.ofNanos(1_000))
+                        .maximumExpectedValue(Duration.ofSeconds(30))
+                        .register(registry)
+        );
+    }
+}
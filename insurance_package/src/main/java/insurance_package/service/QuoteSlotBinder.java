@@ -0,0 +1,302 @@
+package insurance_package.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import insurance_package.exception.ValidationException;
+import insurance_package.model.LifeSlots;
+import insurance_package.model.MotorSlots;
+import insurance_package.model.QuoteSlots;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Binds chatbot slots into typed {@link MotorSlots} / {@link LifeSlots} in a
+ * single pass, collecting every validation problem instead of failing on the
+ * first {@code NumberFormatException}.
+ *
+ * Two inputs are supported: the raw request body (parsed token by token, no
+ * intermediate tree) and the legacy untyped {@code Map<String, Object>} form.
+ * Both also return the untyped details that are persisted with the quote.
+ */
+@Component
+@RequiredArgsConstructor
+public class QuoteSlotBinder {
+
+    private static final List<String> MOTOR_REQUIRED =
+            List.of("year", "usage", "region", "ncd_percent", "sum_insured");
+    private static final List<String> LIFE_REQUIRED =
+            List.of("age", "smoker_status", "income");
+
+    private static final String ENABLED_SUFFIX = "_enabled";
+
+    private final ObjectMapper objectMapper;
+
+    public record Binding(
+            QuoteSlots slots,
+            Map<String, Object> details,
+            List<String> missing,
+            List<String> errors
+    ) {
+        public Binding requireValid() {
+            if (!errors.isEmpty()) {
+                throw new ValidationException("Invalid slots: " + String.join("; ", errors));
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Binds the legacy untyped slot map.
+     */
+    public Binding bind(String line, Map<String, Object> slots) {
+        Accumulator acc = new Accumulator(line);
+        if (slots != null) {
+            for (Map.Entry<String, Object> e : slots.entrySet()) {
+                acc.accept(e.getKey(), e.getValue());
+            }
+        }
+        return acc.toBinding();
+    }
+
+    /**
+     * Binds the {@code slots} object of a {@code {"slots": {...}}} request body.
+     */
+    public Binding bindJson(String line, byte[] body) {
+        Accumulator acc = new Accumulator(line);
+
+        try (JsonParser p = objectMapper.getFactory().createParser(body)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw new ValidationException("Request body must be a JSON object");
+            }
+
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken token = p.nextToken();
+
+                if (!"slots".equals(field) || token != JsonToken.START_OBJECT) {
+                    p.skipChildren();
+                    continue;
+                }
+
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = p.currentName();
+                    switch (p.nextToken()) {
+                        case VALUE_STRING -> acc.text(name, p.getText());
+                        case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> acc.number(name, p.getNumberValue());
+                        case VALUE_TRUE -> acc.bool(name, true);
+                        case VALUE_FALSE -> acc.bool(name, false);
+                        case VALUE_NULL -> acc.accept(name, null);
+                        default -> acc.accept(name, p.readValueAs(Object.class));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new ValidationException("Malformed request body: " + e.getMessage());
+        }
+
+        return acc.toBinding();
+    }
+
+    // =========================================================
+    // SINGLE-PASS ACCUMULATOR
+    // =========================================================
+    private static final class Accumulator {
+
+        private final boolean motor;
+        private final Map<String, Object> details = new LinkedHashMap<>();
+        private final Set<String> present = new HashSet<>();
+        private List<String> errors = List.of();
+        private Set<String> enabled = Set.of();
+
+        private final int currentYear = LocalDate.now().getYear();
+
+        // Motor
+        private int year = currentYear;
+        private String usage = "";
+        private String region = "";
+        private double ncdPercent;
+        private double sumInsured;
+
+        // Life
+        private int age;
+        private boolean smoker;
+        private double income;
+
+        Accumulator(String line) {
+            if ("Motor".equals(line)) {
+                motor = true;
+            } else if ("Life".equals(line)) {
+                motor = false;
+            } else {
+                throw new ValidationException("Unsupported line: " + line);
+            }
+        }
+
+        void accept(String name, Object value) {
+            if (name == null) return;
+            if (value instanceof String s) {
+                text(name, s);
+            } else if (value instanceof Number n) {
+                number(name, n);
+            } else if (value instanceof Boolean b) {
+                bool(name, b);
+            } else {
+                details.put(name, value);
+                if (value != null && isTyped(name)) {
+                    error(name + " has an unsupported value");
+                }
+            }
+        }
+
+        void text(String name, String raw) {
+            details.put(name, raw);
+            String value = raw.trim();
+
+            if (isText(name)) {
+                if (!value.isEmpty()) {
+                    assignText(name, raw);
+                }
+                return;
+            }
+
+            if (!isNumeric(name) || value.isEmpty()) {
+                return;
+            }
+            try {
+                if (isWhole(name)) {
+                    assignWhole(name, Integer.parseInt(value));
+                } else {
+                    assignDecimal(name, Double.parseDouble(value));
+                }
+            } catch (NumberFormatException e) {
+                error(name + " must be " + (isWhole(name) ? "a whole number" : "a number")
+                        + " (got '" + raw + "')");
+            }
+        }
+
+        void number(String name, Number n) {
+            details.put(name, n);
+
+            if (isWhole(name)) {
+                double d = n.doubleValue();
+                if (d != Math.rint(d)) {
+                    error(name + " must be a whole number (got " + n + ")");
+                } else {
+                    assignWhole(name, n.intValue());
+                }
+            } else if (isNumeric(name)) {
+                assignDecimal(name, n.doubleValue());
+            } else if (isText(name)) {
+                assignText(name, String.valueOf(n));
+            }
+        }
+
+        void bool(String name, boolean value) {
+            details.put(name, value);
+
+            if (value && name.endsWith(ENABLED_SUFFIX)) {
+                if (enabled.isEmpty()) {
+                    enabled = new HashSet<>(4);
+                }
+                enabled.add(name.substring(0, name.length() - ENABLED_SUFFIX.length()));
+            } else if (isTyped(name)) {
+                error(name + " has an unsupported value");
+            }
+        }
+
+        private void assignText(String name, String v) {
+            switch (name) {
+                case "usage" -> usage = v;
+                case "region" -> region = v;
+                default -> smoker = "yes".equalsIgnoreCase(v);
+            }
+            present.add(name);
+        }
+
+        private void assignWhole(String name, int v) {
+            if ("year".equals(name)) {
+                if (v < 1900 || v > currentYear + 1) {
+                    error("year must be between 1900 and " + (currentYear + 1));
+                    return;
+                }
+                year = v;
+            } else {
+                if (v < 0 || v > 150) {
+                    error("age must be between 0 and 150");
+                    return;
+                }
+                age = v;
+            }
+            present.add(name);
+        }
+
+        private void assignDecimal(String name, double v) {
+            if ("ncd_percent".equals(name)) {
+                if (v < 0 || v > 100) {
+                    error("ncd_percent must be between 0 and 100");
+                    return;
+                }
+                ncdPercent = v;
+            } else {
+                if (v < 0) {
+                    error(name + " must not be negative");
+                    return;
+                }
+                if ("sum_insured".equals(name)) {
+                    sumInsured = v;
+                } else {
+                    income = v;
+                }
+            }
+            present.add(name);
+        }
+
+        private boolean isWhole(String name) {
+            return motor ? "year".equals(name) : "age".equals(name);
+        }
+
+        private boolean isNumeric(String name) {
+            return motor
+                    ? "year".equals(name) || "ncd_percent".equals(name) || "sum_insured".equals(name)
+                    : "age".equals(name) || "income".equals(name);
+        }
+
+        private boolean isText(String name) {
+            return motor
+                    ? "usage".equals(name) || "region".equals(name)
+                    : "smoker_status".equals(name);
+        }
+
+        private boolean isTyped(String name) {
+            return isNumeric(name) || isText(name);
+        }
+
+        private void error(String message) {
+            if (errors.isEmpty()) {
+                errors = new ArrayList<>(2);
+            }
+            errors.add(message);
+        }
+
+        Binding toBinding() {
+            List<String> required = motor ? MOTOR_REQUIRED : LIFE_REQUIRED;
+            List<String> missing = new ArrayList<>(required.size());
+            for (String slot : required) {
+                if (!present.contains(slot)) {
+                    missing.add(slot);
+                }
+            }
+
+            QuoteSlots slots = motor
+                    ? new MotorSlots(year, usage, region, ncdPercent, sumInsured, enabled)
+                    : new LifeSlots(age, smoker, income, enabled);
+
+            return new Binding(slots, details, missing, errors);
+        }
+    }
+}
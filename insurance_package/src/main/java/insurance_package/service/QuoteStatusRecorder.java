@@ -0,0 +1,87 @@
+package insurance_package.service;
+
+import insurance_package.model.Quote;
+import insurance_package.model.QuoteStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Records delivery progress on the quote (render pipeline and email outbox).
+ *
+ * Status only moves forward: CREATED -> PDF_READY -> EMAILED / FAILED. A
+ * late update (e.g. the pipeline's render finishing after the outbox has
+ * rendered and emailed the quote itself) leaves the quote as it is.
+ */
+@Slf4j
+@Component
+@Profile("mongo")
+@RequiredArgsConstructor
+public class QuoteStatusRecorder {
+
+    private final MongoTemplate mongoTemplate;
+    private final QuoteMetrics quoteMetrics;
+
+    /**
+     * Moves the quote to status unless it is already there or further on.
+     * Returns whether it moved.
+     */
+    public boolean update(Quote quote, QuoteStatus status, String detail) {
+        Instant now = Instant.now();
+        boolean moved;
+        try {
+            moved = mongoTemplate.updateFirst(
+                    query(where("quoteId").is(quote.getQuoteId()).orOperator(
+                            where("status").in(before(status)),
+                            where("status").exists(false))),
+                    new Update()
+                            .set("status", status)
+                            .set("statusDetail", detail)
+                            .set("statusUpdatedAt", now),
+                    Quote.class
+            ).getMatchedCount() > 0;
+        } catch (Exception e) {
+            log.warn("Could not record status {} for quote {}: {}",
+                    status, quote.getQuoteId(), e.getMessage());
+            return false;
+        }
+
+        if (!moved) {
+            log.debug("Quote {} already past {}, status left as is", quote.getQuoteId(), status);
+            return false;
+        }
+        quote.setStatus(status);
+        quote.setStatusDetail(detail);
+        quote.setStatusUpdatedAt(now);
+        if (status == QuoteStatus.EMAILED || status == QuoteStatus.FAILED) {
+            quoteMetrics.delivery(quote.getLine(), status);
+        }
+        return true;
+    }
+
+    // Statuses a quote may move to status from
+    static List<QuoteStatus> before(QuoteStatus status) {
+        return Arrays.stream(QuoteStatus.values())
+                .filter(s -> rank(s) < rank(status))
+                .toList();
+    }
+
+    private static int rank(QuoteStatus status) {
+        return switch (status) {
+            case CREATED -> 0;
+            case PDF_READY -> 1;
+            case EMAILED, FAILED -> 2;
+            case EXPIRED -> 3;
+        };
+    }
+}
@@ -0,0 +1,229 @@
+package insurance_package.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import insurance_package.config.QuoteWriteProperties;
+import insurance_package.model.Quote;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Group commit for quote inserts.
+ *
+ * Callers queue their quote and wait on its future. A writer takes the
+ * oldest waiting quote, gathers more until it has been waiting linger-ms
+ * or batch-size are ready, and inserts them all with one unordered bulk
+ * write. Every future completes with its own quote or its own insert error
+ * (e.g. a duplicate quote id); a failure of the whole write fails the
+ * whole batch. Under a burst, hundreds of quotes share a round trip; a
+ * lone quote waits at most linger-ms.
+ *
+ * Ids are assigned before queueing. When the queue is full the caller
+ * inserts its quote directly.
+ */
+@Slf4j
+@Component
+@Profile("mongo")
+public class QuoteWriteBatcher {
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private record Pending(Quote quote, CompletableFuture<Quote> future, long queuedAt) {
+    }
+
+    private final MongoTemplate mongoTemplate;
+    private final QuoteMetrics quoteMetrics;
+    private final BlockingQueue<Pending> queue;
+    private final ExecutorService writers;
+    private final long lingerNanos;
+    private final int batchSize;
+    private final long timeoutMs;
+
+    private volatile boolean running = true;
+
+    public QuoteWriteBatcher(MongoTemplate mongoTemplate, QuoteWriteProperties properties, QuoteMetrics quoteMetrics) {
+        this.mongoTemplate = mongoTemplate;
+        this.quoteMetrics = quoteMetrics;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity()));
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, properties.getLingerMs()));
+        this.batchSize = Math.max(1, properties.getBatchSize());
+        this.timeoutMs = Math.max(1, properties.getTimeoutMs());
+
+        int threads = Math.max(1, properties.getWriters());
+        this.writers = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("quote-writer-"));
+        for (int i = 0; i < threads; i++) {
+            writers.execute(this::writeLoop);
+        }
+
+        quoteMetrics.quoteWriteQueue(queue, BlockingQueue::size);
+    }
+
+    /**
+     * Queues the quote for the next bulk write; the future completes once
+     * it is stored.
+     */
+    public CompletableFuture<Quote> insert(Quote quote) {
+        if (quote.getId() == null) {
+            quote.setId(new ObjectId().toHexString());
+        }
+        Pending pending = new Pending(quote, new CompletableFuture<>(), System.nanoTime());
+        if (running && queue.offer(pending)) {
+            return pending.future();
+        }
+
+        // Queue full (or shutting down): insert on the caller's thread
+        try {
+            return CompletableFuture.completedFuture(mongoTemplate.insert(quote));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * {@link #insert}, waiting for the write at most timeout-ms. Throws the
+     * insert's own error.
+     */
+    public Quote save(Quote quote) {
+        try {
+            return insert(quote).get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Still queued or in flight: it may yet be stored
+            throw new QueryTimeoutException("Quote " + quote.getQuoteId() + " not stored within " + timeoutMs + " ms", e);
+        } catch (ExecutionException | CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while storing quote " + quote.getQuoteId(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writers.shutdown();
+        if (!writers.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Quote writers still busy after 10s");
+        }
+
+        // Queued while the writers were stopping
+        List<Pending> left = new ArrayList<>();
+        queue.drainTo(left);
+        for (int i = 0; i < left.size(); i += batchSize) {
+            write(left.subList(i, Math.min(left.size(), i + batchSize)));
+        }
+    }
+
+    // =========================================================
+    // WRITER
+    // =========================================================
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                gather(batch, first.queuedAt() + lingerNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                if (!batch.isEmpty()) {
+                    write(batch);
+                    batch.clear();
+                }
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+        }
+    }
+
+    // Adds waiting quotes until the batch is full or the deadline passes
+    private void gather(List<Pending> batch, long deadline) throws InterruptedException {
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                return;
+            }
+            Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        long start = System.nanoTime();
+        List<Quote> quotes = new ArrayList<>(batch.size());
+        batch.forEach(pending -> quotes.add(pending.quote()));
+
+        Map<Integer, RuntimeException> failed = new HashMap<>();
+        RuntimeException failure = null;
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Quote.class)
+                    .insert(quotes)
+                    .execute();
+        } catch (BulkOperationException e) {
+            if (e.getErrors().isEmpty()) {
+                // e.g. write concern not satisfied: applies to every quote
+                failure = e;
+            }
+            for (BulkWriteError error : e.getErrors()) {
+                failed.put(error.getIndex(), insertError(error));
+            }
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+        quoteMetrics.quoteWriteBatch(batch.size(), System.nanoTime() - start);
+
+        if (failure != null) {
+            log.error("Bulk insert of {} quotes failed: {}", batch.size(), failure.getMessage());
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            Pending pending = batch.get(i);
+            RuntimeException error = failure != null ? failure : failed.get(i);
+            if (error == null) {
+                pending.future().complete(pending.quote());
+            } else {
+                pending.future().completeExceptionally(error);
+            }
+        }
+    }
+
+    private static RuntimeException insertError(BulkWriteError error) {
+        String message = "Quote insert failed: " + error.getMessage();
+        return error.getCode() == DUPLICATE_KEY
+                ? new DuplicateKeyException(message)
+                : new DataIntegrityViolationException(message);
+    }
+}
@@ -0,0 +1,115 @@
+package insurance_package.service;
+
+import insurance_package.config.OutboxProperties;
+import insurance_package.config.PdfProperties;
+import insurance_package.config.QuoteMailProperties;
+import insurance_package.config.QuotePipelineProperties;
+import insurance_package.model.Quote;
+import insurance_package.mongo.model.OutboxEmail;
+import insurance_package.mongo.repository.QuoteRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EmailOutboxTest {
+
+    private MongoTemplate mongoTemplate;
+    private EmailOutbox outbox;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        outbox = new EmailOutbox(
+                mongoTemplate,
+                mock(EmailService.class),
+                mock(QuoteRepository.class),
+                mock(PdfQuotationService.class),
+                mock(PdfRenderExecutor.class),
+                mock(PdfStore.class),
+                mock(QuoteStatusRecorder.class),
+                new QuoteMetrics(new SimpleMeterRegistry()),
+                new OutboxProperties(),
+                new QuotePipelineProperties(),
+                new PdfProperties(),
+                new QuoteMailProperties(),
+                mock(EmailRateGovernor.class)
+        );
+    }
+
+    @Test
+    void everyClaimTakesItsOwnLockToken() {
+        outbox.claim();
+        outbox.claim();
+
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(2)).findAndModify(any(Query.class), updates.capture(),
+                any(FindAndModifyOptions.class), eq(OutboxEmail.class));
+
+        List<String> tokens = updates.getAllValues().stream()
+                .map(update -> update.getUpdateObject().get("$set", Document.class).getString("lockedBy"))
+                .toList();
+        assertThat(tokens).doesNotContainNull().doesNotHaveDuplicates();
+        // Same node, different claims
+        assertThat(tokens.get(0).substring(0, tokens.get(0).lastIndexOf(':')))
+                .isEqualTo(tokens.get(1).substring(0, tokens.get(1).lastIndexOf(':')));
+    }
+
+    @Test
+    void claimLeasesTheEmailAndCountsTheAttempt() {
+        outbox.claim();
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), update.capture(),
+                any(FindAndModifyOptions.class), eq(OutboxEmail.class));
+
+        Document set = update.getValue().getUpdateObject().get("$set", Document.class);
+        assertThat(set.get("status")).isEqualTo(OutboxEmail.Status.SENDING);
+        assertThat(set).containsKey("nextAttemptAt");
+        assertThat(update.getValue().getUpdateObject().get("$inc", Document.class).get("attempts")).isEqualTo(1);
+    }
+
+    @Test
+    void enqueueingAQuoteTwiceKeepsOneEmail() {
+        Quote quote = Quote.builder().quoteId("Q-1").line("Motor").customerEmail("a@b.c").build();
+        when(mongoTemplate.insert(any(OutboxEmail.class)))
+                .thenAnswer(inv -> inv.getArgument(0))
+                .thenThrow(new DuplicateKeyException("E11000"));
+
+        outbox.enqueue(quote, null, PdfRenderExecutor.Lane.INTERACTIVE);
+        outbox.enqueue(quote, null, PdfRenderExecutor.Lane.INTERACTIVE);
+
+        ArgumentCaptor<OutboxEmail> emails = ArgumentCaptor.forClass(OutboxEmail.class);
+        verify(mongoTemplate, times(2)).insert(emails.capture());
+        assertThat(emails.getAllValues()).extracting(OutboxEmail::getId).containsOnly("Q-1");
+    }
+
+    @Test
+    void ownedMatchesTheEmailOnlyUnderItsClaimToken() {
+        OutboxEmail email = new OutboxEmail();
+        email.setId("65f0c0ffee0000000000abcd");
+        email.setLockedBy("node-1:65f0c0ffee0000000000beef");
+
+        Document query = EmailOutbox.owned(email).getQueryObject();
+
+        assertThat(query).containsExactlyInAnyOrderEntriesOf(new Document()
+                .append("_id", "65f0c0ffee0000000000abcd")
+                .append("lockedBy", "node-1:65f0c0ffee0000000000beef"));
+    }
+}
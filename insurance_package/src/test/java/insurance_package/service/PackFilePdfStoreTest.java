@@ -0,0 +1,186 @@
+package insurance_package.service;
+
+import insurance_package.config.PdfProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PackFilePdfStoreTest {
+
+    // Record overhead besides the PDF: fixed header + 2-byte quote id
+    private static final int RECORD_OVERHEAD = 4 + 4 + 8 + 32 + 2 + 2;
+    private static final int PDF_BYTES = 1_000;
+
+    @TempDir
+    Path dir;
+
+    private PackFilePdfStore store;
+
+    @AfterEach
+    void tearDown() {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    @Test
+    void evictOnAnEmptyStoreDoesNothing() {
+        store = open(Long.MAX_VALUE);
+
+        store.evict();
+
+        assertThat(store.stats().segments()).isZero();
+        assertThat(store.stats().documents()).isZero();
+    }
+
+    @Test
+    void evictsOldestSegmentsWhileOverTheSizeBudget() throws IOException {
+        store = open(2L * (RECORD_OVERHEAD + PDF_BYTES));
+        putThree();
+
+        store.evict();
+
+        assertThat(store.stats().segments()).isEqualTo(2);
+        assertThat(store.latest("Q1")).isEmpty();
+        assertThat(store.latest("Q2")).isPresent();
+        assertThat(store.latest("Q3")).isPresent();
+        assertThat(dir.resolve("pdf-000001.pack")).doesNotExist();
+    }
+
+    @Test
+    void keepsTheSegmentBeingAppendedTo() throws IOException {
+        store = open(0);
+        putThree();
+
+        store.evict();
+
+        assertThat(store.stats().segments()).isEqualTo(1);
+        assertThat(store.latest("Q3").orElseThrow().toBytes()).isEqualTo(pdf(3));
+    }
+
+    @Test
+    void readInFlightFinishesBeforeTheSegmentIsDeleted() throws Exception {
+        store = open(0);
+        putThree();
+        PdfStore.StoredPdf first = store.latest("Q1").orElseThrow();
+
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        BlockingChannel target = new BlockingChannel(reading, resume);
+        CompletableFuture<Void> download = CompletableFuture.runAsync(() -> {
+            try {
+                first.transferTo(0, first.length(), target);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertThat(reading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        store.evict();
+        assertThat(store.latest("Q1")).isEmpty();
+        assertThat(dir.resolve("pdf-000001.pack")).exists();
+
+        resume.countDown();
+        download.get(5, TimeUnit.SECONDS);
+        assertThat(target.bytes()).isEqualTo(pdf(1));
+        assertThat(dir.resolve("pdf-000001.pack")).doesNotExist();
+
+        assertThatThrownBy(first::toBytes).isInstanceOf(IOException.class).hasMessageContaining("evicted");
+    }
+
+    @Test
+    void reopenRebuildsTheIndex() throws IOException {
+        store = open(Long.MAX_VALUE);
+        putThree();
+        store.close();
+
+        store = open(Long.MAX_VALUE);
+
+        assertThat(store.stats().documents()).isEqualTo(3);
+        assertThat(store.find("Q2", hash(2))).isPresent();
+        assertThat(store.find("Q2", hash(3))).isEmpty();
+        assertThat(store.latest("Q2").orElseThrow().toBytes()).isEqualTo(pdf(2));
+    }
+
+    // One segment per PDF
+    private void putThree() throws IOException {
+        for (int i = 1; i <= 3; i++) {
+            store.put("Q" + i, hash(i), pdf(i));
+        }
+        assertThat(store.stats().segments()).isEqualTo(3);
+    }
+
+    private PackFilePdfStore open(long maxTotalBytes) {
+        PdfProperties.Store properties = new PdfProperties.Store();
+        properties.setDir(dir.toString());
+        properties.setSegmentMaxBytes(1);
+        properties.setMaxTotalBytes(maxTotalBytes);
+        return new PackFilePdfStore(properties);
+    }
+
+    private static String hash(int n) {
+        return String.format("%064x", n);
+    }
+
+    private static byte[] pdf(int n) {
+        byte[] pdf = new byte[PDF_BYTES];
+        Arrays.fill(pdf, (byte) n);
+        return pdf;
+    }
+
+    // Holds the first write until resumed, like a slow client
+    private static final class BlockingChannel implements WritableByteChannel {
+
+        private final CountDownLatch reading;
+        private final CountDownLatch resume;
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        BlockingChannel(CountDownLatch reading, CountDownLatch resume) {
+            this.reading = reading;
+            this.resume = resume;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            reading.countDown();
+            try {
+                resume.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            int n = src.remaining();
+            byte[] bytes = new byte[n];
+            src.get(bytes);
+            out.write(bytes, 0, n);
+            return n;
+        }
+
+        byte[] bytes() {
+            return out.toByteArray();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package insurance_package.service;
+
+import insurance_package.config.QuoteIdProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QuoteIdGeneratorTest {
+
+    @Test
+    void idsSortInCreationOrder() {
+        QuoteIdGenerator generator = generator(7);
+
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            ids.add(generator.nextId());
+        }
+
+        assertThat(ids).isSorted().doesNotHaveDuplicates();
+        assertThat(ids.get(0)).matches("Q-\\d{8}-[0-9A-F]{7}07[0-9A-F]{3}");
+    }
+
+    @Test
+    void idsAreUniqueAcrossThreads() throws Exception {
+        QuoteIdGenerator generator = generator(1);
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                done.add(threads.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        ids.add(generator.nextId());
+                    }
+                }));
+            }
+            for (Future<?> f : done) {
+                f.get();
+            }
+        } finally {
+            threads.shutdown();
+        }
+
+        assertThat(ids).hasSize(40_000);
+    }
+
+    @Test
+    void rejectsNodeIdsThatDoNotFit() {
+        assertThatThrownBy(() -> generator(256)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static QuoteIdGenerator generator(int nodeId) {
+        QuoteIdProperties properties = new QuoteIdProperties();
+        properties.setNodeId(nodeId);
+        return new QuoteIdGenerator(properties);
+    }
+}
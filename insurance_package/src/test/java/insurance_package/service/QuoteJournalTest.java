@@ -0,0 +1,368 @@
+package insurance_package.service;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import insurance_package.config.QuoteJournalProperties;
+import insurance_package.model.PremiumResult;
+import insurance_package.model.Quote;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class QuoteJournalTest {
+
+    private static final int MAGIC = 0x5157414C;
+    private static final int HEADER = 28;
+
+    @TempDir
+    Path dir;
+
+    private MongoTemplate mongoTemplate;
+    private QuoteDeliveryPipeline pipeline;
+
+    // What the fake quotes collection has been asked to insert, in order
+    private final List<String> inserted = new CopyOnWriteArrayList<>();
+    private final List<String> delivered = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean mongoDown = new AtomicBoolean(true);
+    // Quotes whose next insert fails with the given error code, wherever they fall in a batch
+    private final Map<String, Integer> failing = new ConcurrentHashMap<>();
+    // Quotes whose next delivery fails as if the outbox were unreachable
+    private final Set<String> undeliverable = ConcurrentHashMap.newKeySet();
+
+    private final List<QuoteJournal> journals = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        // Wired the way MongoTemplate wires its default converter
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+
+        mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+        when(mongoTemplate.bulkOps(eq(BulkOperations.BulkMode.ORDERED), eq(Quote.class))).thenAnswer(inv -> {
+            BulkOperations bulk = mock(BulkOperations.class);
+            List<Quote> batch = new ArrayList<>();
+            when(bulk.insert(anyList())).thenAnswer(i -> {
+                batch.addAll(i.getArgument(0));
+                return bulk;
+            });
+            when(bulk.execute()).thenAnswer(i -> execute(batch));
+            return bulk;
+        });
+
+        pipeline = deliveryPipeline();
+    }
+
+    @AfterEach
+    void tearDown() {
+        journals.forEach(QuoteJournal::close);
+    }
+
+    @Test
+    void acceptsOnlyFailuresOfMongoItself() {
+        QuoteJournal journal = open();
+
+        assertThat(journal.accepts(new DataAccessResourceFailureException("down"))).isTrue();
+        assertThat(journal.accepts(new QueryTimeoutException("slow"))).isTrue();
+        assertThat(journal.accepts(bulkFailure(List.of()))).isTrue();
+        assertThat(journal.accepts(new DuplicateKeyException("dup"))).isFalse();
+        assertThat(journal.accepts(bulkFailure(List.of(error(11000, 0))))).isFalse();
+    }
+
+    @Test
+    void replaysJournaledQuotesInOrderOnceMongoIsBack() throws Exception {
+        QuoteJournal journal = open();
+        for (int i = 0; i < 5; i++) {
+            journal.append(quote("Q" + i), result(100 + i));
+        }
+        assertThat(journal.stats().depth()).isEqualTo(5);
+
+        mongoDown.set(false);
+
+        awaitDelivered(5);
+        assertThat(inserted).containsExactly("Q0", "Q1", "Q2", "Q3", "Q4");
+        assertThat(delivered).containsExactly("Q0/100.0", "Q1/101.0", "Q2/102.0", "Q3/103.0", "Q4/104.0");
+        awaitDrained(journal);
+        assertThat(journal.stats().lagMs()).isZero();
+    }
+
+    @Test
+    void duplicateKeyOnReplayCountsAsStored() throws Exception {
+        QuoteJournal journal = open();
+        for (int i = 0; i < 4; i++) {
+            journal.append(quote("Q" + i), result(100));
+        }
+        // Q1 landed after all (a slow insert that timed out)
+        failing.put("Q1", 11000);
+        mongoDown.set(false);
+
+        awaitDelivered(4);
+        assertThat(delivered).extracting(d -> d.split("/")[0]).containsExactly("Q0", "Q1", "Q2", "Q3");
+        awaitDrained(journal);
+    }
+
+    @Test
+    void quoteRejectedOnReplayIsSkipped() throws Exception {
+        QuoteJournal journal = open();
+        for (int i = 0; i < 3; i++) {
+            journal.append(quote("Q" + i), result(100));
+        }
+        failing.put("Q1", 121);
+        mongoDown.set(false);
+
+        awaitDelivered(2);
+        assertThat(delivered).extracting(d -> d.split("/")[0]).containsExactly("Q0", "Q2");
+        awaitDrained(journal);
+    }
+
+    @Test
+    void tornRecordIsDiscardedOnReopen() throws Exception {
+        QuoteJournal journal = open();
+        for (int i = 0; i < 3; i++) {
+            journal.append(quote("Q" + i), result(100));
+        }
+        journal.close();
+
+        // Crash halfway through the third append: payload bytes never made it
+        Path segment = segments().get(0);
+        byte[] bytes = Files.readAllBytes(segment);
+        int third = recordOffset(bytes, 2);
+        bytes[third + HEADER] ^= 0x7F;
+        Files.write(segment, bytes);
+
+        QuoteJournal reopened = open();
+        assertThat(reopened.stats().depth()).isEqualTo(2);
+
+        // The torn record's space is reused
+        reopened.append(quote("Q3"), result(100));
+        mongoDown.set(false);
+
+        awaitDelivered(3);
+        assertThat(inserted).containsExactly("Q0", "Q1", "Q3");
+    }
+
+    @Test
+    void replayedQuotesAreNotDeliveredAgainAfterRestart() throws Exception {
+        QuoteJournalProperties properties = properties();
+        properties.setSegmentBytes(1024);
+        QuoteJournal journal = open(properties);
+        for (int i = 0; i < 6; i++) {
+            journal.append(quote("Q" + i), result(100));
+        }
+        assertThat(journal.stats().segments()).isGreaterThan(1);
+
+        mongoDown.set(false);
+        awaitDelivered(6);
+        awaitDrained(journal);
+        journal.close();
+        assertThat(segments()).hasSizeLessThanOrEqualTo(1);
+
+        pipeline = deliveryPipeline();
+        QuoteJournal restarted = open(properties);
+
+        verify(pipeline, after(300).never()).submit(any(), any());
+        assertThat(restarted.stats().depth()).isZero();
+        assertThat(restarted.stats().replayed()).isEqualTo(6);
+    }
+
+    @Test
+    void storedQuoteJournaledForDeliveryIsDeliveredOnce() throws Exception {
+        QuoteJournal journal = open();
+        mongoDown.set(false);
+        Quote stored = quote("Q0");
+        inserted.add("Q0");
+
+        assertThat(journal.deliverLater(stored, result(100), new DataAccessResourceFailureException("outbox down")))
+                .isTrue();
+
+        awaitDelivered(1);
+        assertThat(delivered).containsExactly("Q0/100.0");
+        assertThat(inserted).containsExactly("Q0");
+        awaitDrained(journal);
+    }
+
+    @Test
+    void deliverLaterIgnoresFailuresThatAreNotMongos() {
+        QuoteJournal journal = open();
+
+        assertThat(journal.deliverLater(quote("Q0"), result(100), new IllegalStateException("bug"))).isFalse();
+        assertThat(journal.stats().depth()).isZero();
+    }
+
+    @Test
+    void replayPausesAtADeliveryTheOutboxCouldNotTake() throws Exception {
+        QuoteJournal journal = open();
+        for (int i = 0; i < 3; i++) {
+            journal.append(quote("Q" + i), result(100));
+        }
+        undeliverable.add("Q1");
+        mongoDown.set(false);
+
+        // Q1 is inserted, not delivered, then replayed as a duplicate and delivered
+        awaitDelivered(3);
+        assertThat(delivered).extracting(d -> d.split("/")[0]).containsExactly("Q0", "Q1", "Q2");
+        assertThat(inserted).containsExactly("Q0", "Q1", "Q2");
+        awaitDrained(journal);
+    }
+
+    // =========================================================
+    // HELPERS
+    // =========================================================
+    private QuoteJournal open() {
+        return open(properties());
+    }
+
+    private QuoteJournal open(QuoteJournalProperties properties) {
+        QuoteJournal journal = new QuoteJournal(mongoTemplate, pipeline, properties,
+                new QuoteMetrics(new SimpleMeterRegistry()));
+        journals.add(journal);
+        return journal;
+    }
+
+    // Mockito counts a call before its answer runs: wait on what the answer recorded
+    private void awaitDelivered(int n) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (delivered.size() < n && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(delivered).hasSize(n);
+    }
+
+    // Delivery comes before the checkpoint: wait for the replayer to move past it
+    private static void awaitDrained(QuoteJournal journal) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (journal.stats().depth() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(journal.stats().depth()).isZero();
+    }
+
+    private QuoteJournalProperties properties() {
+        QuoteJournalProperties properties = new QuoteJournalProperties();
+        properties.setDir(dir.toString());
+        properties.setSegmentBytes(64 * 1024);
+        properties.setReplayIntervalMs(20);
+        properties.setReplayBatchSize(3);
+        properties.setFsync(false);
+        return properties;
+    }
+
+    private QuoteDeliveryPipeline deliveryPipeline() {
+        QuoteDeliveryPipeline mock = mock(QuoteDeliveryPipeline.class);
+        doAnswer(inv -> {
+            Quote quote = inv.getArgument(0);
+            if (undeliverable.remove(quote.getQuoteId())) {
+                throw new DataAccessResourceFailureException("Outbox down");
+            }
+            PremiumResult result = inv.getArgument(1);
+            delivered.add(quote.getQuoteId() + "/" + (result != null ? result.getTotalPremium() : null));
+            return null;
+        }).when(mock).submit(any(), any());
+        return mock;
+    }
+
+    // An ordered bulk insert: stops at the first failure, which is consumed
+    private BulkWriteResult execute(List<Quote> batch) {
+        if (mongoDown.get()) {
+            throw new DataAccessResourceFailureException("Mongo down");
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            String quoteId = batch.get(i).getQuoteId();
+            Integer code = failing.remove(quoteId);
+            if (code != null) {
+                throw bulkFailure(List.of(error(code, i)));
+            }
+            if (inserted.contains(quoteId)) {
+                throw bulkFailure(List.of(error(11000, i)));
+            }
+            inserted.add(quoteId);
+        }
+        return BulkWriteResult.acknowledged(batch.size(), 0, 0, 0, List.of(), List.of());
+    }
+
+    private List<Path> segments() throws Exception {
+        try (Stream<Path> list = Files.list(dir)) {
+            return list.filter(p -> p.getFileName().toString().endsWith(".wal")).sorted().toList();
+        }
+    }
+
+    private static int recordOffset(byte[] segment, int n) {
+        ByteBuffer buffer = ByteBuffer.wrap(segment);
+        int pos = 0;
+        for (int i = 0; i < n; i++) {
+            assertThat(buffer.getInt(pos)).isEqualTo(MAGIC);
+            pos += HEADER + buffer.getInt(pos + 4);
+        }
+        return pos;
+    }
+
+    private static Quote quote(String quoteId) {
+        return Quote.builder()
+                .id(new ObjectId().toHexString())
+                .quoteId(quoteId)
+                .line("Motor")
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    private static PremiumResult result(double total) {
+        PremiumResult result = new PremiumResult();
+        result.setTotalPremium(total);
+        return result;
+    }
+
+    private static BulkWriteError error(int code, int index) {
+        return new BulkWriteError(code, "E" + code, new BsonDocument(), index);
+    }
+
+    static BulkOperationException bulkFailure(List<BulkWriteError> errors) {
+        return new BulkOperationException("Bulk write failed", new MongoBulkWriteException(
+                BulkWriteResult.acknowledged(0, 0, 0, 0, List.of(), List.of()),
+                errors, null, new ServerAddress(), Set.of()));
+    }
+}
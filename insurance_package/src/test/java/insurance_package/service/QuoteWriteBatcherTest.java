@@ -0,0 +1,132 @@
+package insurance_package.service;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.WriteConcernError;
+import insurance_package.config.QuoteWriteProperties;
+import insurance_package.model.Quote;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class QuoteWriteBatcherTest {
+
+    private MongoTemplate mongoTemplate;
+    private BulkOperations bulk;
+    private QuoteWriteBatcher batcher;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(eq(BulkOperations.BulkMode.UNORDERED), eq(Quote.class))).thenReturn(bulk);
+        when(bulk.insert(anyList())).thenReturn(bulk);
+
+        // One writer and a long linger: the three quotes of a test share one write
+        QuoteWriteProperties properties = new QuoteWriteProperties();
+        properties.setWriters(1);
+        properties.setBatchSize(3);
+        properties.setLingerMs(1_000);
+        batcher = new QuoteWriteBatcher(mongoTemplate, properties, new QuoteMetrics(new SimpleMeterRegistry()));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        batcher.shutdown();
+    }
+
+    @Test
+    void everyQuoteGetsItsOwnInsertError() {
+        when(bulk.execute()).thenThrow(bulkFailure(
+                List.of(error(11000, 1), error(121, 2)), null));
+
+        List<CompletableFuture<Quote>> futures = insertThree();
+
+        assertThat(futures.get(0).join().getQuoteId()).isEqualTo("Q0");
+        assertThatThrownBy(futures.get(1)::join)
+                .isInstanceOf(CompletionException.class)
+                .hasCauseExactlyInstanceOf(DuplicateKeyException.class);
+        assertThatThrownBy(futures.get(2)::join)
+                .isInstanceOf(CompletionException.class)
+                .hasCauseExactlyInstanceOf(DataIntegrityViolationException.class);
+        verify(bulk, times(1)).execute();
+    }
+
+    @Test
+    void writeNotAcknowledgedAsAWholeFailsEveryQuote() {
+        BulkOperationException failure = bulkFailure(List.of(),
+                new WriteConcernError(64, "WriteConcernFailed", "waiting for replication timed out", new BsonDocument()));
+        when(bulk.execute()).thenThrow(failure);
+
+        for (CompletableFuture<Quote> future : insertThree()) {
+            assertThatThrownBy(future::join).hasCause(failure);
+        }
+    }
+
+    @Test
+    void mongoFailureFailsEveryQuote() {
+        when(bulk.execute()).thenThrow(new DataAccessResourceFailureException("Mongo down"));
+
+        for (CompletableFuture<Quote> future : insertThree()) {
+            assertThatThrownBy(future::join).hasCauseExactlyInstanceOf(DataAccessResourceFailureException.class);
+        }
+    }
+
+    @Test
+    void saveThrowsTheInsertsOwnError() {
+        when(bulk.execute()).thenThrow(bulkFailure(List.of(error(11000, 0)), null));
+
+        assertThatThrownBy(() -> batcher.save(quote("Q0"))).isExactlyInstanceOf(DuplicateKeyException.class);
+    }
+
+    @Test
+    void saveAssignsAnIdBeforeQueueing() {
+        when(bulk.execute()).thenReturn(BulkWriteResult.acknowledged(1, 0, 0, 0, List.of(), List.of()));
+
+        Quote saved = batcher.save(quote("Q0"));
+
+        assertThat(saved.getId()).isNotNull();
+    }
+
+    private List<CompletableFuture<Quote>> insertThree() {
+        return List.of(batcher.insert(quote("Q0")), batcher.insert(quote("Q1")), batcher.insert(quote("Q2")));
+    }
+
+    private static Quote quote(String quoteId) {
+        return Quote.builder().quoteId(quoteId).line("Motor").build();
+    }
+
+    private static BulkWriteError error(int code, int index) {
+        return new BulkWriteError(code, "E" + code, new BsonDocument(), index);
+    }
+
+    private static BulkOperationException bulkFailure(List<BulkWriteError> errors, WriteConcernError writeConcernError) {
+        return new BulkOperationException("Bulk write failed", new MongoBulkWriteException(
+                BulkWriteResult.acknowledged(0, 0, 0, 0, List.of(), List.of()),
+                errors, writeConcernError, new ServerAddress(), Set.of()));
+    }
+}